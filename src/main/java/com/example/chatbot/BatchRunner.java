@@ -0,0 +1,250 @@
+package com.example.chatbot;
+
+import com.example.chatbot.model.Conversation;
+import com.example.chatbot.service.ChatService;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless mode: runs every prompt of a JSONL file through {@link ChatService}, with the same routing
+ * and failover as the chat window, and writes one JSONL result per prompt as soon as it finishes.
+ *
+ * <p>Input lines look like {@code {"id":"lesson-1","prompt":"Explain ...","mode":"BEST"}}; {@code id}
+ * and {@code mode} are optional. Output lines carry {@code id}, {@code line}, {@code ok},
+ * {@code provider}, {@code latencyMs} and {@code reply} (or {@code error}), in completion order.
+ * Each prompt runs in its own conversation, so results do not depend on the order of the file.
+ */
+final class BatchRunner {
+    static final String FLAG = "--batch";
+    private static final String USAGE = "Usage: " + FLAG
+            + " <input.jsonl|-> [--output <results.jsonl|->] [--concurrency <n>] [--mode BEST|GROQ|GOOGLE_VISION|LEONARDO|FREEPIK]";
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final Gson GSON = new Gson();
+
+    private final String input;
+    private final String output;
+    private final int concurrency;
+    private final ChatService.RequestMode defaultMode;
+    private final Object writeLock = new Object();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private BatchRunner(String input, String output, int concurrency, ChatService.RequestMode defaultMode) {
+        this.input = input;
+        this.output = output;
+        this.concurrency = concurrency;
+        this.defaultMode = defaultMode;
+    }
+
+    /**
+     * Parses {@code args} (starting with {@link #FLAG}), runs the batch and returns the process exit
+     * code: 0 when every prompt got a reply, 1 when some failed, 2 for bad arguments or unreadable files.
+     */
+    static int run(String[] args) {
+        BatchRunner runner;
+        try {
+            runner = fromArgs(args);
+        } catch (IllegalArgumentException invalid) {
+            System.err.println("[Batch] " + invalid.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            return runner.execute();
+        } catch (IOException ex) {
+            System.err.println("[Batch] " + ex.getMessage());
+            return 2;
+        }
+    }
+
+    private static BatchRunner fromArgs(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Missing input file.");
+        }
+        String input = args[1];
+        String output = "-".equals(input) ? "-" : defaultOutputFor(input);
+        int concurrency = DEFAULT_CONCURRENCY;
+        ChatService.RequestMode mode = ChatService.RequestMode.BEST;
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + ".");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--output" -> output = value;
+                case "--concurrency" -> {
+                    try {
+                        concurrency = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("Concurrency must be a number: " + value);
+                    }
+                    if (concurrency < 1) {
+                        throw new IllegalArgumentException("Concurrency must be at least 1.");
+                    }
+                }
+                case "--mode" -> mode = parseMode(value);
+                default -> throw new IllegalArgumentException("Unknown option " + option + ".");
+            }
+        }
+        return new BatchRunner(input, output, concurrency, mode);
+    }
+
+    private static String defaultOutputFor(String input) {
+        String base = input.endsWith(".jsonl") ? input.substring(0, input.length() - ".jsonl".length()) : input;
+        return base + ".results.jsonl";
+    }
+
+    private static ChatService.RequestMode parseMode(String value) {
+        try {
+            return ChatService.RequestMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown mode " + value + ".");
+        }
+    }
+
+    private int execute() throws IOException {
+        PrintStream results = System.out;
+        if ("-".equals(output)) {
+            // Keep stdout clean for results; service log lines go to stderr instead.
+            System.setOut(System.err);
+        }
+
+        ChatService chatService = new ChatService();
+        Semaphore slots = new Semaphore(concurrency);
+        int submitted = 0;
+        long startedAt = System.nanoTime();
+        System.err.println("[Batch] Running " + input + " with " + concurrency + " concurrent requests.");
+
+        try (BufferedReader reader = openInput(); Writer writer = openOutput(results)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                submitted++;
+                slots.acquireUninterruptibly();
+                submit(chatService, line, lineNumber, writer, slots);
+            }
+            // Every slot back means every submitted prompt has been written.
+            slots.acquireUninterruptibly(concurrency);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        System.err.println("[Batch] " + submitted + " prompts in " + elapsedMillis + " ms, "
+                + failed.get() + " failed." + ("-".equals(output) ? "" : " Results: " + output));
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    private void submit(ChatService chatService, String line, int lineNumber, Writer writer, Semaphore slots) {
+        JsonObject result = new JsonObject();
+        result.addProperty("line", lineNumber);
+        JsonObject item;
+        String prompt;
+        ChatService.RequestMode mode;
+        try {
+            item = JsonParser.parseString(line).getAsJsonObject();
+            prompt = stringField(item, "prompt");
+            if (prompt == null || prompt.isBlank()) {
+                throw new IllegalArgumentException("Missing \"prompt\".");
+            }
+            String modeName = stringField(item, "mode");
+            mode = modeName == null ? defaultMode : parseMode(modeName);
+        } catch (RuntimeException invalid) {
+            result.addProperty("id", String.valueOf(lineNumber));
+            result.addProperty("ok", false);
+            result.addProperty("error", "Invalid input line: "
+                    + (invalid instanceof JsonParseException ? "not valid JSON." : invalid.getMessage()));
+            write(writer, result);
+            slots.release();
+            return;
+        }
+        JsonElement id = item.get("id");
+        result.add("id", id == null ? GSON.toJsonTree(String.valueOf(lineNumber)) : id);
+
+        long sentAt = System.nanoTime();
+        ChatService.ReplyHandle handle = chatService.sendMessage(
+                new Conversation("Batch " + lineNumber),
+                prompt,
+                null,
+                mode,
+                null
+        );
+        handle.result().whenComplete((reply, failure) -> {
+            try {
+                String provider = handle.provider();
+                boolean ok = failure == null && reply != null && provider != null;
+                result.addProperty("ok", ok);
+                result.addProperty("provider", provider);
+                result.addProperty("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt));
+                if (failure != null) {
+                    result.addProperty("error", failure.getMessage());
+                } else if (ok) {
+                    result.addProperty("reply", reply.getContent());
+                } else {
+                    result.addProperty("error", reply == null ? "No reply." : reply.getContent());
+                }
+                write(writer, result);
+            } finally {
+                slots.release();
+            }
+        });
+    }
+
+    private void write(Writer writer, JsonObject result) {
+        if (!result.get("ok").getAsBoolean()) {
+            failed.incrementAndGet();
+        }
+        synchronized (writeLock) {
+            try {
+                writer.write(GSON.toJson(result));
+                writer.write('\n');
+                // Flushed per line so finished results survive an interrupted run.
+                writer.flush();
+            } catch (IOException ex) {
+                System.err.println("[Batch] Failed to write result: " + ex.getMessage());
+            }
+        }
+    }
+
+    private static String stringField(JsonObject item, String name) {
+        JsonElement value = item.get(name);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    private BufferedReader openInput() throws IOException {
+        if ("-".equals(input)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+    }
+
+    private Writer openOutput(PrintStream stdout) throws IOException {
+        if ("-".equals(output)) {
+            return new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+        }
+        Path path = Path.of(output);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+}
@@ -6,12 +6,16 @@ import javafx.application.Application;
  * Plain Java entry point used for packaged builds.
  * This avoids the JavaFX launcher check that occurs when the main class
  * itself extends Application.
+ * With {@code --batch} it runs a prompt file headlessly instead (see {@link BatchRunner}).
  */
 public final class CortexLauncher {
     private CortexLauncher() {
     }
 
     public static void main(String[] args) {
+        if (args.length > 0 && BatchRunner.FLAG.equals(args[0])) {
+            System.exit(BatchRunner.run(args));
+        }
         Application.launch(MainApp.class, args);
     }
 }
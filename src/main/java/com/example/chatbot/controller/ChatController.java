@@ -6,6 +6,7 @@ import com.example.chatbot.service.ChatService;
 import com.example.chatbot.service.CodeExecutionService;
 import com.example.chatbot.service.ExportService;
 import com.example.chatbot.service.LanguageConfigService;
+import com.example.chatbot.service.PromptSignals;
 import com.example.chatbot.service.SettingsManager;
 import javafx.animation.FadeTransition;
 import javafx.animation.KeyFrame;
@@ -52,6 +53,7 @@ import javafx.stage.Window;
 import javafx.util.Duration;
 import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.ImageView;
 
 import javax.imageio.ImageIO;
@@ -63,10 +65,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -79,6 +79,7 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -100,6 +101,8 @@ public class ChatController {
     @FXML
     private Button sendButton;
     @FXML
+    private Button stopGenerationButton;
+    @FXML
     private HBox inputShell;
     @FXML
     private HBox attachmentPreviewBar;
@@ -146,7 +149,7 @@ public class ChatController {
     private Conversation conversation;
     private ChatService chatService = new ChatService();
     private Runnable onConversationUpdated;
-    private CompletableFuture<Message> inFlightRequest;
+    private ChatService.ReplyHandle inFlightRequest;
     private static final Pattern CODE_BLOCK_PATTERN = Pattern.compile("```(\\w+)?\\R([\\s\\S]*?)```");
     private static final Pattern HEADING_PATTERN = Pattern.compile("^(#{1,3})\\s+(.*)$");
     private static final Pattern ORDERED_LIST_PATTERN = Pattern.compile("^(\\d+)\\.\\s+(.*)$");
@@ -172,7 +175,10 @@ public class ChatController {
     private static final String TERMINAL_PROMPT_SUFFIX = "> ";
     private static final String MODEL_MODE_ICON = "\u26A1";
     private static final String DEFAULT_GENERATING_LABEL = "Cortex is generating";
+    private static final String STOPPED_REPLY_NOTE = "_Response stopped._";
     private static final String IMAGE_GENERATING_LABEL = "Generating image";
+    // Long enough to read a usage warning; the regular toasts only confirm an action.
+    private static final double USAGE_WARNING_SECONDS = 8;
     private static final String DEFAULT_DOWNLOADED_IMAGE_NAME = "generated-image.png";
     private final BooleanProperty waitingForResponse = new SimpleBooleanProperty(false);
     private final LanguageConfigService langConfigService = new LanguageConfigService();
@@ -193,14 +199,13 @@ public class ChatController {
     private Node streamingActiveNode;
     private VBox streamingActiveVBox;
     private boolean streamingActiveIsCode;
+    private StreamingResponse activeStreamingResponse;
     private WebView webPreviewView;
     private PanelMode panelMode = PanelMode.TERMINAL;
     private ChatService.ImageAttachment pendingImageAttachment;
+    private ChatService.ImageAttachment pendingUploadAttachment;
     private boolean pendingImageGenerationRequest;
     private String pendingGenerationLabelBase = DEFAULT_GENERATING_LABEL;
-    private final HttpClient imageDownloadClient = HttpClient.newBuilder()
-            .connectTimeout(java.time.Duration.ofSeconds(20))
-            .build();
 
     private enum PanelMode {
         TERMINAL,
@@ -238,6 +243,15 @@ public class ChatController {
 
         // ---- Send Actions ----
         sendButton.setOnAction(e -> sendMessage());
+        if (stopGenerationButton != null) {
+            // Stop takes the place of Send while a reply is being generated
+            stopGenerationButton.visibleProperty().bind(waitingForResponse);
+            stopGenerationButton.managedProperty().bind(waitingForResponse);
+            sendButton.visibleProperty().bind(waitingForResponse.not());
+            sendButton.managedProperty().bind(waitingForResponse.not());
+            stopGenerationButton.setOnAction(e -> stopGeneration());
+            Tooltip.install(stopGenerationButton, new Tooltip("Stop generating"));
+        }
         if (modelModeSelector != null) {
             modelModeSelector.getItems().setAll("Best", "Groq", "Google Vision", "Leonardo", "Freepik");
             modelModeSelector.setButtonCell(createModelModeCell());
@@ -506,29 +520,22 @@ public class ChatController {
                 return false;
             }
 
-            BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    bufferedImage.setRGB(x, y, clipboardImage.getPixelReader().getArgb(x, y));
-                }
-            }
-
-            byte[] pngBytes;
-            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                if (!ImageIO.write(bufferedImage, "png", out)) {
-                    showNotification("✗ Failed to encode clipboard image");
-                    return false;
-                }
-                pngBytes = out.toByteArray();
-            }
-
-            if (pngBytes.length > MAX_IMAGE_ATTACHMENT_BYTES) {
-                showNotification("✗ Clipboard image is too large (max 8 MB)");
-                return false;
-            }
-
-            setPendingImageAttachment(new ChatService.ImageAttachment("clipboard-image.png", "image/png", pngBytes));
-            showNotification("Image pasted from clipboard");
+            // One bulk read here; PNG encoding of a 4K screenshot takes too long for the FX thread.
+            int[] argb = new int[width * height];
+            clipboardImage.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+            CompletableFuture.supplyAsync(() -> encodeClipboardPng(argb, width, height))
+                    .whenComplete((pngBytes, error) -> Platform.runLater(() -> {
+                        if (error != null || pngBytes == null) {
+                            showNotification("✗ Failed to encode clipboard image");
+                            return;
+                        }
+                        if (pngBytes.length > MAX_IMAGE_ATTACHMENT_BYTES) {
+                            showNotification("✗ Clipboard image is too large (max 8 MB)");
+                            return;
+                        }
+                        setPendingImageAttachment(new ChatService.ImageAttachment("clipboard-image.png", "image/png", pngBytes));
+                        showNotification("Image pasted from clipboard");
+                    }));
             return true;
         } catch (Exception ex) {
             showNotification("✗ Failed to paste image: " + ex.getMessage());
@@ -536,13 +543,33 @@ public class ChatController {
         }
     }
 
+    private static byte[] encodeClipboardPng(int[] argb, int width, int height) {
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        bufferedImage.setRGB(0, 0, width, height, argb, 0, width);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            return ImageIO.write(bufferedImage, "png", out) ? out.toByteArray() : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
     private void setPendingImageAttachment(ChatService.ImageAttachment attachment) {
         pendingImageAttachment = attachment;
+        pendingUploadAttachment = null;
         updateAttachmentPreview();
+        // Shrinks the image while the user types; sending reuses the cached result.
+        chatService.prepareImageAttachment(attachment)
+                .thenAccept(prepared -> Platform.runLater(() -> {
+                    if (pendingImageAttachment == attachment) {
+                        pendingUploadAttachment = prepared;
+                        updateAttachmentPreview();
+                    }
+                }));
     }
 
     private void clearPendingImageAttachment() {
         pendingImageAttachment = null;
+        pendingUploadAttachment = null;
         updateAttachmentPreview();
     }
 
@@ -555,9 +582,7 @@ public class ChatController {
             attachmentPreviewBar.setManaged(hasAttachment);
         }
         if (attachmentPreviewLabel != null) {
-            attachmentPreviewLabel.setText(hasAttachment
-                    ? pendingImageAttachment.fileName() + " (" + formatBytes(pendingImageAttachment.data().length) + ")"
-                    : "");
+            attachmentPreviewLabel.setText(hasAttachment ? describePendingAttachment() : "");
         }
         if (attachmentPreviewThumb != null) {
             if (hasAttachment) {
@@ -575,6 +600,15 @@ public class ChatController {
         }
     }
 
+    private String describePendingAttachment() {
+        String size = formatBytes(pendingImageAttachment.data().length);
+        if (pendingUploadAttachment != null
+                && pendingUploadAttachment.data().length < pendingImageAttachment.data().length) {
+            size += " \u2192 " + formatBytes(pendingUploadAttachment.data().length) + " to upload";
+        }
+        return pendingImageAttachment.fileName() + " (" + size + ")";
+    }
+
     private String formatBytes(int sizeBytes) {
         if (sizeBytes < 1024) {
             return sizeBytes + " B";
@@ -630,7 +664,7 @@ public class ChatController {
         if (typedText.isEmpty() && imageAttachment == null) {
             return;
         }
-        if (inFlightRequest != null && !inFlightRequest.isDone()) {
+        if (inFlightRequest != null && !inFlightRequest.result().isDone()) {
             return;
         }
 
@@ -648,13 +682,16 @@ public class ChatController {
         pendingImageGenerationRequest = isImageGenerationRequest(typedText, imageAttachment, selectedMode);
         pendingGenerationLabelBase = pendingImageGenerationRequest ? IMAGE_GENERATING_LABEL : DEFAULT_GENERATING_LABEL;
 
-        CompletableFuture<Message> requestFuture = chatService.sendMessageAsync(
+        StreamingResponse streamingResponse = new StreamingResponse();
+        activeStreamingResponse = streamingResponse;
+        ChatService.ReplyHandle replyHandle = chatService.sendMessage(
                 requestConversation,
                 text,
                 imageAttachment,
-                selectedMode
+                selectedMode,
+                streamingResponse
         );
-        inFlightRequest = requestFuture;
+        inFlightRequest = replyHandle;
 
         for (int i = previousSize; i < requestConversation.getMessages().size(); i++) {
             HBox bubble = createBubble(requestConversation.getMessages().get(i));
@@ -672,9 +709,17 @@ public class ChatController {
         startGeneratingIndicator();
         scrollToBottom();
 
-        requestFuture.whenComplete((botMessage, error) -> Platform.runLater(() -> {
+        replyHandle.result().whenComplete((botMessage, error) -> Platform.runLater(() -> {
+            boolean streamed = streamingResponse.finish();
             Message responseMessage = botMessage;
-            if (error != null) {
+            if (replyHandle.isCancelled()) {
+                // Keep whatever was already streamed so the transcript matches what the user saw
+                String partial = streamingResponse.text();
+                responseMessage = new Message(
+                        Message.Sender.BOT,
+                        partial.isBlank() ? STOPPED_REPLY_NOTE : partial + "\n\n" + STOPPED_REPLY_NOTE
+                );
+            } else if (error != null) {
                 String errorMessage = error.getMessage() == null ? error.toString() : error.getMessage();
                 responseMessage = new Message(
                         Message.Sender.BOT,
@@ -688,21 +733,33 @@ public class ChatController {
                 );
             }
 
-            if (editTarget != null && error == null) {
+            if (editTarget != null && error == null && !replyHandle.isCancelled()) {
                 applyMinorEditResponse(editTarget, responseMessage);
                 inFlightRequest = null;
                 setComposerBusy(false);
                 return;
             }
 
+            String usageWarning = replyHandle.usageWarning();
+            if (usageWarning != null) {
+                showNotification(usageWarning, USAGE_WARNING_SECONDS);
+            }
+
             chatService.appendAssistantMessage(requestConversation, responseMessage);
-            animateAssistantResponse(responseMessage, () -> {
+            animateAssistantResponse(responseMessage, streamed, () -> {
                 inFlightRequest = null;
                 setComposerBusy(false);
             });
         }));
     }
 
+    private void stopGeneration() {
+        ChatService.ReplyHandle request = inFlightRequest;
+        if (request != null && !request.result().isDone()) {
+            request.cancel();
+        }
+    }
+
     private boolean isMinorEditRequest(String userText) {
         if (userText == null) {
             return false;
@@ -726,29 +783,7 @@ public class ChatController {
         if (selectedMode == ChatService.RequestMode.LEONARDO || selectedMode == ChatService.RequestMode.FREEPIK) {
             return true;
         }
-        if (userText == null || userText.isBlank()) {
-            return false;
-        }
-        String normalized = userText.toLowerCase(Locale.ROOT);
-        boolean mentionsVisual = containsAny(normalized,
-                "image", "photo", "picture", "art", "illustration", "logo", "icon", "poster", "wallpaper");
-        boolean mentionsCreate = containsAny(normalized,
-                "generate", "create", "make", "design", "draw", "render");
-        return containsAny(normalized,
-                "text to image", "image generation", "generate an image", "create an image", "make an image")
-                || (mentionsVisual && mentionsCreate);
-    }
-
-    private boolean containsAny(String text, String... terms) {
-        if (text == null || terms == null) {
-            return false;
-        }
-        for (String term : terms) {
-            if (term != null && !term.isBlank() && text.contains(term)) {
-                return true;
-            }
-        }
-        return false;
+        return PromptSignals.scan(userText).isImageGenerationPrompt();
     }
 
     private Message findLastAssistantMessage(Conversation targetConversation) {
@@ -855,6 +890,7 @@ public class ChatController {
         streamingActiveNode = null;
         streamingActiveVBox = null;
         streamingFinalizedCount = 0;
+        activeStreamingResponse = null;
         pendingImageGenerationRequest = false;
         pendingGenerationLabelBase = DEFAULT_GENERATING_LABEL;
     }
@@ -865,7 +901,7 @@ public class ChatController {
         clearPendingBotBubble();
     }
 
-    private void animateAssistantResponse(Message responseMessage, Runnable onComplete) {
+    private void animateAssistantResponse(Message responseMessage, boolean alreadyStreamed, Runnable onComplete) {
         stopGeneratingIndicator();
 
         if (responseMessage == null) {
@@ -900,7 +936,7 @@ public class ChatController {
             return;
         }
 
-        if (pendingImageGenerationRequest || MARKDOWN_IMAGE_PATTERN.matcher(fullText).find()) {
+        if (alreadyStreamed || pendingImageGenerationRequest || MARKDOWN_IMAGE_PATTERN.matcher(fullText).find()) {
             replacePendingBubbleWithFinal(responseMessage);
             if (onComplete != null) {
                 onComplete.run();
@@ -909,11 +945,7 @@ public class ChatController {
         }
 
         // Initialize streaming state
-        pendingBubbleContentBox.getChildren().clear();
-        streamingFinalizedCount = 0;
-        streamingActiveNode = null;
-        streamingActiveVBox = null;
-        streamingActiveIsCode = false;
+        resetStreamingRenderState();
 
         final int totalLength = fullText.length();
         final int[] cursor = {0};
@@ -942,6 +974,97 @@ public class ChatController {
         responseTypingTimeline.play();
     }
 
+    // ================= LIVE PROVIDER STREAMING =================
+    /**
+     * Collects deltas from the provider stream on the worker thread and renders them into the
+     * pending bubble on the FX thread, coalescing bursts into a single layout pass.
+     */
+    private final class StreamingResponse implements ChatService.StreamListener {
+        private final StringBuilder text = new StringBuilder();
+        private final AtomicBoolean renderQueued = new AtomicBoolean(false);
+        private boolean started;
+        private boolean finished;
+
+        @Override
+        public void onDelta(String delta) {
+            if (delta == null || delta.isEmpty()) {
+                return;
+            }
+            synchronized (text) {
+                text.append(delta);
+            }
+            queueRender();
+        }
+
+        @Override
+        public void onReset() {
+            synchronized (text) {
+                text.setLength(0);
+            }
+            queueRender();
+        }
+
+        private void queueRender() {
+            if (renderQueued.compareAndSet(false, true)) {
+                Platform.runLater(this::render);
+            }
+        }
+
+        private void render() {
+            renderQueued.set(false);
+            if (finished || activeStreamingResponse != this || pendingBubbleContentBox == null) {
+                return;
+            }
+            String snapshot;
+            synchronized (text) {
+                snapshot = text.toString();
+            }
+
+            if (snapshot.isEmpty()) {
+                if (started) {
+                    // A fallback attempt is starting over: show the generating indicator again.
+                    started = false;
+                    resetStreamingRenderState();
+                    if (pendingBotBubbleLabel != null) {
+                        pendingBubbleContentBox.getChildren().add(pendingBotBubbleLabel);
+                    }
+                    startGeneratingIndicator();
+                }
+                return;
+            }
+
+            if (!started) {
+                started = true;
+                stopGeneratingIndicator();
+                resetStreamingRenderState();
+            }
+            updateStreamingContent(snapshot, snapshot.length());
+            scrollToBottomNow();
+        }
+
+        private String text() {
+            synchronized (text) {
+                return text.toString();
+            }
+        }
+
+        /**
+         * Stops rendering further deltas and reports whether any streamed text reached the bubble.
+         */
+        private boolean finish() {
+            finished = true;
+            return started;
+        }
+    }
+
+    private void resetStreamingRenderState() {
+        pendingBubbleContentBox.getChildren().clear();
+        streamingFinalizedCount = 0;
+        streamingActiveNode = null;
+        streamingActiveVBox = null;
+        streamingActiveIsCode = false;
+    }
+
     // ================= STREAMING MARKDOWN RENDERER =================
     private void updateStreamingContent(String fullText, int upTo) {
         String partial = fullText.substring(0, upTo);
@@ -1187,6 +1310,7 @@ public class ChatController {
         VBox bubble = new VBox(6);
         bubble.getChildren().add(content);
         appendEditedIndicator(msg, bubble);
+        appendUsageIndicator(msg, bubble);
         bubble.getStyleClass().add("message-bubble");
         applyResponsiveMaxWidth(bubble);
 
@@ -1215,8 +1339,8 @@ public class ChatController {
         VBox bubbleWrapper = new VBox(2, bubble, copyRow);
         bubbleWrapper.getStyleClass().add("bubble-wrapper");
 
-        // Context menu: Copy + Ask about this
-        attachBubbleContextMenu(bubbleWrapper, msg.getContent());
+        // Context menu: Copy + Ask about this, and reply feedback for bot messages
+        attachBubbleContextMenu(bubbleWrapper, msg);
 
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
@@ -1280,8 +1404,43 @@ public class ChatController {
         bubbleContent.getChildren().add(previousContainer);
     }
 
+    private void appendUsageIndicator(Message msg, VBox bubbleContent) {
+        if (msg == null || bubbleContent == null || msg.getSender() != Message.Sender.BOT || !msg.hasUsage()) {
+            return;
+        }
+        if (!settingsManager.getBoolean("chat.showUsage", true)) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder(msg.getUsageProvider());
+        if (msg.getPromptTokens() >= 0) {
+            text.append(" \u00B7 ")
+                    .append(formatTokenCount(msg.getPromptTokens()))
+                    .append(" in / ")
+                    .append(formatTokenCount(msg.getCompletionTokens()))
+                    .append(" out tokens");
+        }
+        if (msg.getLatencyMs() >= 0) {
+            text.append(" \u00B7 ").append(String.format(Locale.ROOT, "%.1f s", msg.getLatencyMs() / 1000.0));
+        }
+
+        Label usageLabel = new Label(text.toString());
+        usageLabel.getStyleClass().add("message-usage-label");
+        HBox metaRow = new HBox(usageLabel);
+        metaRow.getStyleClass().add("message-meta-row");
+        bubbleContent.getChildren().add(metaRow);
+    }
+
+    private static String formatTokenCount(long tokens) {
+        if (tokens < 1000) {
+            return String.valueOf(Math.max(0, tokens));
+        }
+        return String.format(Locale.ROOT, tokens < 10_000 ? "%.1fk" : "%.0fk", tokens / 1000.0);
+    }
+
     // ================= ASK ABOUT SELECTION =================
-    private void attachBubbleContextMenu(VBox bubbleWrapper, String fullText) {
+    private void attachBubbleContextMenu(VBox bubbleWrapper, Message msg) {
+        String fullText = msg.getContent();
         ContextMenu contextMenu = new ContextMenu();
         MenuItem copyItem = new MenuItem("Copy");
         copyItem.setOnAction(e -> {
@@ -1304,6 +1463,18 @@ public class ChatController {
         });
 
         contextMenu.getItems().addAll(copyItem, askItem);
+        if (msg.getSender() == Message.Sender.BOT && msg.hasUsage()) {
+            MenuItem goodItem = new MenuItem();
+            goodItem.setOnAction(e -> rateReply(msg, 1));
+            MenuItem poorItem = new MenuItem();
+            poorItem.setOnAction(e -> rateReply(msg, -1));
+            contextMenu.getItems().addAll(new SeparatorMenuItem(), goodItem, poorItem);
+            // Labels follow the current verdict so a second click withdraws it
+            contextMenu.setOnShowing(e -> {
+                goodItem.setText(msg.getFeedback() > 0 ? "\u2713 Good reply" : "Good reply");
+                poorItem.setText(msg.getFeedback() < 0 ? "\u2713 Poor reply" : "Poor reply");
+            });
+        }
         contextMenu.getStyleClass().add("bubble-context-menu");
 
         // Event filter intercepts context-menu requests before child TextAreas handle them
@@ -1318,6 +1489,16 @@ public class ChatController {
         });
     }
 
+    private void rateReply(Message msg, int verdict) {
+        int next = msg.getFeedback() == verdict ? 0 : verdict;
+        if (!chatService.rateReply(msg, next)) {
+            return;
+        }
+        showNotification(next == 0
+                ? "Feedback removed"
+                : "\u2713 Feedback saved for " + msg.getUsageProvider());
+    }
+
     private String getSelectedTextFromBubble(VBox bubbleWrapper) {
         // Check code block and message text TextAreas for selected text
         for (Node child : bubbleWrapper.lookupAll("TextArea")) {
@@ -1560,6 +1741,7 @@ public class ChatController {
         }
 
         appendEditedIndicator(msg, bubble);
+        appendUsageIndicator(msg, bubble);
         bubble.getStyleClass().add("message-bubble");
 
         Region spacer = new Region();
@@ -1740,14 +1922,27 @@ public class ChatController {
 
     private Node createRemoteImageNode(String imageSource, String altText) {
         String caption = altText == null || altText.isBlank() ? "Generated image" : altText.trim();
+        // Generated images are usually downloaded while the reply animates; decode the shared bytes off
+        // the FX thread. Sources the prefetcher does not handle are still loaded by JavaFX directly.
+        CompletableFuture<Image> image = chatService.fetchGeneratedAsset(imageSource)
+                .thenApplyAsync(bytes -> new Image(new ByteArrayInputStream(bytes)))
+                .exceptionally(failure -> loadRemoteImage(imageSource));
+        return createImageNode(image, caption, true, imageSource);
+    }
+
+    private Image loadRemoteImage(String imageSource) {
         try {
-            return createImageNode(new Image(imageSource, true), caption, true, imageSource);
+            return new Image(imageSource, true);
         } catch (Exception ignored) {
-            return createImageNode(null, caption, true, imageSource);
+            return null;
         }
     }
 
     private Node createImageNode(Image image, String caption, boolean remoteImage, String imageSource) {
+        return createImageNode(CompletableFuture.completedFuture(image), caption, remoteImage, imageSource);
+    }
+
+    private Node createImageNode(CompletableFuture<Image> pendingImage, String caption, boolean remoteImage, String imageSource) {
         VBox container = new VBox(6);
         container.getStyleClass().add("message-image-block");
         applyResponsiveMaxWidth(container);
@@ -1770,12 +1965,12 @@ public class ChatController {
         installImageCopyBehavior(frame, imageView, caption, imageSource);
 
         frame.getChildren().addAll(placeholder, imageView);
-        refreshImageNodeState(image, imageView, placeholder, remoteImage);
-        if (image != null) {
-            image.progressProperty().addListener((obs, oldValue, newValue) ->
-                    refreshImageNodeState(image, imageView, placeholder, remoteImage));
-            image.errorProperty().addListener((obs, oldValue, newValue) ->
-                    refreshImageNodeState(image, imageView, placeholder, remoteImage));
+        if (pendingImage.isDone()) {
+            bindImageNodeState(pendingImage.getNow(null), imageView, placeholder, remoteImage);
+        } else {
+            refreshImageNodeState(null, imageView, placeholder, remoteImage);
+            pendingImage.whenComplete((image, error) -> Platform.runLater(() ->
+                    bindImageNodeState(error == null ? image : null, imageView, placeholder, remoteImage)));
         }
 
         container.getChildren().add(frame);
@@ -1856,6 +2051,18 @@ public class ChatController {
         return () -> downloadRemoteImageToDisk(imageSource, suggestedFileName);
     }
 
+    private void bindImageNodeState(Image image, ImageView imageView, Label placeholder, boolean remoteImage) {
+        // Without an image there is nothing left to load, even for a remote source.
+        boolean loading = remoteImage && image != null;
+        refreshImageNodeState(image, imageView, placeholder, loading);
+        if (image != null) {
+            image.progressProperty().addListener((obs, oldValue, newValue) ->
+                    refreshImageNodeState(image, imageView, placeholder, loading));
+            image.errorProperty().addListener((obs, oldValue, newValue) ->
+                    refreshImageNodeState(image, imageView, placeholder, loading));
+        }
+    }
+
     private void refreshImageNodeState(Image image, ImageView imageView, Label placeholder, boolean remoteImage) {
         if (imageView == null || placeholder == null) {
             return;
@@ -2037,20 +2244,11 @@ public class ChatController {
             return;
         }
 
-        CompletableFuture.runAsync(() -> {
+        chatService.fetchGeneratedAsset(imageSource).thenAcceptAsync(bytes -> {
             try {
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(imageSource))
-                        .timeout(java.time.Duration.ofSeconds(60))
-                        .GET()
-                        .build();
-                HttpResponse<byte[]> response = imageDownloadClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-                if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                    throw new IOException("HTTP " + response.statusCode());
-                }
-                Files.write(targetFile.toPath(), response.body());
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
+                Files.write(targetFile.toPath(), bytes);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex.getMessage(), ex);
             }
         }).whenComplete((ignored, error) -> Platform.runLater(() -> {
             if (error != null) {
@@ -2230,16 +2428,8 @@ public class ChatController {
 
     private Image downloadImageForClipboard(String imageSource) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(imageSource))
-                    .timeout(java.time.Duration.ofSeconds(20))
-                    .GET()
-                    .build();
-            HttpResponse<byte[]> response = imageDownloadClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                return null;
-            }
-            return new Image(new ByteArrayInputStream(response.body()));
+            byte[] bytes = chatService.fetchGeneratedAsset(imageSource).get(20, TimeUnit.SECONDS);
+            return new Image(new ByteArrayInputStream(bytes));
         } catch (Exception ignored) {
             return null;
         }
@@ -3253,6 +3443,77 @@ public class ChatController {
         showNotification("\u2713 Chat copied as Markdown");
     }
 
+    @FXML
+    private void copyUsageReport() {
+        if (conversation == null) {
+            showNotification("Nothing to copy");
+            return;
+        }
+        ChatService.ConversationUsage usage = chatService.getConversationUsage(conversation);
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Usage: ").append(conversation.getTitle()).append("\n\n");
+        sb.append("- Replies: ").append(usage.replies()).append("\n");
+        sb.append("- Prompt tokens: ").append(usage.promptTokens()).append("\n");
+        sb.append("- Completion tokens: ").append(usage.completionTokens()).append("\n");
+        sb.append("- Provider time: ").append(String.format(Locale.ROOT, "%.1f s", usage.latencyMs() / 1000.0)).append("\n");
+        if (usage.lastPromptTokens() >= 0) {
+            sb.append("- Latest prompt: ").append(usage.lastPromptTokens()).append(" tokens\n");
+        }
+
+        sb.append("\n## Providers this session\n\n");
+        sb.append("| Provider | Calls | Prompt tokens | Completion tokens | Avg latency |\n");
+        sb.append("|---|---|---|---|---|\n");
+        for (ChatService.ProviderUsage provider : chatService.getProviderUsage()) {
+            sb.append("| ").append(provider.provider())
+                    .append(" | ").append(provider.calls())
+                    .append(provider.reportedCalls() < provider.calls()
+                            ? " (" + (provider.calls() - provider.reportedCalls()) + " without token counts)"
+                            : "")
+                    .append(" | ").append(provider.promptTokens())
+                    .append(" | ").append(provider.completionTokens())
+                    .append(" | ").append(String.format(Locale.ROOT, "%.1f s", provider.averageLatencyMs() / 1000.0))
+                    .append(" |\n");
+        }
+
+        ChatService.ResponseCacheStats cacheStats = chatService.getResponseCacheStats();
+        long cacheLookups = cacheStats.memoryHits() + cacheStats.diskHits() + cacheStats.misses();
+        if (cacheLookups > 0) {
+            sb.append("\n## Response cache this session\n\n");
+            sb.append("- Memory hits: ").append(cacheStats.memoryHits()).append("\n");
+            sb.append("- Disk hits: ").append(cacheStats.diskHits()).append("\n");
+            sb.append("- Misses: ").append(cacheStats.misses()).append("\n");
+            sb.append("- Hit rate: ").append(String.format(Locale.ROOT, "%.0f%%", cacheStats.hitRate() * 100)).append("\n");
+        }
+
+        long setupSavedMillis = chatService.getConnectionSetupSavedMillis();
+        if (setupSavedMillis > 0) {
+            sb.append("\n## Connection warm-up\n\n");
+            sb.append("- Setup time saved on first requests: ").append(setupSavedMillis).append(" ms\n");
+        }
+
+        List<ChatService.ProviderLatencyStats> latencyStats = chatService.getProviderLatencyStats();
+        if (!latencyStats.isEmpty()) {
+            // The numbers Best mode routes by; weight is the decayed count of recent calls behind them.
+            sb.append("\n## Routing statistics\n\n");
+            sb.append("| Provider | Prompt type | p50 | p95 | First output p50 | Success rate | Weight |\n");
+            sb.append("|---|---|---|---|---|---|---|\n");
+            for (ChatService.ProviderLatencyStats stats : latencyStats) {
+                sb.append("| ").append(stats.provider())
+                        .append(" | ").append(stats.intent())
+                        .append(" | ").append(stats.p50Millis()).append(" ms")
+                        .append(" | ").append(stats.p95Millis()).append(" ms")
+                        .append(" | ").append(stats.firstOutputP50Millis()).append(" ms")
+                        .append(" | ").append(String.format(Locale.ROOT, "%.0f%%", stats.successRate() * 100))
+                        .append(" | ").append(String.format(Locale.ROOT, "%.1f", stats.weight()))
+                        .append(" |\n");
+            }
+        }
+        ClipboardContent cc = new ClipboardContent();
+        cc.putString(sb.toString());
+        Clipboard.getSystemClipboard().setContent(cc);
+        showNotification("\u2713 Usage report copied");
+    }
+
     @FXML
     private void copyAsText() {
         if (conversation == null || conversation.getMessages().isEmpty()) {
@@ -3367,6 +3628,10 @@ public class ChatController {
     }
 
     private void showNotification(String message) {
+        showNotification(message, 2);
+    }
+
+    private void showNotification(String message, double visibleSeconds) {
         Platform.runLater(() -> {
             if (exportToastBanner == null || exportToastLabel == null) {
                 return;
@@ -3389,7 +3654,7 @@ public class ChatController {
             exportToastBanner.setManaged(true);
             exportToastBanner.setVisible(true);
 
-            exportToastTimer = new PauseTransition(Duration.seconds(2));
+            exportToastTimer = new PauseTransition(Duration.seconds(visibleSeconds));
             exportToastTimer.setOnFinished(event -> hideNotificationBanner(false));
             exportToastTimer.playFromStart();
         });
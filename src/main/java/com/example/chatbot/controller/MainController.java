@@ -175,6 +175,9 @@ public class MainController {
         Conversation first = chatService.createConversation();
         chatList.getItems().add(first);
         chatList.getSelectionModel().select(first);
+
+        // ---- Provider Connections ----
+        chatService.warmUpConnections();
     }
 
     private void loadTitleBarIcon() {
@@ -205,6 +208,9 @@ public class MainController {
             // Listen for window bounds changes to detect pseudo-maximized state
             stage.widthProperty().addListener((obs, oldValue, newValue) -> updateWindowChromeStateDeferred());
             stage.heightProperty().addListener((obs, oldValue, newValue) -> updateWindowChromeStateDeferred());
+            // Keep provider connections warm only while the user is working in the window
+            stage.focusedProperty().addListener((obs, oldValue, focused) -> chatService.setConnectionKeepAlive(focused));
+            chatService.setConnectionKeepAlive(stage.isFocused());
             updateWindowChromeStateDeferred();
         }
     }
@@ -212,6 +212,7 @@ public class SettingsDialogController {
                 new String[]{"Concise", "Detailed", "Step-by-step"},
                 settings.getString("chat.responseStyle", "Detailed")));
         page.getChildren().add(createToggleRow("Enable streaming responses", "chat.streamingEnabled", settings.getBoolean("chat.streamingEnabled", true)));
+        page.getChildren().add(createToggleRow("Show token usage under replies", "chat.showUsage", settings.getBoolean("chat.showUsage", true)));
         page.getChildren().add(createToggleRow("Auto-scroll to newest message", "chat.autoScroll", settings.getBoolean("chat.autoScroll", true)));
         page.getChildren().add(createToggleRow("Enable chat history", "chat.historyEnabled", settings.getBoolean("chat.historyEnabled", true)));
         return page;
@@ -304,6 +305,11 @@ public class SettingsDialogController {
         page.getChildren().add(tempRow);
 
         page.getChildren().add(createSpinnerRow("Max tokens", "ai.maxTokens", 256, 128000, settings.getInt("ai.maxTokens", 4096)));
+        page.getChildren().add(createToggleRow("Hedge slow providers in Best mode", "ai.hedging.enabled", settings.getBoolean("ai.hedging.enabled", false)));
+        page.getChildren().add(createToggleRow("Reuse replies for identical chats", "ai.responseCache.enabled", settings.getBoolean("ai.responseCache.enabled", false)));
+        page.getChildren().add(createToggleRow("Generate visual aids in parallel with the text reply (faster; image is based on the prompt only)", "ai.supportingImage.pipelined", settings.getBoolean("ai.supportingImage.pipelined", true)));
+        page.getChildren().add(createToggleRow("Route Best mode by measured provider speed", "ai.adaptiveRouting.enabled", settings.getBoolean("ai.adaptiveRouting.enabled", true)));
+        page.getChildren().add(createToggleRow("Shrink large image attachments before upload", "ai.imageUpload.optimize", settings.getBoolean("ai.imageUpload.optimize", true)));
 
         // System prompt
         VBox promptBox = new VBox(4);
@@ -21,6 +21,11 @@ public class Message {
     private final byte[] imageData;
     private final List<String> editHistory = new ArrayList<>();
     private LocalDateTime lastEditedAt;
+    private String usageProvider;
+    private int promptTokens = -1;
+    private int completionTokens = -1;
+    private long latencyMs = -1;
+    private int feedback;
 
     // ================= CONSTRUCTOR =================
     public Message(Sender sender, String content) {
@@ -91,6 +96,48 @@ public class Message {
         return lastEditedAt;
     }
 
+    public boolean hasUsage() {
+        return usageProvider != null;
+    }
+
+    public String getUsageProvider() {
+        return usageProvider;
+    }
+
+    /**
+     * Prompt tokens the provider reported for this reply, or -1 when it reported none.
+     */
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public int getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+
+    /**
+     * The user's verdict on this reply: 1 for good, -1 for poor, 0 when not rated.
+     */
+    public int getFeedback() {
+        return feedback;
+    }
+
+    // ================= MUTATION =================
+    public void recordUsage(String provider, int promptTokens, int completionTokens, long latencyMs) {
+        this.usageProvider = provider;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.latencyMs = latencyMs;
+    }
+
+    public void recordFeedback(int feedback) {
+        this.feedback = Integer.signum(feedback);
+    }
+
     public boolean editContent(String updatedContent) {
         String nextValue = updatedContent == null ? "" : updatedContent;
         if (Objects.equals(content, nextValue)) {
@@ -0,0 +1,267 @@
+package com.example.chatbot.service;
+
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side rate limiting for provider API keys. The limits reported by the provider (Retry-After
+ * and the x-ratelimit-* headers) block a key until its window resets, and when a requests-per-minute
+ * budget is configured each key also has a token bucket refilled at that rate. Ready keys are handed out by
+ * headroom, so load spreads across the pool instead of draining the first key in the list.
+ */
+final class ApiKeyPool {
+    private static final long DEFAULT_RATE_LIMIT_BACKOFF_MS = 10_000L;
+    private static final long MAX_BLOCK_MS = 10 * 60_000L;
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final Map<String, KeyState> keys = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    ApiKeyPool() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * {@code clock} returns wall-clock milliseconds; Retry-After dates are compared against it.
+     */
+    ApiKeyPool(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a request slot from the ready key with the most headroom. Returns null when every key
+     * in {@code candidates} is blocked or out of budget; see {@link #millisUntilReady}.
+     */
+    String acquire(String providerId, Collection<String> candidates, int requestsPerMinute) {
+        long now = clock.getAsLong();
+        List<Candidate> ready = new ArrayList<>();
+        for (String apiKey : candidates) {
+            KeyState state = state(providerId, apiKey);
+            double headroom = state.headroom(now, requestsPerMinute);
+            if (headroom >= 0) {
+                ready.add(new Candidate(apiKey, state, headroom));
+            }
+        }
+        ready.sort(Comparator.comparingDouble(Candidate::headroom).reversed());
+        for (Candidate candidate : ready) {
+            // Another request may have taken the last slot since headroom() was read.
+            if (candidate.state().tryTake(now, requestsPerMinute)) {
+                return candidate.apiKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Milliseconds until the first of {@code candidates} can take a request again.
+     */
+    long millisUntilReady(String providerId, Collection<String> candidates, int requestsPerMinute) {
+        long now = clock.getAsLong();
+        long wait = Long.MAX_VALUE;
+        for (String apiKey : candidates) {
+            wait = Math.min(wait, state(providerId, apiKey).millisUntilReady(now, requestsPerMinute));
+        }
+        return wait == Long.MAX_VALUE ? 0 : wait;
+    }
+
+    /**
+     * Updates a key from the rate-limit headers of a provider response. A 429 blocks the key for
+     * Retry-After, the reported reset window, or a short default when the provider gives neither.
+     */
+    void observe(String providerId, String apiKey, int statusCode, HttpHeaders headers) {
+        long now = clock.getAsLong();
+        KeyState state = state(providerId, apiKey);
+
+        long remainingRequests = headerLong(headers, "x-ratelimit-remaining-requests");
+        long remainingTokens = headerLong(headers, "x-ratelimit-remaining-tokens");
+        long resetRequests = headerDuration(headers, "x-ratelimit-reset-requests");
+        long resetTokens = headerDuration(headers, "x-ratelimit-reset-tokens");
+        state.updateLimits(
+                headerLong(headers, "x-ratelimit-limit-requests"),
+                remainingRequests,
+                headerLong(headers, "x-ratelimit-limit-tokens"),
+                remainingTokens
+        );
+
+        long blockFor = 0;
+        if (remainingRequests == 0 && resetRequests > 0) {
+            blockFor = resetRequests;
+        }
+        if (remainingTokens == 0 && resetTokens > 0) {
+            blockFor = Math.max(blockFor, resetTokens);
+        }
+        if (statusCode == 429) {
+            long retryAfter = retryAfterMillis(headers, now);
+            if (retryAfter > 0) {
+                blockFor = retryAfter;
+            } else if (blockFor == 0) {
+                blockFor = Math.max(DEFAULT_RATE_LIMIT_BACKOFF_MS, Math.max(resetRequests, resetTokens));
+            }
+        }
+        if (blockFor > 0) {
+            state.blockUntil(now + Math.min(blockFor, MAX_BLOCK_MS));
+        }
+    }
+
+    private KeyState state(String providerId, String apiKey) {
+        // Same hashing as the circuit breaker so raw keys never sit in the map.
+        return keys.computeIfAbsent(ProviderCircuitBreaker.keyCircuit(providerId, apiKey), id -> new KeyState());
+    }
+
+    private static long retryAfterMillis(HttpHeaders headers, long now) {
+        long millis = headerLong(headers, "retry-after-ms");
+        if (millis > 0) {
+            return millis;
+        }
+        String value = headers.firstValue("retry-after").orElse("").trim();
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return (long) (Double.parseDouble(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // Retry-After may also be an HTTP date.
+        }
+        try {
+            return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - now);
+        } catch (DateTimeParseException ignored) {
+            return 0;
+        }
+    }
+
+    private static long headerLong(HttpHeaders headers, String name) {
+        try {
+            return headers.firstValueAsLong(name).orElse(-1);
+        } catch (NumberFormatException ignored) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses reset windows such as "7.66s", "2m59.56s" or "120ms"; a bare number is seconds.
+     */
+    static long headerDuration(HttpHeaders headers, String name) {
+        String value = headers.firstValue(name).orElse("").trim().toLowerCase(Locale.ROOT);
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return (long) (Double.parseDouble(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // Fall through to the unit-suffixed form.
+        }
+        Matcher matcher = DURATION_PART.matcher(value);
+        double millis = 0;
+        while (matcher.find()) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+        }
+        return (long) Math.ceil(millis);
+    }
+
+    private record Candidate(String apiKey, KeyState state, double headroom) {
+    }
+
+    private static final class KeyState {
+        private double tokens = -1;
+        private long lastRefill;
+        private long blockedUntil;
+        private long limitRequests = -1;
+        private long remainingRequests = -1;
+        private long limitTokens = -1;
+        private long remainingTokens = -1;
+
+        /**
+         * Fraction of budget left (0.0 - 1.0), or -1 when the key cannot take a request right now.
+         */
+        private synchronized double headroom(long now, int requestsPerMinute) {
+            refill(now, requestsPerMinute);
+            if (now < blockedUntil || (requestsPerMinute > 0 && tokens < 1)) {
+                return -1;
+            }
+            double headroom = requestsPerMinute > 0 ? tokens / requestsPerMinute : 1.0;
+            if (limitRequests > 0 && remainingRequests >= 0) {
+                headroom = Math.min(headroom, (double) remainingRequests / limitRequests);
+            }
+            if (limitTokens > 0 && remainingTokens >= 0) {
+                headroom = Math.min(headroom, (double) remainingTokens / limitTokens);
+            }
+            return headroom;
+        }
+
+        private synchronized boolean tryTake(long now, int requestsPerMinute) {
+            refill(now, requestsPerMinute);
+            if (now < blockedUntil) {
+                return false;
+            }
+            if (requestsPerMinute > 0) {
+                if (tokens < 1) {
+                    return false;
+                }
+                tokens -= 1;
+            }
+            if (remainingRequests > 0) {
+                remainingRequests--;
+            }
+            return true;
+        }
+
+        private synchronized long millisUntilReady(long now, int requestsPerMinute) {
+            refill(now, requestsPerMinute);
+            long wait = Math.max(0, blockedUntil - now);
+            if (requestsPerMinute > 0 && tokens < 1) {
+                wait = Math.max(wait, (long) Math.ceil((1 - tokens) * 60_000.0 / requestsPerMinute));
+            }
+            return wait;
+        }
+
+        private synchronized void updateLimits(long limitRequests, long remainingRequests,
+                                               long limitTokens, long remainingTokens) {
+            if (limitRequests > 0) {
+                this.limitRequests = limitRequests;
+            }
+            if (remainingRequests >= 0) {
+                this.remainingRequests = remainingRequests;
+            }
+            if (limitTokens > 0) {
+                this.limitTokens = limitTokens;
+            }
+            if (remainingTokens >= 0) {
+                this.remainingTokens = remainingTokens;
+            }
+        }
+
+        private synchronized void blockUntil(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+
+        private void refill(long now, int requestsPerMinute) {
+            if (requestsPerMinute <= 0) {
+                return;
+            }
+            if (tokens < 0) {
+                tokens = requestsPerMinute;
+            } else {
+                tokens = Math.min(requestsPerMinute, tokens + (now - lastRefill) * requestsPerMinute / 60_000.0);
+            }
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.chatbot.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads generated assets once and shares the bytes. A download starts as soon as a provider hands
+ * back an asset URL, while the reply is still being rendered, and the chat bubble, clipboard copy and
+ * save-to-disk all read the same bytes instead of fetching the URL again each time. Finished downloads
+ * are kept least recently used first up to a byte budget; failed ones are forgotten so the next request
+ * retries.
+ */
+final class AssetPrefetcher {
+    private static final long MAX_CACHED_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_ASSET_BYTES = 25L * 1024 * 1024;
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient;
+    private final Map<String, CompletableFuture<byte[]>> assets = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    AssetPrefetcher(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Bytes of the asset at {@code url}, from the cache or from the download already in flight when
+     * there is one. The array is shared between callers and must not be modified. Cancelling the
+     * returned future does not stop the shared download.
+     */
+    CompletableFuture<byte[]> fetch(String url) {
+        URI uri = toHttpUri(url);
+        if (uri == null) {
+            return CompletableFuture.failedFuture(new IOException("Not a downloadable asset URL: " + url));
+        }
+        String key = uri.toString();
+        synchronized (assets) {
+            CompletableFuture<byte[]> existing = assets.get(key);
+            if (existing != null) {
+                return existing.copy();
+            }
+            CompletableFuture<byte[]> download = download(uri);
+            assets.put(key, download);
+            download.whenComplete((bytes, failure) -> onDownloadFinished(key, download, bytes));
+            return download.copy();
+        }
+    }
+
+    private CompletableFuture<byte[]> download(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(DOWNLOAD_TIMEOUT)
+                .GET()
+                .build();
+        HttpResponse.BodyHandler<byte[]> handler = responseInfo -> {
+            long declaredLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (declaredLength > MAX_ASSET_BYTES) {
+                // Not worth holding in memory; fail without reading the body.
+                return HttpResponse.BodySubscribers.replacing(null);
+            }
+            return HttpResponse.BodySubscribers.ofByteArray();
+        };
+        return httpClient.sendAsync(request, handler).thenApply(response -> {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            if (response.body() == null || response.body().length > MAX_ASSET_BYTES) {
+                throw new IllegalStateException("Asset is larger than " + MAX_ASSET_BYTES / (1024 * 1024) + " MB");
+            }
+            return response.body();
+        });
+    }
+
+    private void onDownloadFinished(String key, CompletableFuture<byte[]> download, byte[] bytes) {
+        synchronized (assets) {
+            if (bytes == null) {
+                assets.remove(key, download);
+                return;
+            }
+            if (assets.get(key) != download) {
+                return;
+            }
+            cachedBytes += bytes.length;
+            Iterator<CompletableFuture<byte[]>> eldestFirst = assets.values().iterator();
+            while (cachedBytes > MAX_CACHED_BYTES && eldestFirst.hasNext()) {
+                CompletableFuture<byte[]> candidate = eldestFirst.next();
+                if (candidate == download || !candidate.isDone()) {
+                    continue;
+                }
+                cachedBytes -= candidate.join().length;
+                eldestFirst.remove();
+            }
+        }
+    }
+
+    private static URI toHttpUri(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(url.trim());
+            String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+            return (scheme.equals("https") || scheme.equals("http")) && uri.getHost() != null ? uri : null;
+        } catch (IllegalArgumentException invalid) {
+            return null;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import java.util.Map;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -15,22 +18,43 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.OptionalDouble;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * In-memory chat service with provider routing and API key failover.
@@ -49,14 +73,18 @@ public class ChatService {
     private static final String DEFAULT_FREEPIK_MODEL = "z-image";
     private static final String DEFAULT_FREEPIK_VIDEO_MODEL = "kling-v3-omni-std";
     private static final String APP_PROPERTIES_FILE = "app.properties";
+    // -Dcortex.appProperties=/path/to/app.properties replaces the lookup below (load tests, scripted runs).
+    private static final String APP_PROPERTIES_OVERRIDE_PROPERTY = "cortex.appProperties";
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(90);
-    private static final int LEONARDO_POLL_ATTEMPTS = 8;
-    private static final long LEONARDO_POLL_DELAY_MS = 1100;
-    private static final int FREEPIK_POLL_ATTEMPTS = 12;
-    private static final long FREEPIK_POLL_DELAY_MS = 1200;
-    private static final int FREEPIK_VIDEO_POLL_ATTEMPTS = 40;
-    private static final long FREEPIK_VIDEO_POLL_DELAY_MS = 2000;
-    private static final Pattern HTTP_URL_PATTERN = Pattern.compile("https?://[^\"\\\\\\s]+");
+    private static final GenerationPoller.Schedule LEONARDO_POLL_SCHEDULE = new GenerationPoller.Schedule(400, 2500, 10_000);
+    private static final GenerationPoller.Schedule FREEPIK_POLL_SCHEDULE = new GenerationPoller.Schedule(400, 3000, 15_000);
+    private static final int HEDGE_MAX_PARALLEL_ATTEMPTS = 2;
+    private static final double HEDGE_MIN_LATENCY_WEIGHT = 8;
+    private static final long HEDGE_MIN_DELAY_MS = 250;
+    private static final int MIN_PROMPT_BUDGET_TOKENS = 1024;
+    private static final double FEEDBACK_STEP = 0.9;
+    private static final int MAX_FEEDBACK_POINTS = 5;
+    private static final GenerationPoller.Schedule FREEPIK_VIDEO_POLL_SCHEDULE = new GenerationPoller.Schedule(1000, 6000, 90_000);
 
     private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
             "a", "an", "and", "are", "as", "at", "be", "but", "by",
@@ -90,15 +118,29 @@ public class ChatService {
             """;
 
     private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
             .connectTimeout(Duration.ofSeconds(20))
             .build();
-    private final ExecutorService apiExecutor = Executors.newFixedThreadPool(2, runnable -> {
-        Thread thread = new Thread(runnable);
-        thread.setName("openai-api-worker");
-        thread.setDaemon(true);
-        return thread;
-    });
+    private final ExecutorService apiExecutor = createApiExecutor();
     private final SettingsManager settingsManager = SettingsManager.getInstance();
+    private final ProviderStats providerStats = new ProviderStats(resolveCortexFile("provider-stats.json"));
+    private final ProviderCircuitBreaker circuitBreaker = new ProviderCircuitBreaker();
+    private final ApiKeyPool keyPool = new ApiKeyPool();
+    private final GenerationPoller generationPoller = new GenerationPoller(httpClient);
+    private final AtomicLong configVersion = new AtomicLong();
+    private final AtomicBoolean configWatchStarted = new AtomicBoolean();
+    private volatile ConfigSnapshot configSnapshot;
+    private final ResponseCache responseCache = new ResponseCache(resolveCortexFile("response-cache"));
+    private final MessageFragmentCache fragmentCache = new MessageFragmentCache(ChatService::jsonEscape);
+    private final ConnectionWarmer connectionWarmer = new ConnectionWarmer(httpClient, this::configuredProviderBaseUrls);
+    private final ImageUploadPreparer imageUploadPreparer = new ImageUploadPreparer();
+    private final AssetPrefetcher assetPrefetcher = new AssetPrefetcher(httpClient);
+    private final RequestScheduler requestScheduler = new RequestScheduler(
+            apiExecutor,
+            () -> settingsManager.getInt("ai.scheduler.maxConcurrentRequests", 6)
+    );
+    private final ProviderAdmission providerAdmission = new ProviderAdmission();
+    private final UsageLedger usageLedger = new UsageLedger();
 
     public record ImageAttachment(String fileName, String mimeType, byte[] data) {
         public ImageAttachment {
@@ -116,6 +158,158 @@ public class ChatService {
         }
     }
 
+    /**
+     * Receives incremental assistant output while a streaming provider call is in flight.
+     * Callbacks arrive on the API worker thread.
+     */
+    public interface StreamListener {
+        void onDelta(String delta);
+
+        /**
+         * Called when a partially streamed attempt failed and the reply starts over with another key or provider.
+         */
+        default void onReset() {
+        }
+    }
+
+    /**
+     * Response cache counters since startup. Memory and disk hits are counted separately.
+     */
+    public record ResponseCacheStats(long memoryHits, long diskHits, long misses) {
+        public double hitRate() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups == 0 ? 0.0 : (double) (memoryHits + diskHits) / lookups;
+        }
+    }
+
+    /**
+     * Response bytes received from providers since startup, before and after gzip decoding.
+     */
+    public record TransferStats(long responses, long compressedResponses, long wireBytes, long decodedBytes) {
+        public long savedBytes() {
+            return Math.max(0, decodedBytes - wireBytes);
+        }
+    }
+
+    /**
+     * Tokens and provider time spent on one conversation's replies since startup. Token counts cover
+     * only replies whose provider reported usage; {@code lastPromptTokens} is -1 until one did.
+     */
+    public record ConversationUsage(int replies,
+                                    long promptTokens,
+                                    long completionTokens,
+                                    long latencyMs,
+                                    int lastPromptTokens) {
+    }
+
+    /**
+     * Calls, reported tokens and total latency per provider since startup. Image and video providers
+     * report no tokens, so {@code reportedCalls} can be lower than {@code calls}.
+     */
+    public record ProviderUsage(String provider,
+                                int calls,
+                                int reportedCalls,
+                                long promptTokens,
+                                long completionTokens,
+                                long latencyMs) {
+        public long averageLatencyMs() {
+            return calls == 0 ? 0 : latencyMs / calls;
+        }
+    }
+
+    /**
+     * Recent latency and success rate of one provider for one kind of prompt. Older calls count less,
+     * so {@code weight} is a decayed call count rather than a total.
+     */
+    public record ProviderLatencyStats(String provider,
+                                       String intent,
+                                       long p50Millis,
+                                       long p95Millis,
+                                       long firstOutputP50Millis,
+                                       long firstOutputP95Millis,
+                                       double successRate,
+                                       double weight) {
+    }
+
+    /**
+     * A reply in progress. Cancelling interrupts the request's worker thread, which aborts the HTTP
+     * exchange in flight and skips the remaining key and provider attempts. It also stops any generation
+     * job still being polled. Cancelling {@link #result()} directly has the same effect.
+     */
+    public static final class ReplyHandle {
+        private final CompletableFuture<Message> result = new CompletableFuture<>();
+        private final RequestContext context;
+        private Thread worker;
+
+        private ReplyHandle(RequestContext context) {
+            this.context = context;
+            result.whenComplete((message, failure) -> {
+                if (result.isCancelled()) {
+                    cancel();
+                }
+            });
+        }
+
+        public CompletableFuture<Message> result() {
+            return result;
+        }
+
+        public boolean isCancelled() {
+            return context.cancelled();
+        }
+
+        /**
+         * Display name of the provider that produced the reply text, or null while running or after a failure.
+         */
+        public String provider() {
+            return context.servedBy();
+        }
+
+        /**
+         * Set when this reply showed the conversation's prompt growing fast; null otherwise.
+         */
+        public String usageWarning() {
+            return context.usageWarning();
+        }
+
+        public void cancel() {
+            context.cancel();
+            result.cancel(false);
+            synchronized (this) {
+                if (worker != null) {
+                    worker.interrupt();
+                }
+            }
+        }
+
+        private void run(Supplier<CompletableFuture<Message>> reply) {
+            synchronized (this) {
+                if (context.cancelled()) {
+                    return;
+                }
+                worker = Thread.currentThread();
+            }
+            try {
+                // Generation jobs hand back a pending reply; the worker is free while they are polled.
+                reply.get().whenComplete((message, failure) -> {
+                    if (failure == null) {
+                        result.complete(message);
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                });
+            } catch (Throwable failure) {
+                result.completeExceptionally(failure);
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                    // Pooled threads are reused; a late cancel must not leak into the next task.
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
     public enum RequestMode {
         BEST,
         GROQ,
@@ -125,7 +319,27 @@ public class ChatService {
     }
 
     public ChatService() {
-        // Configuration is resolved lazily per request so Settings updates take effect immediately.
+        // Configuration is resolved lazily and re-resolved whenever Settings or app.properties change.
+    }
+
+    /**
+     * Provider calls block on network I/O for seconds at a time, so each request gets its own thread
+     * instead of queueing behind a small fixed pool: a virtual thread when the runtime supports them
+     * (Java 21+), otherwise a cached daemon thread that is reclaimed after a minute idle. Generation jobs
+     * give their thread back once submitted; {@link GenerationPoller} waits for them without one.
+     */
+    private static ExecutorService createApiExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException unsupported) {
+            AtomicInteger threadCounter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("openai-api-worker-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     // ================= CONVERSATION API =================
@@ -152,6 +366,26 @@ public class ChatService {
                                                        String text,
                                                        ImageAttachment imageAttachment,
                                                        RequestMode requestMode) {
+        return sendMessageAsync(conv, text, imageAttachment, requestMode, null);
+    }
+
+    public CompletableFuture<Message> sendMessageAsync(Conversation conv,
+                                                       String text,
+                                                       ImageAttachment imageAttachment,
+                                                       RequestMode requestMode,
+                                                       StreamListener streamListener) {
+        return sendMessage(conv, text, imageAttachment, requestMode, streamListener).result();
+    }
+
+    /**
+     * Same as {@link #sendMessageAsync(Conversation, String, ImageAttachment, RequestMode, StreamListener)},
+     * but returns a handle the caller can use to stop the reply.
+     */
+    public ReplyHandle sendMessage(Conversation conv,
+                                   String text,
+                                   ImageAttachment imageAttachment,
+                                   RequestMode requestMode,
+                                   StreamListener streamListener) {
         if (shouldAutoRenameConversation(conv)) {
             conv.setTitle(buildTitleFromUserText(text));
             conv.setTitleFinalized(true);
@@ -170,10 +404,147 @@ public class ChatService {
         List<Message> historySnapshot = new ArrayList<>(conv.getMessages());
 
         RequestMode effectiveMode = requestMode == null ? RequestMode.BEST : requestMode;
-        return CompletableFuture.supplyAsync(
-                () -> requestAssistantReply(historySnapshot, imageAttachment, effectiveMode),
-                apiExecutor
+        RequestContext context = new RequestContext(
+                streamListener,
+                settingsManager.getBoolean("chat.streamingEnabled", true)
         );
+        ReplyHandle handle = new ReplyHandle(context);
+        requestScheduler.submit(RequestScheduler.Lane.CONVERSATION, conv, () -> handle.run(
+                () -> requestAssistantReply(historySnapshot, imageAttachment, effectiveMode, context)
+                        .thenApply(reply -> recordUsage(conv, reply, context))
+        ));
+        return handle;
+    }
+
+    /**
+     * Starts shrinking an attachment for upload in the background. The send reuses the result, so calling
+     * this when the image is attached takes the work off the request path. Completes with the attachment
+     * as it will be uploaded, which is {@code attachment} itself when optimizing is off or would not help.
+     */
+    public CompletableFuture<ImageAttachment> prepareImageAttachment(ImageAttachment attachment) {
+        if (!settingsManager.getBoolean("ai.imageUpload.optimize", true)) {
+            return CompletableFuture.completedFuture(attachment);
+        }
+        return imageUploadPreparer.prepare(attachment, settingsManager.getInt("ai.imageUpload.maxDimension", 2048));
+    }
+
+    /**
+     * Bytes of a generated image. Downloads started when the provider returned the URL are shared, so
+     * rendering, copying and saving the image fetch it once. The array must not be modified.
+     */
+    public CompletableFuture<byte[]> fetchGeneratedAsset(String url) {
+        return assetPrefetcher.fetch(url);
+    }
+
+    private ImageAttachment awaitUploadAttachment(ImageAttachment attachment) {
+        try {
+            ImageAttachment prepared = prepareImageAttachment(attachment).get();
+            return prepared == null ? attachment : prepared;
+        } catch (InterruptedException interrupted) {
+            // Leave the shared task running for the cache; the reply itself is being stopped.
+            Thread.currentThread().interrupt();
+            return attachment;
+        } catch (ExecutionException | CancellationException failed) {
+            return attachment;
+        }
+    }
+
+    public ResponseCacheStats getResponseCacheStats() {
+        return new ResponseCacheStats(responseCache.memoryHits(), responseCache.diskHits(), responseCache.misses());
+    }
+
+    public TransferStats getTransferStats() {
+        CompressedBodies.Totals totals = CompressedBodies.totals();
+        return new TransferStats(totals.responses(), totals.compressedResponses(), totals.wireBytes(), totals.decodedBytes());
+    }
+
+    public ConversationUsage getConversationUsage(Conversation conv) {
+        return usageLedger.conversation(conv);
+    }
+
+    public List<ProviderUsage> getProviderUsage() {
+        return usageLedger.providers();
+    }
+
+    /**
+     * Records the user's verdict on a reply (+1, -1, or 0 to withdraw it) against the provider that
+     * served it. Changing a verdict replaces the earlier one instead of adding to it. Returns false
+     * when the reply has no known provider.
+     */
+    public boolean rateReply(Message reply, int verdict) {
+        if (reply == null || !reply.hasUsage()) {
+            return false;
+        }
+        for (ProviderType providerType : ProviderType.values()) {
+            if (providerDisplayName(providerType).equals(reply.getUsageProvider())) {
+                int normalized = Integer.signum(verdict);
+                int change = normalized - reply.getFeedback();
+                if (change != 0) {
+                    reply.recordFeedback(normalized);
+                    settingsManager.addApiFeedback(providerType.name(), change);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the reply's provider usage to the ledger and keeps any prompt growth warning for the caller.
+     */
+    private Message recordUsage(Conversation conv, Message reply, RequestContext context) {
+        if (reply != null && reply.hasUsage() && !context.cancelled()) {
+            context.recordUsageWarning(usageLedger.record(
+                    conv,
+                    reply.getUsageProvider(),
+                    reply.getPromptTokens(),
+                    reply.getCompletionTokens(),
+                    reply.getLatencyMs(),
+                    settingsManager.getInt("ai.maxPromptTokens", 32000)
+            ));
+        }
+        return reply;
+    }
+
+    public List<ProviderLatencyStats> getProviderLatencyStats() {
+        List<ProviderLatencyStats> stats = new ArrayList<>();
+        providerStats.summaries().forEach((key, summary) -> {
+            int separator = key.indexOf('/');
+            stats.add(new ProviderLatencyStats(
+                    key.substring(0, separator),
+                    key.substring(separator + 1),
+                    summary.p50Millis(),
+                    summary.p95Millis(),
+                    summary.firstOutputP50Millis(),
+                    summary.firstOutputP95Millis(),
+                    summary.successRate(),
+                    summary.weight()
+            ));
+        });
+        return stats;
+    }
+
+    /**
+     * Opens connections to every configured provider in the background. Settings and app.properties
+     * changes trigger the same warm-up on their own.
+     */
+    public void warmUpConnections() {
+        connectionWarmer.warmUpSoon();
+    }
+
+    /**
+     * Keeps warmed provider connections from idling out; meant to follow window focus.
+     */
+    public void setConnectionKeepAlive(boolean active) {
+        connectionWarmer.setKeepAlive(active);
+    }
+
+    /**
+     * Connection setup time the latest warm-up took off the first request to each provider host,
+     * summed over the hosts. Shown in the usage report.
+     */
+    public long getConnectionSetupSavedMillis() {
+        return connectionWarmer.savedMillis();
     }
 
     public void appendAssistantMessage(Conversation conv, Message botMessage) {
@@ -183,132 +554,573 @@ public class ChatService {
     }
 
     /**
-     * Ask a contextual question about selected text. Returns a future with the AI response.
+     * Ask a contextual question about selected text. Returns a future with the AI response. These short
+     * questions are scheduled ahead of queued chat replies.
      */
     public CompletableFuture<String> askAboutSelection(String selectedText, String question) {
+        RequestContext requestContext = RequestContext.interactive();
         return CompletableFuture.supplyAsync(() -> {
             String contextPrompt = "The user selected the following text:\n\n"
                     + selectedText + "\n\nUser question: " + question;
             List<Message> context = List.of(new Message(Message.Sender.USER, contextPrompt));
-            Message reply = requestAssistantReply(context, null, RequestMode.BEST);
-            return reply.getContent();
-        }, apiExecutor);
+            return requestAssistantReply(context, null, RequestMode.BEST, requestContext);
+        }, task -> requestScheduler.submit(RequestScheduler.Lane.INTERACTIVE, null, task))
+                .thenCompose(reply -> reply)
+                .thenApply(reply -> recordUsage(null, reply, requestContext).getContent());
     }
 
-    private Message requestAssistantReply(List<Message> historySnapshot,
-                                          ImageAttachment imageAttachment,
-                                          RequestMode requestMode) {
-        LoadedProperties loaded = loadAppProperties();
+    private CompletableFuture<Message> requestAssistantReply(List<Message> historySnapshot,
+                                                             ImageAttachment imageAttachment,
+                                                             RequestMode requestMode,
+                                                             RequestContext context) {
+        ConfigSnapshot snapshot = currentConfigSnapshot();
         String latestUserText = extractLatestUserMessage(historySnapshot);
         boolean hasImageAttachment = imageAttachment != null && imageAttachment.hasData();
-        PromptIntent promptIntent = classifyPromptIntent(latestUserText, hasImageAttachment);
-        if (shouldGenerateSupportingImage(latestUserText, promptIntent, requestMode, hasImageAttachment)) {
-            Message mixedReply = requestMixedEducationalReply(historySnapshot, loaded, latestUserText, requestMode);
-            if (mixedReply != null) {
-                return mixedReply;
+        PromptSignals signals = PromptSignals.scan(latestUserText);
+        PromptIntent promptIntent = classifyPromptIntent(signals, hasImageAttachment);
+
+        String cacheKey = buildResponseCacheKey(historySnapshot, imageAttachment, requestMode, promptIntent, snapshot);
+        if (cacheKey != null) {
+            String cached = responseCache.get(cacheKey, settingsManager.getInt("ai.responseCache.memoryEntries", 128));
+            if (cached != null) {
+                context.recordServedBy("Response cache");
+                return CompletableFuture.completedFuture(new Message(Message.Sender.BOT, cached));
             }
         }
-        return requestSingleProviderReply(historySnapshot, imageAttachment, requestMode, loaded, latestUserText, promptIntent);
+
+        CompletableFuture<Message> reply;
+        if (shouldGenerateSupportingImage(signals, promptIntent, requestMode, hasImageAttachment)) {
+            reply = requestMixedEducationalReply(historySnapshot, snapshot, latestUserText, signals, requestMode, context);
+        } else if (context.cancelled()) {
+            return CompletableFuture.completedFuture(null);
+        } else {
+            ImageAttachment uploadAttachment = hasImageAttachment ? awaitUploadAttachment(imageAttachment) : imageAttachment;
+            reply = requestSingleProviderReply(historySnapshot, uploadAttachment, requestMode, snapshot, latestUserText, signals, promptIntent, context);
+        }
+        if (cacheKey == null) {
+            return reply;
+        }
+
+        return reply.thenApply(message -> {
+            // Generated image URLs expire, so only plain text replies are worth keeping.
+            if (message != null && !context.cancelled() && isSuccessfulAssistantReply(message.getContent())
+                    && !message.getContent().contains("![")) {
+                responseCache.put(
+                        cacheKey,
+                        message.getContent(),
+                        settingsManager.getInt("ai.responseCache.memoryEntries", 128),
+                        settingsManager.getInt("ai.responseCache.diskMaxMb", 64) * 1024L * 1024L
+                );
+            }
+            return message;
+        });
     }
 
-    private Message requestSingleProviderReply(List<Message> historySnapshot,
+    /**
+     * Digest of everything that shapes a text reply: mode, chat models, temperature, system prompt and
+     * the history including attached image bytes. Only line endings and trailing whitespace are
+     * normalized; indentation is part of the question. Null when caching is off or the
+     * request asks for a fresh generation.
+     */
+    private String buildResponseCacheKey(List<Message> historySnapshot,
+                                         ImageAttachment imageAttachment,
+                                         RequestMode requestMode,
+                                         PromptIntent promptIntent,
+                                         ConfigSnapshot snapshot) {
+        if (!settingsManager.getBoolean("ai.responseCache.enabled", false)
+                || (promptIntent != PromptIntent.TEXT_CHAT && promptIntent != PromptIntent.IMAGE_UNDERSTANDING)) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String customPrompt = settingsManager.getString("ai.systemPrompt", "");
+            updateDigest(digest, requestMode == null ? RequestMode.BEST.name() : requestMode.name());
+            updateDigest(digest, snapshot.provider(ProviderType.GROQ).modelName());
+            updateDigest(digest, snapshot.provider(ProviderType.GOOGLE_AI_STUDIO).modelName());
+            updateDigest(digest, String.valueOf(settingsManager.getDouble("ai.temperature", 0.4)));
+            updateDigest(digest, customPrompt == null || customPrompt.isBlank() ? SYSTEM_PROMPT : customPrompt);
+            for (Message message : historySnapshot) {
+                if (message == null) {
+                    continue;
+                }
+                updateDigest(digest, message.getSender().name());
+                updateDigest(digest, ResponseCache.normalizeForKey(message.getContent()));
+                if (message.hasImageAttachment()) {
+                    digest.update(message.getImageData());
+                }
+            }
+            if (imageAttachment != null && imageAttachment.hasData()) {
+                digest.update(imageAttachment.data());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+    }
+
+    private void updateDigest(MessageDigest digest, String value) {
+        digest.update((value == null ? "" : value).getBytes(StandardCharsets.UTF_8));
+        // Separator so ("ab", "c") and ("a", "bc") hash differently.
+        digest.update((byte) 0);
+    }
+
+    /**
+     * {@code ~/.cortex/<name>}, next to the settings file; null when there is no home directory.
+     */
+    private static Path resolveCortexFile(String name) {
+        String home = System.getProperty("user.home");
+        if (home == null || home.isBlank()) {
+            return null;
+        }
+        return Path.of(home, ".cortex", name);
+    }
+
+    private CompletableFuture<Message> requestSingleProviderReply(List<Message> historySnapshot,
                                                ImageAttachment imageAttachment,
                                                RequestMode requestMode,
-                                               LoadedProperties loaded,
+                                               ConfigSnapshot snapshot,
                                                String latestUserText,
-                                               PromptIntent promptIntent) {
+                                               PromptSignals signals,
+                                               PromptIntent promptIntent,
+                                               RequestContext context) {
         boolean hasImageAttachment = imageAttachment != null && imageAttachment.hasData();
-        ProviderType requestedProvider = resolveRequestedProvider(latestUserText, promptIntent, hasImageAttachment, requestMode);
+        ProviderType requestedProvider = resolveRequestedProvider(signals, promptIntent, hasImageAttachment, requestMode);
         List<ProviderType> attemptOrder = buildProviderAttemptOrder(
                 requestedProvider,
                 promptIntent,
-                latestUserText,
+                signals,
                 hasImageAttachment,
                 requestMode,
-                loaded
+                snapshot
         );
 
         List<String> missingProviders = new ArrayList<>();
-        String lastError = null;
-
+        List<ProviderConfig> candidates = new ArrayList<>();
+        List<ProviderConfig> pausedProviders = new ArrayList<>();
         for (ProviderType providerType : attemptOrder) {
-            ProviderConfig config = resolveProviderConfig(providerType, loaded);
+            ProviderConfig config = snapshot.provider(providerType);
             if (config.apiKeys().isEmpty()) {
                 missingProviders.add(providerDisplayName(providerType));
                 continue;
             }
+            if (isProviderPaused(config)) {
+                pausedProviders.add(config);
+                continue;
+            }
+            candidates.add(config);
+        }
+
+        ProviderAttemptResult result = shouldHedge(requestMode, promptIntent, candidates)
+                ? requestWithHedging(candidates, historySnapshot, latestUserText, imageAttachment, promptIntent, context)
+                : requestSequentially(candidates, historySnapshot, latestUserText, imageAttachment, promptIntent, context);
+        if (result != null && result.success()) {
+            context.recordServedBy(providerDisplayName(result.provider()));
+            if (result.pending() != null) {
+                return result.pending().thenApply(this::buildProviderReply);
+            }
+            return CompletableFuture.completedFuture(buildProviderReply(result));
+        }
+        String lastError = result == null ? null : result.error();
+        if (lastError == null && !pausedProviders.isEmpty()) {
+            lastError = buildPausedProvidersMessage(pausedProviders);
+        }
+
+        if (!missingProviders.isEmpty() && lastError == null) {
+            if (promptIntent == PromptIntent.VIDEO_GENERATION) {
+                return CompletableFuture.completedFuture(new Message(
+                        Message.Sender.BOT,
+                        buildMissingVideoProviderMessage(snapshot.source(), missingProviders)
+                ));
+            }
+            return CompletableFuture.completedFuture(new Message(
+                    Message.Sender.BOT,
+                    buildMissingApiKeyMessage(snapshot.source(), missingProviders)
+            ));
+        }
+
+        String errorDetail = (lastError == null || lastError.isBlank()) ? "Unknown API error." : lastError;
+        return CompletableFuture.completedFuture(new Message(Message.Sender.BOT, "I could not call the AI API.\n\n- " + errorDetail));
+    }
 
-            ProviderAttemptResult result = requestWithProviderFailover(
+    private Message buildProviderReply(ProviderAttemptResult result) {
+        Message reply = new Message(Message.Sender.BOT, result.content());
+        ProviderJsonParser.Usage usage = result.usage();
+        reply.recordUsage(
+                providerDisplayName(result.provider()),
+                usage == null ? -1 : usage.promptTokens(),
+                usage == null ? -1 : usage.completionTokens(),
+                result.latencyMs()
+        );
+        return reply;
+    }
+
+    private ProviderAttemptResult requestSequentially(List<ProviderConfig> candidates,
+                                                      List<Message> historySnapshot,
+                                                      String latestUserText,
+                                                      ImageAttachment imageAttachment,
+                                                      PromptIntent promptIntent,
+                                                      RequestContext context) {
+        ProviderAttemptResult lastResult = null;
+        for (ProviderConfig config : candidates) {
+            if (context.cancelled()) {
+                break;
+            }
+            lastResult = requestWithProviderFailover(
                     config,
                     historySnapshot,
                     latestUserText,
                     imageAttachment,
-                    promptIntent
+                    promptIntent,
+                    context
             );
-            if (result.success()) {
-                return new Message(Message.Sender.BOT, result.content());
+            if (lastResult.success()) {
+                return lastResult;
             }
-            lastError = result.error();
         }
+        return lastResult;
+    }
 
-        if (!missingProviders.isEmpty() && lastError == null) {
-            if (promptIntent == PromptIntent.VIDEO_GENERATION) {
-                return new Message(Message.Sender.BOT, buildMissingVideoProviderMessage(loaded.source(), missingProviders));
+    private boolean shouldHedge(RequestMode requestMode, PromptIntent promptIntent, List<ProviderConfig> candidates) {
+        if (requestMode != RequestMode.BEST || candidates.size() < 2) {
+            return false;
+        }
+        // Generation jobs are billed per asset, so only cheap text and vision replies are duplicated.
+        if (promptIntent != PromptIntent.TEXT_CHAT && promptIntent != PromptIntent.IMAGE_UNDERSTANDING) {
+            return false;
+        }
+        return settingsManager.getBoolean("ai.hedging.enabled", false);
+    }
+
+    /**
+     * Races the candidates: when the newest attempt has produced neither a reply nor its first streamed
+     * token within the hedge delay, the next candidate starts in parallel. The first success wins and the
+     * remaining attempts are interrupted, which aborts their HTTP exchanges. A failed attempt falls through
+     * to the next candidate exactly like sequential failover.
+     */
+    private ProviderAttemptResult requestWithHedging(List<ProviderConfig> candidates,
+                                                     List<Message> historySnapshot,
+                                                     String latestUserText,
+                                                     ImageAttachment imageAttachment,
+                                                     PromptIntent promptIntent,
+                                                     RequestContext context) {
+        ExecutorCompletionService<ProviderAttemptResult> race = new ExecutorCompletionService<>(apiExecutor);
+        Map<Future<ProviderAttemptResult>, RequestContext> inFlight = new ConcurrentHashMap<>();
+        int nextCandidate = 0;
+        long lastLaunchNanos = 0;
+        ProviderType lastLaunched = null;
+        ProviderAttemptResult lastFailure = null;
+
+        try {
+            while (true) {
+                boolean canLaunch = nextCandidate < candidates.size()
+                        && inFlight.size() < HEDGE_MAX_PARALLEL_ATTEMPTS
+                        && !context.streamClaimed();
+                if (inFlight.isEmpty()) {
+                    if (!canLaunch) {
+                        return lastFailure;
+                    }
+                } else {
+                    Future<ProviderAttemptResult> completed;
+                    if (canLaunch) {
+                        long waitNanos = hedgeDelayNanos(lastLaunched, promptIntent) - (System.nanoTime() - lastLaunchNanos);
+                        completed = race.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                    } else {
+                        completed = race.take();
+                    }
+
+                    if (completed != null) {
+                        RequestContext attemptContext = inFlight.remove(completed);
+                        ProviderAttemptResult result = hedgedAttemptResult(completed);
+                        if (result == null) {
+                            // Cancelled because another attempt claimed the stream.
+                            continue;
+                        }
+                        if (result.success()) {
+                            return result;
+                        }
+                        context.releaseStream(attemptContext);
+                        lastFailure = result;
+                        continue;
+                    }
+                    if (context.streamClaimed()) {
+                        continue;
+                    }
+                }
+
+                ProviderConfig config = candidates.get(nextCandidate++);
+                RequestContext attemptContext = context.hedgedAttempt();
+                Future<ProviderAttemptResult> future = race.submit(() -> requestWithProviderFailover(
+                        config,
+                        historySnapshot,
+                        latestUserText,
+                        imageAttachment,
+                        promptIntent,
+                        attemptContext
+                ));
+                inFlight.put(future, attemptContext);
+                attemptContext.onStreamClaimed(() -> inFlight.forEach((other, otherContext) -> {
+                    if (otherContext != attemptContext) {
+                        other.cancel(true);
+                    }
+                }));
+                lastLaunched = config.providerType();
+                lastLaunchNanos = System.nanoTime();
             }
-            return new Message(Message.Sender.BOT, buildMissingApiKeyMessage(loaded.source(), missingProviders));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return lastFailure != null ? lastFailure : new ProviderAttemptResult(false, null, "Request was interrupted.");
+        } finally {
+            inFlight.keySet().forEach(future -> future.cancel(true));
         }
+    }
 
-        String errorDetail = (lastError == null || lastError.isBlank()) ? "Unknown API error." : lastError;
-        return new Message(Message.Sender.BOT, "I could not call the AI API.\n\n- " + errorDetail);
+    private ProviderAttemptResult hedgedAttemptResult(Future<ProviderAttemptResult> completed)
+            throws InterruptedException {
+        try {
+            return completed.get();
+        } catch (CancellationException cancelled) {
+            return null;
+        } catch (ExecutionException failed) {
+            Throwable cause = failed.getCause() == null ? failed : failed.getCause();
+            return new ProviderAttemptResult(false, null, cause.getMessage());
+        }
     }
 
-    private Message requestMixedEducationalReply(List<Message> historySnapshot,
-                                                 LoadedProperties loaded,
-                                                 String latestUserText,
-                                                 RequestMode requestMode) {
-        Message textReply = requestSingleProviderReply(
-                historySnapshot,
-                null,
-                requestMode == RequestMode.BEST ? RequestMode.BEST : RequestMode.GROQ,
-                loaded,
-                latestUserText,
-                PromptIntent.TEXT_CHAT
-        );
-        if (textReply == null || !isSuccessfulAssistantReply(textReply.getContent())) {
-            return textReply;
+    private long hedgeDelayNanos(ProviderType providerType, PromptIntent promptIntent) {
+        double percentile = settingsManager.getDouble("ai.hedging.percentile", 0.9);
+        long fallbackMillis = settingsManager.getInt("ai.hedging.delayMs", 3000);
+        long delayMillis = providerType == null
+                ? fallbackMillis
+                : providerStats.firstOutputPercentile(providerType.name(), promptIntent.name(), percentile, HEDGE_MIN_LATENCY_WEIGHT)
+                        .orElse(fallbackMillis);
+        delayMillis = Math.max(HEDGE_MIN_DELAY_MS, Math.min(REQUEST_TIMEOUT.toMillis(), delayMillis));
+        return TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    /**
+     * Text reply plus a generated visual aid. In pipelined mode the image is generated from the user's
+     * prompt while the text reply is still running, so the reply takes as long as the slower of the two
+     * instead of their sum; otherwise the image waits for the text and uses it as context. Either way
+     * only submitting the image job takes a worker; the reply completes when its polling does.
+     */
+    private CompletableFuture<Message> requestMixedEducationalReply(List<Message> historySnapshot,
+                                                                    ConfigSnapshot snapshot,
+                                                                    String latestUserText,
+                                                                    PromptSignals signals,
+                                                                    RequestMode requestMode,
+                                                                    RequestContext context) {
+        Future<CompletableFuture<String>> imageTask = settingsManager.getBoolean("ai.supportingImage.pipelined", true)
+                ? apiExecutor.submit(() -> requestSupportingImageMarkdown(snapshot, latestUserText, null))
+                : null;
+        CompletableFuture<Message> textReply;
+        try {
+            textReply = requestSingleProviderReply(
+                    historySnapshot,
+                    null,
+                    requestMode == RequestMode.BEST ? RequestMode.BEST : RequestMode.GROQ,
+                    snapshot,
+                    latestUserText,
+                    signals,
+                    PromptIntent.TEXT_CHAT,
+                    context
+            );
+        } catch (RuntimeException | Error failure) {
+            cancelSupportingImage(imageTask);
+            throw failure;
+        }
+        return textReply.thenCompose(text -> {
+            if (text == null || !isSuccessfulAssistantReply(text.getContent()) || context.cancelled()) {
+                cancelSupportingImage(imageTask);
+                return CompletableFuture.completedFuture(text);
+            }
+            CompletableFuture<String> imageMarkdown = imageTask != null
+                    ? awaitSupportingImage(imageTask)
+                    : requestSupportingImageMarkdown(snapshot, latestUserText, text.getContent());
+            context.cancelWith(imageMarkdown);
+            return imageMarkdown.handle((markdown, failure) -> markdown == null || markdown.isBlank()
+                    ? text
+                    : combineTextAndImage(text, markdown));
+        });
+    }
+
+    private Message combineTextAndImage(Message textReply, String imageMarkdown) {
+        Message combined = new Message(Message.Sender.BOT, mergeTextAndImageContent(textReply.getContent(), imageMarkdown));
+        if (textReply.hasUsage()) {
+            combined.recordUsage(
+                    textReply.getUsageProvider(),
+                    textReply.getPromptTokens(),
+                    textReply.getCompletionTokens(),
+                    textReply.getLatencyMs()
+            );
         }
+        return combined;
+    }
 
-        String imageMarkdown = requestSupportingImageMarkdown(loaded, latestUserText, textReply.getContent());
-        if (imageMarkdown == null || imageMarkdown.isBlank()) {
-            return textReply;
+    /**
+     * Waits for the image job to be submitted, which runs alongside the text reply, and returns its
+     * pending markdown.
+     */
+    private CompletableFuture<String> awaitSupportingImage(Future<CompletableFuture<String>> imageTask) {
+        try {
+            return imageTask.get();
+        } catch (InterruptedException interrupted) {
+            imageTask.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException failed) {
+            // The reply goes out without an image.
         }
+        return CompletableFuture.completedFuture(null);
+    }
 
-        String combinedContent = mergeTextAndImageContent(textReply.getContent(), imageMarkdown);
-        return new Message(Message.Sender.BOT, combinedContent);
+    private void cancelSupportingImage(Future<CompletableFuture<String>> imageTask) {
+        if (imageTask == null || imageTask.cancel(true)) {
+            return;
+        }
+        // Already submitted, so stop its polling instead.
+        try {
+            imageTask.get().cancel(true);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException ignored) {
+            // Nothing is polling.
+        }
     }
 
     private ProviderAttemptResult requestWithProviderFailover(ProviderConfig config,
                                                               List<Message> historySnapshot,
                                                               String latestUserText,
                                                               ImageAttachment imageAttachment,
-                                                              PromptIntent promptIntent) {
+                                                              PromptIntent promptIntent,
+                                                              RequestContext context) {
+        String providerId = config.providerType().name();
+        int limit = settingsManager.getInt("ai.provider.maxConcurrentRequests", 4);
+        long waitDeadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(0, settingsManager.getInt("ai.provider.admissionWaitMs", 20000)));
+        try {
+            if (!providerAdmission.acquire(providerId, limit, context.isInteractive(), waitDeadline)) {
+                // Let the caller fail over to a provider that has room instead of queueing longer.
+                return new ProviderAttemptResult(false, null, providerDisplayName(config.providerType())
+                        + " is busy with " + limit + " other requests.");
+            }
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return new ProviderAttemptResult(false, null, "Request was cancelled.");
+        }
+        try {
+            return requestWithProviderKeys(config, historySnapshot, latestUserText, imageAttachment, promptIntent, context);
+        } finally {
+            providerAdmission.release(providerId);
+        }
+    }
+
+    private ProviderAttemptResult requestWithProviderKeys(ProviderConfig config,
+                                                          List<Message> historySnapshot,
+                                                          String latestUserText,
+                                                          ImageAttachment imageAttachment,
+                                                          PromptIntent promptIntent,
+                                                          RequestContext context) {
+        String providerId = config.providerType().name();
+        String providerCircuit = ProviderCircuitBreaker.providerCircuit(providerId);
+        if (!circuitBreaker.allowRequest(providerCircuit)) {
+            return new ProviderAttemptResult(false, null, buildPausedProvidersMessage(List.of(config)));
+        }
+
+        int requestsPerMinute = settingsManager.getInt("ai.keyPool.requestsPerMinute", 0);
+        long waitDeadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(0, settingsManager.getInt("ai.keyPool.maxWaitMs", 20000)));
+        Set<String> remainingKeys = new LinkedHashSet<>(config.apiKeys());
         String lastError = null;
-        for (String apiKey : config.apiKeys()) {
+        boolean attempted = false;
+        boolean rateLimited = false;
+        while (!remainingKeys.isEmpty()) {
+            if (context.cancelled()) {
+                circuitBreaker.release(providerCircuit);
+                return new ProviderAttemptResult(false, null, "Request was cancelled.");
+            }
+            String apiKey = keyPool.acquire(providerId, remainingKeys, requestsPerMinute);
+            if (apiKey == null) {
+                // Every key is out of budget: wait for the next slot instead of failing the request.
+                if (!awaitKeySlot(providerId, remainingKeys, requestsPerMinute, waitDeadline)) {
+                    rateLimited = true;
+                    break;
+                }
+                continue;
+            }
+            String keyCircuit = ProviderCircuitBreaker.keyCircuit(providerId, apiKey);
+            if (!circuitBreaker.allowRequest(keyCircuit)) {
+                remainingKeys.remove(apiKey);
+                continue;
+            }
+            attempted = true;
+            context.resetStreamIfStarted();
+            long startedAt = System.nanoTime();
             ProviderCallResult callResult = switch (config.providerType()) {
-                case GROQ -> callGroqChat(config, apiKey, historySnapshot);
-                case GOOGLE_AI_STUDIO -> callGoogleChat(config, apiKey, historySnapshot, imageAttachment);
+                case GROQ -> callGroqChat(config, apiKey, historySnapshot, context);
+                case GOOGLE_AI_STUDIO -> callGoogleChat(config, apiKey, historySnapshot, imageAttachment, context);
                 case LEONARDO -> callLeonardoImage(config, apiKey, latestUserText, promptIntent);
                 case FREEPIK -> callFreepik(config, apiKey, latestUserText, promptIntent);
             };
 
+            if (callResult.pendingContent() != null) {
+                // The job was accepted; its polling continues without this worker or the provider slot.
+                recordCallHealth(providerCircuit, keyCircuit, callResult);
+                context.cancelWith(callResult.pendingContent());
+                return new ProviderAttemptResult(true, null, null, config.providerType(), null, 0,
+                        callResult.pendingContent().thenApply(content -> {
+                            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                            providerStats.recordSuccess(providerId, promptIntent.name(), latencyMs, latencyMs);
+                            return new ProviderAttemptResult(true, content, null, config.providerType(), null, latencyMs);
+                        }));
+            }
             if (callResult.success()) {
-                return new ProviderAttemptResult(true, callResult.content(), null);
+                long finishedAt = System.nanoTime();
+                long firstOutputAt = context.firstOutputNanos() > startedAt ? context.firstOutputNanos() : finishedAt;
+                providerStats.recordSuccess(
+                        providerId,
+                        promptIntent.name(),
+                        TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt),
+                        TimeUnit.NANOSECONDS.toMillis(firstOutputAt - startedAt)
+                );
+                recordCallHealth(providerCircuit, keyCircuit, callResult);
+                return new ProviderAttemptResult(
+                        true,
+                        callResult.content(),
+                        null,
+                        config.providerType(),
+                        callResult.usage(),
+                        TimeUnit.NANOSECONDS.toMillis(finishedAt - startedAt)
+                );
+            }
+            if (Thread.currentThread().isInterrupted() || context.cancelled()) {
+                circuitBreaker.release(keyCircuit);
+                circuitBreaker.release(providerCircuit);
+                return new ProviderAttemptResult(false, null, callResult.error());
+            }
+            recordCallHealth(providerCircuit, keyCircuit, callResult);
+            int statusCode = callResult.statusCode();
+            if (statusCode >= 500 || statusCode == 429 || statusCode == ProviderCircuitBreaker.TRANSPORT_ERROR) {
+                // Only provider-side trouble counts against routing; bad keys and bad prompts do not.
+                providerStats.recordFailure(providerId, promptIntent.name());
             }
 
             lastError = callResult.error();
             if (!callResult.retryWithNextKey()) {
                 break;
             }
+            if (callResult.statusCode() != 429) {
+                // A rate-limited key stays in the pool and is retried once its window resets.
+                remainingKeys.remove(apiKey);
+            }
+        }
+
+        if (!attempted) {
+            circuitBreaker.release(providerCircuit);
+            String error = rateLimited
+                    ? "All " + providerDisplayName(config.providerType()) + " API keys are rate limited (next slot in "
+                    + Math.max(1, TimeUnit.MILLISECONDS.toSeconds(keyPool.millisUntilReady(providerId, remainingKeys, requestsPerMinute)))
+                    + " s)."
+                    : buildPausedProvidersMessage(List.of(config));
+            return new ProviderAttemptResult(false, null, error);
         }
 
         String fallbackError = (lastError == null || lastError.isBlank())
@@ -317,68 +1129,338 @@ public class ChatService {
         return new ProviderAttemptResult(false, null, fallbackError);
     }
 
-    private ProviderCallResult callGroqChat(ProviderConfig config, String apiKey, List<Message> historySnapshot) {
+    private boolean awaitKeySlot(String providerId, Set<String> apiKeys, int requestsPerMinute, long deadlineNanos) {
+        long waitMillis = Math.max(1, keyPool.millisUntilReady(providerId, apiKeys, requestsPerMinute));
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis) > deadlineNanos) {
+            return false;
+        }
+        try {
+            Thread.sleep(waitMillis);
+            return true;
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void recordCallHealth(String providerCircuit, String keyCircuit, ProviderCallResult callResult) {
+        if (callResult.success()) {
+            circuitBreaker.recordSuccess(keyCircuit);
+            circuitBreaker.recordSuccess(providerCircuit);
+            return;
+        }
+        int statusCode = callResult.statusCode();
+        circuitBreaker.recordFailure(keyCircuit, statusCode);
+        if (statusCode >= 500 || statusCode == ProviderCircuitBreaker.TRANSPORT_ERROR) {
+            // Outages and unreachable hosts affect every key of the provider.
+            circuitBreaker.recordFailure(providerCircuit, statusCode);
+        } else {
+            circuitBreaker.release(providerCircuit);
+        }
+    }
+
+    /**
+     * A provider is paused while its own circuit is open or every one of its keys is.
+     */
+    private boolean isProviderPaused(ProviderConfig config) {
+        String providerId = config.providerType().name();
+        if (circuitBreaker.isOpen(ProviderCircuitBreaker.providerCircuit(providerId))) {
+            return true;
+        }
+        for (String apiKey : config.apiKeys()) {
+            if (!circuitBreaker.isOpen(ProviderCircuitBreaker.keyCircuit(providerId, apiKey))) {
+                return false;
+            }
+        }
+        return !config.apiKeys().isEmpty();
+    }
+
+    private String buildPausedProvidersMessage(List<ProviderConfig> pausedProviders) {
+        List<String> parts = new ArrayList<>();
+        for (ProviderConfig config : pausedProviders) {
+            String providerId = config.providerType().name();
+            long remaining = circuitBreaker.remainingCooldownMillis(ProviderCircuitBreaker.providerCircuit(providerId));
+            if (remaining == 0) {
+                remaining = Long.MAX_VALUE;
+                for (String apiKey : config.apiKeys()) {
+                    remaining = Math.min(remaining, circuitBreaker.remainingCooldownMillis(
+                            ProviderCircuitBreaker.keyCircuit(providerId, apiKey)));
+                }
+            }
+            long seconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining == Long.MAX_VALUE ? 0 : remaining));
+            parts.add(providerDisplayName(config.providerType()) + " (retrying in " + seconds + " s)");
+        }
+        return "Paused after repeated failures: " + String.join(", ", parts) + ".";
+    }
+
+    private ProviderCallResult callGroqChat(ProviderConfig config,
+                                            String apiKey,
+                                            List<Message> historySnapshot,
+                                            RequestContext context) {
         try {
-            String body = buildOpenAiChatRequestJson(historySnapshot, config.modelName());
+            boolean stream = context.streaming();
+            String body = buildOpenAiChatRequestJson(historySnapshot, config.modelName(), stream,
+                    stream && acceptsStreamOptions(config.baseUrl()));
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(trimTrailingSlash(config.baseUrl()) + "/v1/chat/completions"))
                     .header("Authorization", "Bearer " + apiKey)
                     .header("Content-Type", "application/json")
+                    .header("Accept", stream ? "text/event-stream" : "application/json")
                     .timeout(REQUEST_TIMEOUT)
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                String content = extractAssistantContent(response.body());
-                return ProviderCallResult.success(content);
+            if (stream) {
+                return streamOpenAiChat(config, apiKey, request, context);
             }
 
-            String error = extractErrorMessage(response.body());
-            String details = providerDisplayName(config.providerType()) + " API HTTP "
-                    + response.statusCode() + " - " + error;
-            return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+            HttpResponse<InputStream> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofInputStream());
+            try (Reader responseBody = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+                if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                    return assistantReplyResult(responseBody);
+                }
+
+                String error = extractErrorMessage(responseBody);
+                String details = providerDisplayName(config.providerType()) + " API HTTP "
+                        + response.statusCode() + " - " + error;
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
+            }
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
+        }
+    }
+
+    private ProviderCallResult streamOpenAiChat(ProviderConfig config,
+                                                String apiKey,
+                                                HttpRequest request,
+                                                RequestContext context) throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                String error = extractErrorMessage(lines.collect(Collectors.joining("\n")));
+                String details = providerDisplayName(config.providerType()) + " API HTTP "
+                        + response.statusCode() + " - " + error;
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
+            }
+            if (!isEventStream(response)) {
+                // Some OpenAI-compatible servers ignore "stream": true and answer with a regular body.
+                return assistantReplyResult(new StringReader(lines.collect(Collectors.joining("\n"))));
+            }
+
+            StringBuilder content = new StringBuilder();
+            String[] streamError = new String[1];
+            ProviderJsonParser.Usage[] usage = new ProviderJsonParser.Usage[1];
+            readServerSentEvents(lines, data -> {
+                if ("[DONE]".equals(data)) {
+                    return false;
+                }
+                if (data.contains("usage\"")) {
+                    // Sent with the last chunk, which has no content.
+                    ProviderJsonParser.Usage reported = ProviderJsonParser.openAiStreamUsage(data);
+                    usage[0] = reported == null ? usage[0] : reported;
+                }
+                String delta = extractOpenAiStreamDelta(data);
+                if (delta == null) {
+                    if (data.contains("\"error\"")) {
+                        streamError[0] = extractErrorMessage(data);
+                        return false;
+                    }
+                    return true;
+                }
+                content.append(delta);
+                context.emit(delta);
+                return true;
+            });
+
+            if (streamError[0] != null) {
+                return ProviderCallResult.failure(
+                        providerDisplayName(config.providerType()) + " stream failed: " + streamError[0],
+                        true,
+                        ProviderCircuitBreaker.TRANSPORT_ERROR
+                );
+            }
+            if (content.length() == 0) {
+                return ProviderCallResult.success("I received a response, but could not parse assistant content.", usage[0]);
+            }
+            return ProviderCallResult.success(content.toString(), usage[0]);
+        }
+    }
+
+    /**
+     * Sends a provider call made with {@code apiKey} and feeds its rate-limit headers to the key pool.
+     */
+    private <T> HttpResponse<T> sendProviderRequest(ProviderConfig config,
+                                                    String apiKey,
+                                                    HttpRequest request,
+                                                    HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        HttpResponse<T> response = sendRequest(request, bodyHandler);
+        keyPool.observe(config.providerType().name(), apiKey, response.statusCode(), response.headers());
+        return response;
+    }
+
+    /**
+     * Sends through {@link HttpClient#sendAsync} and parks the caller until the exchange completes.
+     * An interrupted caller cancels the exchange instead of leaving it running in the background.
+     * Responses are requested gzip-compressed and decoded before {@code bodyHandler} sees them.
+     */
+    private <T> HttpResponse<T> sendRequest(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<T>> exchange = httpClient.sendAsync(
+                CompressedBodies.acceptingCompressed(request),
+                CompressedBodies.decoding(bodyHandler)
+        );
+        try {
+            return exchange.get();
+        } catch (InterruptedException interrupted) {
+            exchange.cancel(true);
+            // Provider calls catch Throwable, so keep the flag set for the failover loop to see.
+            Thread.currentThread().interrupt();
+            throw interrupted;
+        } catch (ExecutionException failed) {
+            Throwable cause = failed.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private boolean isEventStream(HttpResponse<?> response) {
+        return response.headers()
+                .firstValue("Content-Type")
+                .map(value -> value.toLowerCase(Locale.ROOT).startsWith("text/event-stream"))
+                .orElse(false);
+    }
+
+    /**
+     * Feeds each server-sent event's data payload to {@code onEvent} until it returns false or the stream ends.
+     */
+    private void readServerSentEvents(Stream<String> lines, Predicate<String> onEvent) {
+        StringBuilder data = new StringBuilder();
+        Iterator<String> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Unchecked so the provider call's catch-all turns it into a failed attempt, flag intact.
+                throw new CancellationException("Request was cancelled.");
+            }
+            String line = iterator.next();
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    boolean keepReading = onEvent.test(data.toString());
+                    data.setLength(0);
+                    if (!keepReading) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            }
+            // Comments and the event/id/retry fields are not used by the providers.
+        }
+        if (data.length() > 0) {
+            onEvent.test(data.toString());
         }
     }
 
     private ProviderCallResult callGoogleChat(ProviderConfig config,
                                               String apiKey,
                                               List<Message> historySnapshot,
-                                              ImageAttachment imageAttachment) {
+                                              ImageAttachment imageAttachment,
+                                              RequestContext context) {
         try {
+            boolean stream = context.streaming();
             String endpoint = trimTrailingSlash(config.baseUrl())
                     + "/v1beta/models/"
                     + config.modelName()
-                    + ":generateContent?key="
+                    + (stream ? ":streamGenerateContent?alt=sse&key=" : ":generateContent?key=")
                     + urlEncode(apiKey);
-            String body = buildGoogleChatRequestJson(historySnapshot, imageAttachment);
+            StreamingJsonBody body = buildGoogleChatRequestBody(historySnapshot, config.modelName(), imageAttachment);
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(endpoint))
                     .header("Content-Type", "application/json")
                     .timeout(REQUEST_TIMEOUT)
-                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                    .POST(body.publisher())
                     .build();
+            if (stream) {
+                return streamGoogleChat(config, apiKey, request, context);
+            }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                String content = extractGoogleAssistantContent(response.body());
-                if (content == null || content.isBlank()) {
-                    return ProviderCallResult.failure("Google AI Studio returned an empty response.", false);
+            HttpResponse<InputStream> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofInputStream());
+            try (Reader responseBody = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+                if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                    ProviderJsonParser.Reply reply = extractGoogleReply(responseBody);
+                    if (reply.text() == null || reply.text().isBlank()) {
+                        return ProviderCallResult.failure("Google AI Studio returned an empty response.", false);
+                    }
+                    return ProviderCallResult.success(reply.text(), reply.usage());
                 }
-                return ProviderCallResult.success(content);
-            }
 
-            String error = extractErrorMessage(response.body());
-            String details = providerDisplayName(config.providerType()) + " API HTTP "
-                    + response.statusCode() + " - " + error;
-            return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+                String error = extractErrorMessage(responseBody);
+                String details = providerDisplayName(config.providerType()) + " API HTTP "
+                        + response.statusCode() + " - " + error;
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
+            }
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
+        }
+    }
+
+    private ProviderCallResult streamGoogleChat(ProviderConfig config,
+                                                String apiKey,
+                                                HttpRequest request,
+                                                RequestContext context) throws IOException, InterruptedException {
+        HttpResponse<Stream<String>> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                String error = extractErrorMessage(lines.collect(Collectors.joining("\n")));
+                String details = providerDisplayName(config.providerType()) + " API HTTP "
+                        + response.statusCode() + " - " + error;
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
+            }
+
+            StringBuilder content = new StringBuilder();
+            String[] streamError = new String[1];
+            ProviderJsonParser.Usage[] usage = new ProviderJsonParser.Usage[1];
+            readServerSentEvents(lines, data -> {
+                ProviderJsonParser.Reply chunk = extractGoogleStreamChunk(data);
+                if (chunk.usage() != null) {
+                    usage[0] = chunk.usage();
+                }
+                String delta = chunk.text();
+                if (delta == null) {
+                    if (data.contains("\"error\"")) {
+                        streamError[0] = extractErrorMessage(data);
+                        return false;
+                    }
+                    return true;
+                }
+                content.append(delta);
+                context.emit(delta);
+                return true;
+            });
+
+            if (streamError[0] != null) {
+                return ProviderCallResult.failure(
+                        providerDisplayName(config.providerType()) + " stream failed: " + streamError[0],
+                        true,
+                        ProviderCircuitBreaker.TRANSPORT_ERROR
+                );
+            }
+            if (content.length() == 0) {
+                return ProviderCallResult.failure("Google AI Studio returned an empty response.", false);
+            }
+            return ProviderCallResult.success(content.toString(), usage[0]);
         }
     }
 
@@ -411,61 +1493,47 @@ public class ChatService {
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 String error = extractErrorMessage(response.body());
                 String details = providerDisplayName(config.providerType()) + " API HTTP "
                         + response.statusCode() + " - " + error;
-                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
             }
 
             String generationId = extractLeonardoGenerationId(response.body());
             String imageUrl = extractFirstUrl(response.body());
 
             if ((imageUrl == null || imageUrl.isBlank()) && generationId != null && !generationId.isBlank()) {
-                imageUrl = pollLeonardoImageUrl(config.baseUrl(), apiKey, generationId);
+                return ProviderCallResult.pending(
+                        pollLeonardoImageUrl(config.baseUrl(), apiKey, generationId),
+                        polledUrl -> buildLeonardoResponseContent(polledUrl, generationId)
+                );
             }
 
             String content = buildLeonardoResponseContent(imageUrl, generationId);
             return ProviderCallResult.success(content);
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
         }
     }
 
-    private String pollLeonardoImageUrl(String baseUrl, String apiKey, String generationId) {
-        String endpoint = trimTrailingSlash(baseUrl) + "/generations/" + generationId;
-        for (int i = 0; i < LEONARDO_POLL_ATTEMPTS; i++) {
-            try {
-                Thread.sleep(LEONARDO_POLL_DELAY_MS);
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(endpoint))
-                        .header("Authorization", "Bearer " + apiKey)
-                        .header("Accept", "application/json")
-                        .timeout(REQUEST_TIMEOUT)
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-                if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    String imageUrl = extractFirstUrl(response.body());
-                    if (imageUrl != null && !imageUrl.isBlank()) {
-                        return imageUrl;
-                    }
-                }
-            } catch (InterruptedException interrupted) {
-                Thread.currentThread().interrupt();
-                return null;
-            } catch (Throwable ignored) {
-                // Keep polling until attempts are exhausted.
-            }
-        }
-        return null;
+    private CompletableFuture<String> pollLeonardoImageUrl(String baseUrl, String apiKey, String generationId) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(trimTrailingSlash(baseUrl) + "/generations/" + generationId))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Accept", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        return generationPoller.poll(request, this::extractFirstUrl, LEONARDO_POLL_SCHEDULE);
     }
 
     private String buildLeonardoResponseContent(String imageUrl, String generationId) {
         if (imageUrl != null && !imageUrl.isBlank()) {
+            // Start the download now so it overlaps the reply animation instead of following it.
+            assetPrefetcher.fetch(imageUrl);
             return "![Generated image](" + imageUrl + ")";
         }
         return "Generating image...";
@@ -487,7 +1555,7 @@ public class ChatService {
 
     private ProviderCallResult callFreepikImage(ProviderConfig config, String apiKey, String latestUserText) {
         try {
-            if (!isImageGenerationPrompt(latestUserText)) {
+            if (!PromptSignals.scan(latestUserText).isImageGenerationPrompt()) {
                 return ProviderCallResult.failure(
                         "Freepik mode is for image generation. Ask to generate an image, logo, art, or illustration.",
                         false
@@ -506,25 +1574,28 @@ public class ChatService {
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 String error = extractErrorMessage(response.body());
                 String details = providerDisplayName(config.providerType()) + " API HTTP "
                         + response.statusCode() + " - " + error;
-                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
             }
 
             String imageUrl = extractFirstGeneratedAsset(response.body());
             String taskId = extractFreepikTaskId(response.body());
             if ((imageUrl == null || imageUrl.isBlank()) && taskId != null && !taskId.isBlank()) {
-                imageUrl = pollFreepikImageUrl(config.baseUrl(), apiKey, modelSlug, taskId);
+                return ProviderCallResult.pending(
+                        pollFreepikImageUrl(config.baseUrl(), apiKey, modelSlug, taskId),
+                        polledUrl -> buildFreepikResponseContent(polledUrl, taskId, modelSlug)
+                );
             }
 
             String content = buildFreepikResponseContent(imageUrl, taskId, modelSlug);
             return ProviderCallResult.success(content);
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
         }
     }
 
@@ -542,31 +1613,34 @@ public class ChatService {
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 String error = extractErrorMessage(response.body());
                 String details = providerDisplayName(config.providerType()) + " API HTTP "
                         + response.statusCode() + " - " + error;
-                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
             }
 
             String imageUrl = extractFirstGeneratedAsset(response.body());
             String taskId = extractFreepikTaskId(response.body());
             if ((imageUrl == null || imageUrl.isBlank()) && taskId != null && !taskId.isBlank()) {
-                imageUrl = pollFreepikImageUrl(config.baseUrl(), apiKey, modelSlug, taskId);
+                return ProviderCallResult.pending(
+                        pollFreepikImageUrl(config.baseUrl(), apiKey, modelSlug, taskId),
+                        polledUrl -> buildFreepikResponseContent(polledUrl, taskId, modelSlug)
+                );
             }
 
             String content = buildFreepikResponseContent(imageUrl, taskId, modelSlug);
             return ProviderCallResult.success(content);
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
         }
     }
 
     private ProviderCallResult callFreepikVideo(ProviderConfig config, String apiKey, String latestUserText) {
         try {
-            if (!isVideoGenerationPrompt(latestUserText)) {
+            if (!PromptSignals.scan(latestUserText).isVideoGenerationPrompt()) {
                 return ProviderCallResult.failure(
                         "Freepik video mode is for motion generation. Ask to generate a video, clip, animation, or cinematic shot.",
                         false
@@ -585,86 +1659,57 @@ public class ChatService {
                     .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> response = sendProviderRequest(config, apiKey, request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 String error = extractErrorMessage(response.body());
                 String details = providerDisplayName(config.providerType()) + " API HTTP "
                         + response.statusCode() + " - " + error;
-                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()));
+                return ProviderCallResult.failure(details, shouldRetryWithNextKey(response.statusCode()), response.statusCode());
             }
 
             String videoUrl = extractFirstGeneratedAsset(response.body());
             String taskId = extractFreepikTaskId(response.body());
             if ((videoUrl == null || videoUrl.isBlank()) && taskId != null && !taskId.isBlank()) {
-                videoUrl = pollFreepikVideoUrl(config.baseUrl(), apiKey, modelSlug, taskId);
+                return ProviderCallResult.pending(
+                        pollFreepikVideoUrl(config.baseUrl(), apiKey, modelSlug, taskId),
+                        polledUrl -> buildFreepikVideoResponseContent(polledUrl, taskId, modelSlug)
+                );
             }
 
             String content = buildFreepikVideoResponseContent(videoUrl, taskId, modelSlug);
             return ProviderCallResult.success(content);
         } catch (Throwable ex) {
             String message = providerDisplayName(config.providerType()) + " request failed: " + ex.getMessage();
-            return ProviderCallResult.failure(message, true);
+            return ProviderCallResult.failure(message, true, ProviderCircuitBreaker.TRANSPORT_ERROR);
         }
     }
 
-    private String pollFreepikImageUrl(String baseUrl, String apiKey, String modelSlug, String taskId) {
+    private CompletableFuture<String> pollFreepikImageUrl(String baseUrl, String apiKey, String modelSlug, String taskId) {
         String endpoint = buildFreepikImageEndpoint(baseUrl, modelSlug) + "/" + urlEncode(taskId);
-        for (int i = 0; i < FREEPIK_POLL_ATTEMPTS; i++) {
-            try {
-                Thread.sleep(FREEPIK_POLL_DELAY_MS);
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(endpoint))
-                        .header("x-freepik-api-key", apiKey)
-                        .header("Accept", "application/json")
-                        .timeout(REQUEST_TIMEOUT)
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-                if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    String imageUrl = extractFirstGeneratedAsset(response.body());
-                    if (imageUrl != null && !imageUrl.isBlank()) {
-                        return imageUrl;
-                    }
-                }
-            } catch (InterruptedException interrupted) {
-                Thread.currentThread().interrupt();
-                return null;
-            } catch (Throwable ignored) {
-                // Keep polling until attempts are exhausted.
-            }
-        }
-        return null;
+        return generationPoller.poll(
+                buildFreepikStatusRequest(endpoint, apiKey),
+                this::extractFirstGeneratedAsset,
+                FREEPIK_POLL_SCHEDULE
+        );
     }
 
-    private String pollFreepikVideoUrl(String baseUrl, String apiKey, String modelSlug, String taskId) {
+    private CompletableFuture<String> pollFreepikVideoUrl(String baseUrl, String apiKey, String modelSlug, String taskId) {
         String endpoint = buildFreepikVideoStatusEndpoint(baseUrl, modelSlug, taskId);
-        for (int i = 0; i < FREEPIK_VIDEO_POLL_ATTEMPTS; i++) {
-            try {
-                Thread.sleep(FREEPIK_VIDEO_POLL_DELAY_MS);
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(endpoint))
-                        .header("x-freepik-api-key", apiKey)
-                        .header("Accept", "application/json")
-                        .timeout(REQUEST_TIMEOUT)
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-                if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                    String videoUrl = extractFirstGeneratedAsset(response.body());
-                    if (videoUrl != null && !videoUrl.isBlank()) {
-                        return videoUrl;
-                    }
-                }
-            } catch (InterruptedException interrupted) {
-                Thread.currentThread().interrupt();
-                return null;
-            } catch (Throwable ignored) {
-                // Keep polling until attempts are exhausted.
-            }
-        }
-        return null;
+        return generationPoller.poll(
+                buildFreepikStatusRequest(endpoint, apiKey),
+                this::extractFirstGeneratedAsset,
+                FREEPIK_VIDEO_POLL_SCHEDULE
+        );
+    }
+
+    private HttpRequest buildFreepikStatusRequest(String endpoint, String apiKey) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(endpoint))
+                .header("x-freepik-api-key", apiKey)
+                .header("Accept", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
     }
 
     private String buildFreepikImageEndpoint(String baseUrl, String modelSlug) {
@@ -737,8 +1782,9 @@ public class ChatService {
         String effectivePrompt = (prompt == null || prompt.isBlank())
                 ? "Create a short cinematic video"
                 : prompt.trim();
-        String aspectRatio = inferVideoAspectRatio(effectivePrompt);
-        int durationSeconds = inferVideoDurationSeconds(effectivePrompt);
+        PromptSignals signals = PromptSignals.scan(effectivePrompt);
+        String aspectRatio = inferVideoAspectRatio(signals);
+        int durationSeconds = inferVideoDurationSeconds(signals);
         return "{"
                 + "\"prompt\":\"" + jsonEscape(effectivePrompt) + "\","
                 + "\"duration\":" + durationSeconds + ","
@@ -748,6 +1794,7 @@ public class ChatService {
 
     private String buildFreepikResponseContent(String imageUrl, String taskId, String modelSlug) {
         if (imageUrl != null && !imageUrl.isBlank()) {
+            assetPrefetcher.fetch(imageUrl);
             return "![Generated image](" + imageUrl + ")";
         }
         return "Generating image...";
@@ -763,26 +1810,53 @@ public class ChatService {
         return "Generating video...";
     }
 
-    private String inferVideoAspectRatio(String prompt) {
-        String normalized = prompt == null ? "" : prompt.toLowerCase(Locale.ROOT);
-        if (containsAny(normalized, "portrait", "vertical", "reel", "story", "shorts", "tiktok")) {
+    private String inferVideoAspectRatio(PromptSignals signals) {
+        if (signals.has(PromptSignals.Signal.VERTICAL_FORMAT)) {
             return "9:16";
         }
-        if (containsAny(normalized, "square", "instagram post")) {
+        if (signals.has(PromptSignals.Signal.SQUARE_FORMAT)) {
             return "1:1";
         }
         return "16:9";
     }
 
-    private int inferVideoDurationSeconds(String prompt) {
-        String normalized = prompt == null ? "" : prompt.toLowerCase(Locale.ROOT);
-        if (containsAny(normalized, "10 second", "10-second", "longer video", "extended")) {
+    private int inferVideoDurationSeconds(PromptSignals signals) {
+        if (signals.has(PromptSignals.Signal.LONG_DURATION)) {
             return 10;
         }
         return 5;
     }
 
-    private String buildOpenAiChatRequestJson(List<Message> historySnapshot, String modelName) {
+    /**
+     * Whether the endpoint at {@code baseUrl} accepts {@code stream_options}. Some OpenAI-compatible servers
+     * reject unknown fields with HTTP 400, so it is only sent to api.openai.com and to hosts listed in
+     * {@code ai.streamUsage.hosts}. Groq reports usage in {@code x_groq} without it.
+     */
+    private boolean acceptsStreamOptions(String baseUrl) {
+        String host;
+        try {
+            host = URI.create(trimTrailingSlash(baseUrl)).getHost();
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        if (host == null) {
+            return false;
+        }
+        if ("api.openai.com".equalsIgnoreCase(host)) {
+            return true;
+        }
+        for (String listed : settingsManager.getString("ai.streamUsage.hosts", "").split(",")) {
+            if (host.equalsIgnoreCase(listed.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String buildOpenAiChatRequestJson(List<Message> historySnapshot,
+                                              String modelName,
+                                              boolean stream,
+                                              boolean includeUsage) {
         List<Message> sorted = historySnapshot.stream()
                 .sorted(Comparator.comparing(Message::getTimestamp))
                 .toList();
@@ -791,32 +1865,47 @@ public class ChatService {
         int maxTokens = settingsManager.getInt("ai.maxTokens", 4096);
         String customPrompt = settingsManager.getString("ai.systemPrompt", "");
         String effectivePrompt = (customPrompt != null && !customPrompt.isBlank()) ? customPrompt : SYSTEM_PROMPT;
+        sorted = packHistory(sorted, effectivePrompt, modelName);
 
         StringBuilder builder = new StringBuilder();
         builder.append("{");
         builder.append("\"model\":\"").append(jsonEscape(modelName)).append("\",");
         builder.append("\"temperature\":").append(temperature).append(",");
         builder.append("\"max_tokens\":").append(maxTokens).append(",");
+        if (stream) {
+            builder.append("\"stream\":true,");
+        }
+        if (includeUsage) {
+            // Without stream_options OpenAI leaves the usage block out of streamed replies.
+            builder.append("\"stream_options\":{\"include_usage\":true},");
+        }
         builder.append("\"messages\":[");
-        builder.append("{\"role\":\"system\",\"content\":\"").append(jsonEscape(effectivePrompt)).append("\"}");
+        builder.append("{\"role\":\"system\",\"content\":\"")
+                .append(fragmentCache.escapedSystemPrompt(effectivePrompt))
+                .append("\"}");
 
         for (Message msg : sorted) {
-            String role = msg.getSender() == Message.Sender.USER ? "user" : "assistant";
-            builder.append(",{\"role\":\"")
-                    .append(role)
-                    .append("\",\"content\":\"")
-                    .append(jsonEscape(msg.getContent()))
-                    .append("\"}");
+            builder.append(",").append(fragmentCache.openAiMessage(msg));
         }
 
         builder.append("]}");
         return builder.toString();
     }
 
-    private String buildGoogleChatRequestJson(List<Message> historySnapshot, ImageAttachment imageAttachment) {
-        List<Message> sorted = historySnapshot.stream()
-                .sorted(Comparator.comparing(Message::getTimestamp))
-                .toList();
+    /**
+     * Builds the generateContent body. An attached image is base64-encoded while the request is sent
+     * rather than up front, so the payload never exists as one large string.
+     */
+    private StreamingJsonBody buildGoogleChatRequestBody(List<Message> historySnapshot,
+                                                         String modelName,
+                                                         ImageAttachment imageAttachment) {
+        String customPrompt = settingsManager.getString("ai.systemPrompt", "");
+        String effectivePrompt = (customPrompt != null && !customPrompt.isBlank()) ? customPrompt : SYSTEM_PROMPT;
+        List<Message> sorted = packHistory(
+                historySnapshot.stream().sorted(Comparator.comparing(Message::getTimestamp)).toList(),
+                effectivePrompt,
+                modelName
+        );
         int latestUserIndex = -1;
         for (int i = sorted.size() - 1; i >= 0; i--) {
             Message candidate = sorted.get(i);
@@ -829,13 +1918,11 @@ public class ChatService {
 
         double temperature = settingsManager.getDouble("ai.temperature", 0.4);
         int maxTokens = settingsManager.getInt("ai.maxTokens", 4096);
-        String customPrompt = settingsManager.getString("ai.systemPrompt", "");
-        String effectivePrompt = (customPrompt != null && !customPrompt.isBlank()) ? customPrompt : SYSTEM_PROMPT;
 
-        StringBuilder builder = new StringBuilder();
+        StreamingJsonBody builder = new StreamingJsonBody();
         builder.append("{");
         builder.append("\"systemInstruction\":{\"parts\":[{\"text\":\"")
-                .append(jsonEscape(effectivePrompt))
+                .append(fragmentCache.escapedSystemPrompt(effectivePrompt))
                 .append("\"}]},");
         builder.append("\"generationConfig\":{")
                 .append("\"temperature\":").append(temperature).append(",")
@@ -849,18 +1936,15 @@ public class ChatService {
             if (!first) {
                 builder.append(",");
             }
-            String role = msg.getSender() == Message.Sender.USER ? "user" : "model";
             boolean attachImageToThisTurn = canAttachImage
                     && msg.getSender() == Message.Sender.USER
                     && i == latestUserIndex;
-            builder.append("{\"role\":\"").append(role).append("\",\"parts\":[{\"text\":\"")
-                    .append(jsonEscape(msg.getContent()))
-                    .append("\"}");
+            builder.append(fragmentCache.googleTurnOpening(msg));
             if (attachImageToThisTurn) {
                 builder.append(",{\"inline_data\":{\"mime_type\":\"")
                         .append(jsonEscape(imageAttachment.mimeType()))
                         .append("\",\"data\":\"")
-                        .append(imageAttachment.base64Data())
+                        .appendBase64(imageAttachment.data())
                         .append("\"}}");
             }
             builder.append("]}");
@@ -875,14 +1959,29 @@ public class ChatService {
                 builder.append(",{\"inline_data\":{\"mime_type\":\"")
                         .append(jsonEscape(imageAttachment.mimeType()))
                         .append("\",\"data\":\"")
-                        .append(imageAttachment.base64Data())
+                        .appendBase64(imageAttachment.data())
                         .append("\"}}");
             }
             builder.append("]}");
         }
 
         builder.append("]}");
-        return builder.toString();
+        return builder;
+    }
+
+    /**
+     * Trims the chronological history to the model's context window minus the reply budget, further
+     * capped by ai.maxPromptTokens so long sessions stop paying for ever-growing prompts.
+     */
+    private List<Message> packHistory(List<Message> chronologicalHistory, String systemPrompt, String modelName) {
+        int contextWindow = TokenEstimator.contextWindow(modelName);
+        // Keep 5% headroom for estimation error.
+        int budget = contextWindow - settingsManager.getInt("ai.maxTokens", 4096) - contextWindow / 20;
+        int promptCap = settingsManager.getInt("ai.maxPromptTokens", 32000);
+        if (promptCap > 0) {
+            budget = Math.min(budget, promptCap);
+        }
+        return HistoryPacker.pack(chronologicalHistory, systemPrompt, modelName, Math.max(MIN_PROMPT_BUDGET_TOKENS, budget));
     }
 
     private String buildLeonardoGenerationRequestJson(String prompt, String modelId) {
@@ -977,12 +2076,88 @@ public class ChatService {
         return Character.toUpperCase(value.charAt(0)) + value.substring(1);
     }
 
+    /**
+     * Returns the resolved provider configuration, rebuilding it only after app.properties changed on
+     * disk or an "ai.*" setting was updated. Environment variables are read once per rebuild.
+     */
+    private ConfigSnapshot currentConfigSnapshot() {
+        ConfigSnapshot snapshot = configSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        startConfigWatch();
+        long version = configVersion.get();
+        LoadedProperties loaded = loadAppProperties();
+        Map<ProviderType, ProviderConfig> providers = new EnumMap<>(ProviderType.class);
+        for (ProviderType providerType : ProviderType.values()) {
+            providers.put(providerType, resolveProviderConfig(providerType, loaded));
+        }
+        snapshot = new ConfigSnapshot(loaded.source(), Collections.unmodifiableMap(providers));
+        // An invalidation that raced with this rebuild wins; the next request loads again.
+        if (configVersion.get() == version) {
+            configSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private void invalidateConfigSnapshot() {
+        configVersion.incrementAndGet();
+        configSnapshot = null;
+        connectionWarmer.warmUpSoon();
+    }
+
+    private List<String> configuredProviderBaseUrls() {
+        List<String> baseUrls = new ArrayList<>();
+        for (ProviderConfig config : currentConfigSnapshot().providers().values()) {
+            if (!config.apiKeys().isEmpty()) {
+                baseUrls.add(config.baseUrl());
+            }
+        }
+        return baseUrls;
+    }
+
+    private void startConfigWatch() {
+        if (!configWatchStarted.compareAndSet(false, true)) {
+            return;
+        }
+        settingsManager.addChangeListener(key -> {
+            if (key != null && key.startsWith("ai.")) {
+                invalidateConfigSnapshot();
+            }
+            if ("ai.systemPrompt".equals(key)) {
+                fragmentCache.invalidateSystemPrompt();
+            }
+        });
+
+        List<Path> propertiesFiles = new ArrayList<>();
+        Path overridePath = resolveAppPropertiesOverride();
+        if (overridePath != null) {
+            propertiesFiles.add(overridePath);
+        } else {
+            Path projectDir = resolveProjectDirectory();
+            if (projectDir != null && projectDir.getParent() != null) {
+                propertiesFiles.add(projectDir.getParent().resolve(APP_PROPERTIES_FILE));
+            }
+            Path resourcePath = resolveResourcePropertiesPath(projectDir);
+            if (resourcePath != null) {
+                propertiesFiles.add(resourcePath);
+            }
+        }
+        new ConfigFileWatcher(propertiesFiles, this::invalidateConfigSnapshot).start();
+    }
+
     private LoadedProperties loadAppProperties() {
         Properties properties = new Properties();
         // Preferred order:
         // 1) Cortex folder (outside ai-project),
         // 2) ai-project/src/main/resources/app.properties,
         // 3) classpath fallback (/app.properties).
+        Path overridePath = resolveAppPropertiesOverride();
+        if (overridePath != null) {
+            return loadPropertiesFromFile(properties, overridePath)
+                    ? new LoadedProperties(properties, AppPropertiesSource.CORTEX_ROOT)
+                    : new LoadedProperties(properties, AppPropertiesSource.NOT_FOUND);
+        }
 
         Path projectDir = resolveProjectDirectory();
         Path externalPath = projectDir != null && projectDir.getParent() != null
@@ -1008,6 +2183,19 @@ public class ChatService {
         return new LoadedProperties(properties, AppPropertiesSource.NOT_FOUND);
     }
 
+    private Path resolveAppPropertiesOverride() {
+        String override = System.getProperty(APP_PROPERTIES_OVERRIDE_PROPERTY);
+        if (override == null || override.isBlank()) {
+            return null;
+        }
+        try {
+            return Paths.get(override.trim()).toAbsolutePath().normalize();
+        } catch (RuntimeException invalid) {
+            System.err.println("[ChatService] Ignoring invalid " + APP_PROPERTIES_OVERRIDE_PROPERTY + ": " + override);
+            return null;
+        }
+    }
+
     private Path resolveProjectDirectory() {
         try {
             Path userDir = Paths.get(System.getProperty("user.dir", ".")).toAbsolutePath().normalize();
@@ -1173,11 +2361,10 @@ public class ChatService {
         return new ProviderConfig(ProviderType.FREEPIK, baseUrl, modelName, List.copyOf(keys), source);
     }
 
-    private ProviderType resolveRequestedProvider(String latestUserText,
+    private ProviderType resolveRequestedProvider(PromptSignals signals,
                                                   PromptIntent promptIntent,
                                                   boolean hasImageAttachment,
                                                   RequestMode requestMode) {
-        String normalized = latestUserText == null ? "" : latestUserText.toLowerCase(Locale.ROOT);
         RequestMode mode = requestMode == null ? RequestMode.BEST : requestMode;
 
         switch (mode) {
@@ -1196,21 +2383,21 @@ public class ChatService {
         if (hasImageAttachment) {
             return ProviderType.GOOGLE_AI_STUDIO;
         }
-        if (containsAny(normalized, "use leonardo", "with leonardo", "leonardo api", "leonardo")) {
+        if (signals.has(PromptSignals.Signal.NAMES_LEONARDO)) {
             return ProviderType.LEONARDO;
         }
-        if (containsAny(normalized, "use freepik", "with freepik", "freepik api", "freepik")) {
+        if (signals.has(PromptSignals.Signal.NAMES_FREEPIK)) {
             return ProviderType.FREEPIK;
         }
-        if (containsAny(normalized, "use google", "google ai studio", "gemini", "use gemini")) {
+        if (signals.has(PromptSignals.Signal.NAMES_GOOGLE)) {
             return ProviderType.GOOGLE_AI_STUDIO;
         }
-        if (containsAny(normalized, "use groq", "groq api", "use llama", "llama 3", "llama-3")) {
+        if (signals.has(PromptSignals.Signal.NAMES_GROQ)) {
             return ProviderType.GROQ;
         }
         return switch (promptIntent) {
             case IMAGE_UNDERSTANDING -> ProviderType.GOOGLE_AI_STUDIO;
-            case IMAGE_GENERATION -> preferredImageProvider(normalized);
+            case IMAGE_GENERATION -> preferredImageProvider(signals);
             case VIDEO_GENERATION -> ProviderType.FREEPIK;
             case TEXT_CHAT -> ProviderType.GROQ;
         };
@@ -1218,10 +2405,10 @@ public class ChatService {
 
     private List<ProviderType> buildProviderAttemptOrder(ProviderType requestedProvider,
                                                          PromptIntent promptIntent,
-                                                         String latestUserText,
+                                                         PromptSignals signals,
                                                          boolean hasImageAttachment,
                                                          RequestMode requestMode,
-                                                         LoadedProperties loaded) {
+                                                         ConfigSnapshot snapshot) {
         List<ProviderType> preferred = new ArrayList<>();
         RequestMode mode = requestMode == null ? RequestMode.BEST : requestMode;
 
@@ -1231,7 +2418,7 @@ public class ChatService {
         }
         if (hasImageAttachment) {
             addProvider(preferred, ProviderType.GOOGLE_AI_STUDIO);
-            return prioritizeConfiguredProviders(preferred, loaded);
+            return prioritizeConfiguredProviders(preferred, snapshot);
         }
 
         switch (promptIntent) {
@@ -1240,7 +2427,7 @@ public class ChatService {
                 addProvider(preferred, ProviderType.GOOGLE_AI_STUDIO);
             }
             case IMAGE_GENERATION -> {
-                ProviderType primaryImageProvider = preferredImageProvider(latestUserText);
+                ProviderType primaryImageProvider = preferredImageProvider(signals);
                 addProviderIfCapable(preferred, requestedProvider, promptIntent);
                 addProvider(preferred, primaryImageProvider);
                 addProvider(preferred, primaryImageProvider == ProviderType.FREEPIK ? ProviderType.LEONARDO : ProviderType.FREEPIK);
@@ -1255,7 +2442,69 @@ public class ChatService {
                 addProvider(preferred, ProviderType.GOOGLE_AI_STUDIO);
             }
         }
-        return prioritizeConfiguredProviders(preferred, loaded);
+        boolean providerNamed = namesProvider(signals) && !preferred.isEmpty() && preferred.get(0) == requestedProvider;
+        return prioritizeConfiguredProviders(rankByProviderStats(preferred, promptIntent, providerNamed), snapshot);
+    }
+
+    private boolean namesProvider(PromptSignals signals) {
+        return signals.has(PromptSignals.Signal.NAMES_LEONARDO)
+                || signals.has(PromptSignals.Signal.NAMES_FREEPIK)
+                || signals.has(PromptSignals.Signal.NAMES_GOOGLE)
+                || signals.has(PromptSignals.Signal.NAMES_GROQ);
+    }
+
+    /**
+     * Orders BEST mode candidates by their expected time to a usable reply for this intent. Providers
+     * without enough history count as fast as the best measured one, so the static order still breaks
+     * the tie and they keep getting tried. Reply feedback scales the expected time, so a provider the
+     * user keeps marking down has to be clearly faster to stay ahead. A provider named in the prompt
+     * stays first. A provider whose numbers have gone stale is moved to the front for one request now
+     * and then, since ranking behind means it only gets calls when the leader fails.
+     */
+    private List<ProviderType> rankByProviderStats(List<ProviderType> preferred,
+                                                   PromptIntent promptIntent,
+                                                   boolean keepFirst) {
+        if (preferred.size() < 2 || !settingsManager.getBoolean("ai.adaptiveRouting.enabled", true)) {
+            return preferred;
+        }
+        Map<ProviderType, Double> expectedMillis = new EnumMap<>(ProviderType.class);
+        Map<String, Integer> feedbackScores = settingsManager.getAllApiFeedbackScores();
+        double bestKnown = Double.MAX_VALUE;
+        boolean hasFeedback = false;
+        for (ProviderType providerType : preferred) {
+            OptionalDouble expected = providerStats.expectedMillis(providerType.name(), promptIntent.name());
+            if (expected.isPresent()) {
+                expectedMillis.put(providerType, expected.getAsDouble());
+                bestKnown = Math.min(bestKnown, expected.getAsDouble());
+            }
+            hasFeedback |= feedbackScores.getOrDefault(providerType.name(), 0) != 0;
+        }
+        List<ProviderType> ranked = new ArrayList<>(preferred);
+        int first = keepFirst ? 1 : 0;
+        if (!expectedMillis.isEmpty() || hasFeedback) {
+            // Without any measurements only the feedback factors are compared.
+            double unknownMillis = expectedMillis.isEmpty() ? 1.0 : bestKnown;
+            ranked.subList(first, ranked.size())
+                    .sort(Comparator.comparingDouble(providerType -> expectedMillis.getOrDefault(providerType, unknownMillis)
+                            * feedbackFactor(feedbackScores.getOrDefault(providerType.name(), 0))));
+        }
+        for (int i = first + 1; i < ranked.size(); i++) {
+            if (providerStats.claimProbe(ranked.get(i).name(), promptIntent.name())) {
+                // Failover still reaches the usual leader if the probe fails.
+                ranked.add(first, ranked.remove(i));
+                break;
+            }
+        }
+        return ranked;
+    }
+
+    /**
+     * Each net point of reply feedback counts as 10% faster (or slower), capped at five points either
+     * way so a few clicks cannot outweigh a provider that is several times slower.
+     */
+    private static double feedbackFactor(int score) {
+        int clamped = Math.max(-MAX_FEEDBACK_POINTS, Math.min(MAX_FEEDBACK_POINTS, score));
+        return Math.pow(FEEDBACK_STEP, -clamped);
     }
 
     private void addProvider(List<ProviderType> order, ProviderType providerType) {
@@ -1273,26 +2522,24 @@ public class ChatService {
     }
 
     private List<ProviderType> prioritizeConfiguredProviders(List<ProviderType> preferred,
-                                                             LoadedProperties loaded) {
-        if (preferred == null || preferred.isEmpty() || loaded == null) {
+                                                             ConfigSnapshot snapshot) {
+        if (preferred == null || preferred.isEmpty() || snapshot == null) {
             return preferred == null ? List.of() : preferred;
         }
         List<ProviderType> configured = new ArrayList<>();
+        List<ProviderType> paused = new ArrayList<>();
         List<ProviderType> unavailable = new ArrayList<>();
-        // New: Use feedback scores to rank providers
-        Map<String, Integer> feedbackScores = settingsManager.getAllApiFeedbackScores();
-        preferred.stream()
-            .sorted((a, b) -> Integer.compare(
-                feedbackScores.getOrDefault(a.name(), 0),
-                feedbackScores.getOrDefault(b.name(), 0))
-            ).forEach(providerType -> {
-                ProviderConfig config = resolveProviderConfig(providerType, loaded);
-                if (config.apiKeys() != null && !config.apiKeys().isEmpty()) {
-                    configured.add(providerType);
-                } else {
-                    unavailable.add(providerType);
-                }
-            });
+        for (ProviderType providerType : preferred) {
+            ProviderConfig config = snapshot.provider(providerType);
+            if (config.apiKeys() == null || config.apiKeys().isEmpty()) {
+                unavailable.add(providerType);
+            } else if (isProviderPaused(config)) {
+                paused.add(providerType);
+            } else {
+                configured.add(providerType);
+            }
+        }
+        configured.addAll(paused);
         configured.addAll(unavailable);
         return configured;
     }
@@ -1309,92 +2556,34 @@ public class ChatService {
         };
     }
 
-    private PromptIntent classifyPromptIntent(String text, boolean hasImageAttachment) {
+    private PromptIntent classifyPromptIntent(PromptSignals signals, boolean hasImageAttachment) {
         if (hasImageAttachment) {
             return PromptIntent.IMAGE_UNDERSTANDING;
         }
-        String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT);
         // New: Handle mixed requests and more nuanced prompts
-        if (isVideoGenerationPrompt(normalized)) {
+        if (signals.isVideoGenerationPrompt()) {
             return PromptIntent.VIDEO_GENERATION;
         }
-        if (isImageGenerationPrompt(normalized)) {
+        if (signals.isImageGenerationPrompt()) {
             return PromptIntent.IMAGE_GENERATION;
         }
-        if (isImageUnderstandingPrompt(normalized)) {
+        if (signals.isImageUnderstandingPrompt()) {
             return PromptIntent.IMAGE_UNDERSTANDING;
         }
         return PromptIntent.TEXT_CHAT;
     }
 
-    private ProviderType preferredImageProvider(String text) {
-        String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT);
-        if (containsAny(normalized,
-                "logo", "icon", "poster", "banner", "flyer", "mockup", "product shot", "social media",
-                "advert", "ad creative", "branding", "packaging", "thumbnail")) {
+    private ProviderType preferredImageProvider(PromptSignals signals) {
+        if (signals.has(PromptSignals.Signal.DESIGN_ASSET)) {
             return ProviderType.FREEPIK;
         }
-        if (containsAny(normalized,
-                "cinematic", "fantasy", "character", "portrait", "concept art", "3d", "photorealistic",
-                "environment", "storyboard", "sci-fi", "anime")) {
+        if (signals.has(PromptSignals.Signal.ARTISTIC_SCENE)) {
             return ProviderType.LEONARDO;
         }
         return ProviderType.FREEPIK;
     }
 
-    private boolean isImageGenerationPrompt(String text) {
-        if (text == null || text.isBlank()) {
-            return false;
-        }
-        String normalized = text.toLowerCase(Locale.ROOT);
-        boolean mentionsVisual = containsAny(normalized,
-                "image", "photo", "picture", "art", "illustration", "logo", "icon", "poster", "wallpaper");
-        boolean mentionsCreate = containsAny(normalized,
-                "generate", "create", "make", "design", "draw", "render");
-        return containsAny(normalized,
-                "text to image", "image generation", "generate an image", "create an image", "make an image")
-                || (mentionsVisual && mentionsCreate);
-    }
-
-    private boolean isVideoGenerationPrompt(String text) {
-        if (text == null || text.isBlank()) {
-            return false;
-        }
-        String normalized = text.toLowerCase(Locale.ROOT);
-        if (containsAny(normalized, "video game", "game video settings") && !containsAny(normalized, "generate", "create", "make", "animate", "render")) {
-            return false;
-        }
-        boolean mentionsVideo = containsAny(normalized,
-                "video", "clip", "animation", "animated", "movie", "footage", "reel", "short film", "cinematic shot");
-        boolean mentionsCreate = containsAny(normalized,
-                "generate", "create", "make", "animate", "render", "produce", "convert", "turn");
-        return containsAny(normalized,
-                "text to video",
-                "video generation",
-                "generate a video",
-                "create a video",
-                "make a video",
-                "animate this",
-                "animate the image",
-                "image to video")
-                || (mentionsVideo && mentionsCreate);
-    }
-
-    private boolean isImageUnderstandingPrompt(String text) {
-        if (text == null || text.isBlank()) {
-            return false;
-        }
-        String normalized = text.toLowerCase(Locale.ROOT);
-        return containsAny(normalized,
-                "analyze image",
-                "describe image",
-                "what is in this image",
-                "read text from image",
-                "image understanding",
-                "image analysis");
-    }
-
-    private boolean shouldGenerateSupportingImage(String text,
+    private boolean shouldGenerateSupportingImage(PromptSignals signals,
                                                   PromptIntent promptIntent,
                                                   RequestMode requestMode,
                                                   boolean hasImageAttachment) {
@@ -1405,33 +2594,7 @@ public class ChatService {
         if (mode != RequestMode.BEST && mode != RequestMode.GROQ) {
             return false;
         }
-        String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT);
-        if (normalized.isBlank()) {
-            return false;
-        }
-        return containsAny(normalized,
-                "with image",
-                "with an image",
-                "with diagram",
-                "with a diagram",
-                "with illustration",
-                "visualize",
-                "visualise",
-                "show visually",
-                "show me visually",
-                "flowchart",
-                "diagram",
-                "illustration",
-                "visual aid",
-                "chart",
-                "timeline",
-                "map",
-                "anatomy",
-                "structure",
-                "architecture",
-                "workflow",
-                "process",
-                "how it works");
+        return signals.has(PromptSignals.Signal.SUPPORTING_VISUAL);
     }
 
     private boolean containsAny(String text, String... terms) {
@@ -1467,27 +2630,68 @@ public class ChatService {
                 && !content.contains("API keys are missing for:");
     }
 
-    private String requestSupportingImageMarkdown(LoadedProperties loaded,
-                                                  String latestUserText,
-                                                  String textReplyContent) {
-        ProviderConfig config = resolveProviderConfig(ProviderType.FREEPIK, loaded);
+    /**
+     * Markdown for a supporting image, completing with null when there is none. Only submitting the job
+     * happens on the calling thread.
+     */
+    private CompletableFuture<String> requestSupportingImageMarkdown(ConfigSnapshot snapshot,
+                                                                     String latestUserText,
+                                                                     String textReplyContent) {
+        ProviderConfig config = snapshot.provider(ProviderType.FREEPIK);
         if (config.apiKeys().isEmpty()) {
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String providerId = config.providerType().name();
+        // Optional extra: only when Freepik has a free slot, never ahead of someone's actual reply.
+        if (!providerAdmission.tryAcquire(providerId, settingsManager.getInt("ai.provider.maxConcurrentRequests", 4))) {
+            return CompletableFuture.completedFuture(null);
         }
+        try {
+            return requestSupportingImageWithKeys(config, latestUserText, textReplyContent);
+        } finally {
+            providerAdmission.release(providerId);
+        }
+    }
 
+    private CompletableFuture<String> requestSupportingImageWithKeys(ProviderConfig config,
+                                                                     String latestUserText,
+                                                                     String textReplyContent) {
         String imagePrompt = buildSupportingImagePrompt(latestUserText, textReplyContent);
-        String lastError = null;
-        for (String apiKey : config.apiKeys()) {
+        String providerCircuit = ProviderCircuitBreaker.providerCircuit(config.providerType().name());
+        if (!circuitBreaker.allowRequest(providerCircuit)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String providerId = config.providerType().name();
+        int requestsPerMinute = settingsManager.getInt("ai.keyPool.requestsPerMinute", 0);
+        Set<String> remainingKeys = new LinkedHashSet<>(config.apiKeys());
+        String apiKey;
+        // The supporting image is optional, so never wait for a rate-limited key here.
+        while ((apiKey = keyPool.acquire(providerId, remainingKeys, requestsPerMinute)) != null) {
+            remainingKeys.remove(apiKey);
+            String keyCircuit = ProviderCircuitBreaker.keyCircuit(providerId, apiKey);
+            if (!circuitBreaker.allowRequest(keyCircuit)) {
+                continue;
+            }
             ProviderCallResult result = callFreepikSupportingImage(config, apiKey, imagePrompt);
+            if (!result.success() && Thread.currentThread().isInterrupted()) {
+                // Cancelled along with its reply; not a provider failure.
+                circuitBreaker.release(keyCircuit);
+                break;
+            }
+            recordCallHealth(providerCircuit, keyCircuit, result);
             if (result.success()) {
-                return result.content();
+                return result.pendingContent() != null
+                        ? result.pendingContent()
+                        : CompletableFuture.completedFuture(result.content());
             }
-            lastError = result.error();
             if (!result.retryWithNextKey()) {
                 break;
             }
         }
-        return null;
+        // No-op unless every key was paused and the provider probe went unused.
+        circuitBreaker.release(providerCircuit);
+        return CompletableFuture.completedFuture(null);
     }
 
     private String buildSupportingImagePrompt(String latestUserText, String textReplyContent) {
@@ -1500,13 +2704,14 @@ public class ChatService {
         if (supportingContext.length() > 420) {
             supportingContext = supportingContext.substring(0, 420);
         }
+        // Pipelined requests start before the text reply exists, so there may be no context yet.
+        String contextLine = supportingContext.isEmpty() ? "" : "Context: " + supportingContext + "\n";
 
         return """
                 Create a clean educational illustration that helps explain this topic.
                 Topic: %s
-                Context: %s
-                Style: informative, easy to understand, modern, clear composition, minimal clutter, readable labels only when necessary.
-                """.formatted(topic, supportingContext).trim();
+                %sStyle: informative, easy to understand, modern, clear composition, minimal clutter, readable labels only when necessary.
+                """.formatted(topic, contextLine).trim();
     }
 
     private String stripMarkdownForImagePrompt(String content) {
@@ -1651,6 +2856,12 @@ public class ChatService {
     private record LoadedProperties(Properties properties, AppPropertiesSource source) {
     }
 
+    private record ConfigSnapshot(AppPropertiesSource source, Map<ProviderType, ProviderConfig> providers) {
+        private ProviderConfig provider(ProviderType providerType) {
+            return providers.get(providerType);
+        }
+    }
+
     private enum AppPropertiesSource {
         CORTEX_ROOT,
         RESOURCE_FALLBACK,
@@ -1705,117 +2916,57 @@ public class ChatService {
         return value.substring(0, end);
     }
 
-    private String extractAssistantContent(String json) {
-        int messageIndex = json.indexOf("\"message\"");
-        if (messageIndex < 0) {
-            return "I received a response, but could not parse assistant content.";
-        }
-        int contentKeyIndex = json.indexOf("\"content\"", messageIndex);
-        String content = extractJsonStringValueAtKey(json, contentKeyIndex);
-        return content == null ? "I received a response, but could not parse assistant content." : content;
+    private ProviderCallResult assistantReplyResult(Reader json) {
+        ProviderJsonParser.Reply reply = ProviderJsonParser.openAiReply(json);
+        String content = reply.text() == null ? "I received a response, but could not parse assistant content." : reply.text();
+        return ProviderCallResult.success(content, reply.usage());
     }
 
-    private String extractGoogleAssistantContent(String json) {
-        int candidatesIndex = json.indexOf("\"candidates\"");
-        if (candidatesIndex < 0) {
-            return null;
-        }
-        int contentIndex = json.indexOf("\"content\"", candidatesIndex);
-        if (contentIndex < 0) {
-            return null;
-        }
-        int partsIndex = json.indexOf("\"parts\"", contentIndex);
-        if (partsIndex < 0) {
-            return null;
-        }
-        int textKeyIndex = json.indexOf("\"text\"", partsIndex);
-        return extractJsonStringValueAtKey(json, textKeyIndex);
+    private String extractOpenAiStreamDelta(String json) {
+        return ProviderJsonParser.openAiStreamDelta(json);
+    }
+
+    private ProviderJsonParser.Reply extractGoogleReply(Reader json) {
+        return ProviderJsonParser.googleReply(json);
+    }
+
+    /**
+     * Text parts of the first candidate, concatenated, and the usage so far of one streamed
+     * generateContent chunk.
+     */
+    private ProviderJsonParser.Reply extractGoogleStreamChunk(String json) {
+        return ProviderJsonParser.googleReply(new StringReader(json));
     }
 
     private String extractLeonardoGenerationId(String json) {
-        int idIndex = json.indexOf("\"generationId\"");
-        return extractJsonStringValueAtKey(json, idIndex);
+        return ProviderJsonParser.firstStringValue(json, "generationId");
     }
 
     private String extractFreepikTaskId(String json) {
-        int idIndex = json.indexOf("\"task_id\"");
-        return extractJsonStringValueAtKey(json, idIndex);
+        return ProviderJsonParser.firstStringValue(json, "task_id");
     }
 
     private String extractFirstGeneratedAsset(String json) {
-        if (json == null || json.isBlank()) {
-            return null;
-        }
-        int generatedIndex = json.indexOf("\"generated\"");
-        String candidate = generatedIndex >= 0 ? json.substring(generatedIndex) : json;
-        Matcher matcher = HTTP_URL_PATTERN.matcher(candidate);
-        return matcher.find() ? matcher.group() : null;
+        return ProviderJsonParser.firstGeneratedAsset(json);
     }
 
     private String extractFirstUrl(String json) {
-        int urlIndex = json.indexOf("\"url\"");
-        return extractJsonStringValueAtKey(json, urlIndex);
+        return ProviderJsonParser.firstStringValue(json, "url");
     }
 
-    private String extractErrorMessage(String json) {
-        int errorIndex = json.indexOf("\"error\"");
-        int messageKeyIndex = errorIndex >= 0
-                ? json.indexOf("\"message\"", errorIndex)
-                : json.indexOf("\"message\"");
-        String message = extractJsonStringValueAtKey(json, messageKeyIndex);
+    private String extractErrorMessage(Reader json) {
+        String message = ProviderJsonParser.errorMessage(json);
         if (message != null && !message.isBlank()) {
             return message;
         }
         return "Unknown API error.";
     }
 
-    private String extractJsonStringValueAtKey(String json, int keyIndex) {
-        if (json == null || keyIndex < 0) {
-            return null;
-        }
-        int colonIndex = json.indexOf(':', keyIndex);
-        if (colonIndex < 0) {
-            return null;
-        }
-
-        int startQuote = -1;
-        for (int i = colonIndex + 1; i < json.length(); i++) {
-            char ch = json.charAt(i);
-            if (Character.isWhitespace(ch)) {
-                continue;
-            }
-            if (ch == '"') {
-                startQuote = i;
-            }
-            break;
-        }
-        if (startQuote < 0) {
-            return null;
-        }
-
-        StringBuilder raw = new StringBuilder();
-        boolean escaped = false;
-        for (int i = startQuote + 1; i < json.length(); i++) {
-            char ch = json.charAt(i);
-            if (escaped) {
-                raw.append(ch);
-                escaped = false;
-                continue;
-            }
-            if (ch == '\\') {
-                raw.append(ch);
-                escaped = true;
-                continue;
-            }
-            if (ch == '"') {
-                return jsonUnescape(raw.toString());
-            }
-            raw.append(ch);
-        }
-        return null;
+    private String extractErrorMessage(String json) {
+        return extractErrorMessage(new StringReader(json == null ? "" : json));
     }
 
-    private String jsonEscape(String value) {
+    static String jsonEscape(String value) {
         if (value == null) {
             return "";
         }
@@ -1842,40 +2993,6 @@ public class ChatService {
         return out.toString();
     }
 
-    private String jsonUnescape(String value) {
-        if (value == null || value.isEmpty()) {
-            return "";
-        }
-        StringBuilder out = new StringBuilder(value.length());
-        for (int i = 0; i < value.length(); i++) {
-            char ch = value.charAt(i);
-            if (ch == '\\' && i + 1 < value.length()) {
-                char next = value.charAt(++i);
-                switch (next) {
-                    case '"' -> out.append('"');
-                    case '\\' -> out.append('\\');
-                    case '/' -> out.append('/');
-                    case 'b' -> out.append('\b');
-                    case 'f' -> out.append('\f');
-                    case 'n' -> out.append('\n');
-                    case 'r' -> out.append('\r');
-                    case 't' -> out.append('\t');
-                    case 'u' -> {
-                        if (i + 4 < value.length()) {
-                            String hex = value.substring(i + 1, i + 5);
-                            out.append((char) Integer.parseInt(hex, 16));
-                            i += 4;
-                        }
-                    }
-                    default -> out.append(next);
-                }
-            } else {
-                out.append(ch);
-            }
-        }
-        return out.toString();
-    }
-
     private boolean shouldRetryWithNextKey(int statusCode) {
         return statusCode == 401 || statusCode == 403 || statusCode == 429 || statusCode >= 500;
     }
@@ -1910,16 +3027,238 @@ public class ChatService {
                                   AppPropertiesSource appPropertiesSource) {
     }
 
-    private record ProviderAttemptResult(boolean success, String content, String error) {
+    /**
+     * Per-request state shared by every provider attempt made for one reply.
+     * Hedged attempts get a child context; the first child to emit a token claims the stream and
+     * only its deltas reach the listener.
+     */
+    private static final class RequestContext {
+        private final StreamListener streamListener;
+        private final boolean streamingEnabled;
+        private final RequestContext parent;
+        private final boolean interactive;
+        private final AtomicReference<RequestContext> streamOwner = new AtomicReference<>();
+        private final List<Future<?>> pendingWork = new CopyOnWriteArrayList<>();
+        private volatile Runnable onStreamClaimed;
+        private volatile boolean cancelled;
+        private volatile boolean streamStarted;
+        private volatile long firstOutputNanos;
+        private volatile String servedBy;
+        private volatile String usageWarning;
+
+        private RequestContext(StreamListener streamListener, boolean streamingEnabled) {
+            this(streamListener, streamingEnabled, null, false);
+        }
+
+        private RequestContext(StreamListener streamListener,
+                               boolean streamingEnabled,
+                               RequestContext parent,
+                               boolean interactive) {
+            this.streamListener = streamListener;
+            this.streamingEnabled = streamingEnabled;
+            this.parent = parent;
+            this.interactive = interactive;
+        }
+
+        /**
+         * Unstreamed request someone is actively waiting on, admitted to providers ahead of chat replies.
+         */
+        private static RequestContext interactive() {
+            return new RequestContext(null, false, null, true);
+        }
+
+        private RequestContext hedgedAttempt() {
+            return new RequestContext(streamListener, streamingEnabled, this, interactive);
+        }
+
+        private boolean isInteractive() {
+            return interactive;
+        }
+
+        private void onStreamClaimed(Runnable callback) {
+            onStreamClaimed = callback;
+            if (parent != null && parent.streamOwner.get() == this) {
+                callback.run();
+            }
+        }
+
+        private boolean streaming() {
+            return streamingEnabled && streamListener != null;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            pendingWork.forEach(work -> work.cancel(true));
+        }
+
+        /**
+         * Cancels {@code work} along with the request. Used for generation jobs that are polled after
+         * the worker has moved on, so interrupting it would not reach them.
+         */
+        private void cancelWith(Future<?> work) {
+            if (parent != null) {
+                parent.cancelWith(work);
+                return;
+            }
+            pendingWork.add(work);
+            if (cancelled) {
+                work.cancel(true);
+            }
+        }
+
+        /**
+         * True once this request, or the reply it is a hedged attempt for, was cancelled.
+         */
+        private boolean cancelled() {
+            return cancelled || (parent != null && parent.cancelled());
+        }
+
+        private boolean streamClaimed() {
+            return streamOwner.get() != null;
+        }
+
+        private long firstOutputNanos() {
+            return firstOutputNanos;
+        }
+
+        private void recordServedBy(String provider) {
+            servedBy = provider;
+        }
+
+        private String servedBy() {
+            return servedBy;
+        }
+
+        private void recordUsageWarning(String warning) {
+            usageWarning = warning;
+        }
+
+        private String usageWarning() {
+            return usageWarning;
+        }
+
+        private void emit(String delta) {
+            if (!streaming() || delta == null || delta.isEmpty() || cancelled()) {
+                return;
+            }
+            if (!streamStarted) {
+                firstOutputNanos = System.nanoTime();
+                streamStarted = true;
+            }
+            if (parent != null) {
+                if (parent.streamOwner.compareAndSet(null, this)) {
+                    Runnable callback = onStreamClaimed;
+                    if (callback != null) {
+                        callback.run();
+                    }
+                }
+                if (parent.streamOwner.get() == this) {
+                    parent.emit(delta);
+                }
+                return;
+            }
+            try {
+                streamListener.onDelta(delta);
+            } catch (RuntimeException ignored) {
+                // A misbehaving listener must not break the provider call.
+            }
+        }
+
+        private void resetStreamIfStarted() {
+            if (!streamStarted) {
+                return;
+            }
+            streamStarted = false;
+            firstOutputNanos = 0;
+            if (parent != null) {
+                if (parent.streamOwner.get() == this) {
+                    parent.resetStreamIfStarted();
+                }
+                return;
+            }
+            try {
+                streamListener.onReset();
+            } catch (RuntimeException ignored) {
+                // A misbehaving listener must not break the provider call.
+            }
+        }
+
+        /**
+         * Gives up the stream held by a failed hedged attempt so the next candidate can start over.
+         */
+        private void releaseStream(RequestContext attempt) {
+            if (attempt != null && streamOwner.compareAndSet(attempt, null)) {
+                resetStreamIfStarted();
+            }
+        }
+    }
+
+    /**
+     * Outcome of trying one provider. An accepted generation job succeeds right away with
+     * {@code pending} set; that future completes with the finished attempt once the asset is ready.
+     */
+    private record ProviderAttemptResult(boolean success,
+                                         String content,
+                                         String error,
+                                         ProviderType provider,
+                                         ProviderJsonParser.Usage usage,
+                                         long latencyMs,
+                                         CompletableFuture<ProviderAttemptResult> pending) {
+        private ProviderAttemptResult(boolean success, String content, String error) {
+            this(success, content, error, null, null, 0, null);
+        }
+
+        private ProviderAttemptResult(boolean success,
+                                      String content,
+                                      String error,
+                                      ProviderType provider,
+                                      ProviderJsonParser.Usage usage,
+                                      long latencyMs) {
+            this(success, content, error, provider, usage, latencyMs, null);
+        }
     }
 
-    private record ProviderCallResult(boolean success, String content, String error, boolean retryWithNextKey) {
+    /**
+     * Outcome of one provider call. {@code statusCode} is the HTTP status of a failed call,
+     * {@link ProviderCircuitBreaker#TRANSPORT_ERROR} when no response arrived, or 0 when the failure
+     * says nothing about provider health (for example an unsupported prompt type). A generation job
+     * the provider accepted but has not finished is a success with {@code pendingContent} set instead
+     * of {@code content}.
+     */
+    private record ProviderCallResult(boolean success,
+                                      String content,
+                                      String error,
+                                      boolean retryWithNextKey,
+                                      int statusCode,
+                                      ProviderJsonParser.Usage usage,
+                                      CompletableFuture<String> pendingContent) {
         private static ProviderCallResult success(String content) {
-            return new ProviderCallResult(true, content, null, false);
+            return success(content, null);
+        }
+
+        private static ProviderCallResult success(String content, ProviderJsonParser.Usage usage) {
+            return new ProviderCallResult(true, content, null, false, 0, usage, null);
+        }
+
+        /**
+         * Content built from the polled asset URL once it arrives. Cancelling the content also stops the polling.
+         */
+        private static ProviderCallResult pending(CompletableFuture<String> assetUrl, Function<String, String> toContent) {
+            CompletableFuture<String> content = assetUrl.thenApply(toContent);
+            content.whenComplete((ignored, failure) -> {
+                if (content.isCancelled()) {
+                    assetUrl.cancel(true);
+                }
+            });
+            return new ProviderCallResult(true, null, null, false, 0, null, content);
         }
 
         private static ProviderCallResult failure(String error, boolean retryWithNextKey) {
-            return new ProviderCallResult(false, null, error, retryWithNextKey);
+            return new ProviderCallResult(false, null, error, retryWithNextKey, 0, null, null);
+        }
+
+        private static ProviderCallResult failure(String error, boolean retryWithNextKey, int statusCode) {
+            return new ProviderCallResult(false, null, error, retryWithNextKey, statusCode, null, null);
         }
     }
 }
@@ -0,0 +1,322 @@
+package com.example.chatbot.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * gzip support for {@link java.net.http.HttpClient}, which neither asks for compressed responses nor
+ * decodes them. Requests get {@code Accept-Encoding: gzip}, and {@link #decoding} wraps any body handler
+ * so a gzip body is inflated chunk by chunk before it reaches the wrapped subscriber. Streaming handlers
+ * such as {@code ofLines()} therefore still see each event as soon as its bytes arrive. Brotli is not
+ * offered because the JDK has no decoder for it.
+ *
+ * <p>Bytes on the wire and bytes after decoding are counted across all responses.
+ */
+final class CompressedBodies {
+    static final String ACCEPT_ENCODING = "gzip";
+
+    /**
+     * Totals since startup. For uncompressed responses wire and decoded bytes are the same.
+     */
+    record Totals(long responses, long compressedResponses, long wireBytes, long decodedBytes) {
+    }
+
+    private static final LongAdder RESPONSES = new LongAdder();
+    private static final LongAdder COMPRESSED_RESPONSES = new LongAdder();
+    private static final LongAdder WIRE_BYTES = new LongAdder();
+    private static final LongAdder DECODED_BYTES = new LongAdder();
+
+    private CompressedBodies() {
+    }
+
+    /**
+     * Copy of {@code request} that also accepts gzip, unless it already states an encoding.
+     */
+    static HttpRequest acceptingCompressed(HttpRequest request) {
+        if (request.headers().firstValue("Accept-Encoding").isPresent()) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true)
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .build();
+    }
+
+    static <T> HttpResponse.BodyHandler<T> decoding(HttpResponse.BodyHandler<T> handler) {
+        return responseInfo -> {
+            HttpResponse.BodySubscriber<T> downstream = handler.apply(responseInfo);
+            String encoding = responseInfo.headers().firstValue("Content-Encoding")
+                    .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                    .orElse("");
+            RESPONSES.increment();
+            if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+                COMPRESSED_RESPONSES.increment();
+                return new GzipSubscriber<>(downstream);
+            }
+            return new CountingSubscriber<>(downstream);
+        };
+    }
+
+    static Totals totals() {
+        return new Totals(RESPONSES.sum(), COMPRESSED_RESPONSES.sum(), WIRE_BYTES.sum(), DECODED_BYTES.sum());
+    }
+
+    private static long remaining(List<ByteBuffer> buffers) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        return total;
+    }
+
+    private static final class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> downstream;
+
+        private CountingSubscriber(HttpResponse.BodySubscriber<T> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            long size = remaining(item);
+            WIRE_BYTES.add(size);
+            DECODED_BYTES.add(size);
+            downstream.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            downstream.onComplete();
+        }
+    }
+
+    /**
+     * Inflates a gzip body (RFC 1952, including concatenated members) as it streams in. Demand passes
+     * straight through: a chunk that decodes to nothing, such as a header split across packets, is
+     * replaced by a request for the next one so the downstream subscriber never sees empty items.
+     */
+    private static final class GzipSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+        private static final int FHCRC = 2;
+        private static final int TRAILER_LENGTH = 8;
+
+        private enum State { HEADER, INFLATE, TRAILER, DONE }
+
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private final ByteArrayOutputStream carry = new ByteArrayOutputStream();
+        private final byte[] window = new byte[8192];
+        private Flow.Subscription subscription;
+        private State state = State.HEADER;
+        private long memberSize;
+        private int members;
+        private boolean failed;
+
+        private GzipSubscriber(HttpResponse.BodySubscriber<T> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            if (failed) {
+                return;
+            }
+            List<ByteBuffer> decoded = new ArrayList<>();
+            try {
+                for (ByteBuffer buffer : item) {
+                    byte[] chunk = new byte[buffer.remaining()];
+                    buffer.get(chunk);
+                    WIRE_BYTES.add(chunk.length);
+                    decode(chunk, decoded);
+                }
+            } catch (IOException ex) {
+                failed = true;
+                inflater.end();
+                subscription.cancel();
+                downstream.onError(ex);
+                return;
+            }
+            if (decoded.isEmpty()) {
+                subscription.request(1);
+                return;
+            }
+            DECODED_BYTES.add(remaining(decoded));
+            downstream.onNext(decoded);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            inflater.end();
+            if (!failed) {
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            inflater.end();
+            if (failed) {
+                return;
+            }
+            boolean complete = state == State.DONE || (state == State.HEADER && (members > 0 || carry.size() == 0));
+            if (complete) {
+                downstream.onComplete();
+            } else {
+                downstream.onError(new EOFException("Compressed response ended before the gzip stream did."));
+            }
+        }
+
+        private void decode(byte[] data, List<ByteBuffer> output) throws IOException {
+            int offset = 0;
+            while (offset < data.length && state != State.DONE) {
+                if (state == State.HEADER && members > 0 && carry.size() == 0 && (data[offset] & 0xFF) != 0x1F) {
+                    // Padding after the last member, which gunzip also skips.
+                    state = State.DONE;
+                    return;
+                }
+                if (state == State.INFLATE) {
+                    inflater.setInput(data, offset, data.length - offset);
+                    inflateAvailable(output);
+                    if (!inflater.finished()) {
+                        return;
+                    }
+                    offset = data.length - inflater.getRemaining();
+                    state = State.TRAILER;
+                    continue;
+                }
+
+                carry.write(data, offset, data.length - offset);
+                byte[] pending = carry.toByteArray();
+                int consumed = state == State.HEADER ? headerLength(pending) : pending.length >= TRAILER_LENGTH ? TRAILER_LENGTH : -1;
+                if (consumed < 0) {
+                    return;
+                }
+                carry.reset();
+                if (state == State.HEADER) {
+                    inflater.reset();
+                    crc.reset();
+                    memberSize = 0;
+                    state = State.INFLATE;
+                } else {
+                    verifyTrailer(pending);
+                    members++;
+                    state = State.HEADER;
+                }
+                data = pending;
+                offset = consumed;
+            }
+        }
+
+        private void inflateAvailable(List<ByteBuffer> output) throws IOException {
+            try {
+                while (!inflater.finished() && !inflater.needsInput()) {
+                    int count = inflater.inflate(window);
+                    if (count == 0) {
+                        if (inflater.needsDictionary()) {
+                            throw new ZipException("gzip stream needs a preset dictionary.");
+                        }
+                        break;
+                    }
+                    crc.update(window, 0, count);
+                    memberSize += count;
+                    output.add(ByteBuffer.wrap(Arrays.copyOf(window, count)));
+                }
+            } catch (DataFormatException ex) {
+                throw new ZipException("Corrupt gzip response: " + ex.getMessage());
+            }
+        }
+
+        private void verifyTrailer(byte[] trailer) throws ZipException {
+            long expectedCrc = littleEndianInt(trailer, 0);
+            long expectedSize = littleEndianInt(trailer, 4);
+            if (expectedCrc != crc.getValue() || expectedSize != (memberSize & 0xFFFFFFFFL)) {
+                throw new ZipException("gzip response failed its checksum.");
+            }
+        }
+
+        /**
+         * Length of the member header at the start of {@code bytes}, or -1 while it is incomplete.
+         */
+        private static int headerLength(byte[] bytes) throws ZipException {
+            if (bytes.length < 10) {
+                return -1;
+            }
+            if ((bytes[0] & 0xFF) != 0x1F || (bytes[1] & 0xFF) != 0x8B || bytes[2] != 8) {
+                throw new ZipException("Response is not in gzip format.");
+            }
+            int flags = bytes[3] & 0xFF;
+            int position = 10;
+            if ((flags & FEXTRA) != 0) {
+                if (bytes.length < position + 2) {
+                    return -1;
+                }
+                position += 2 + ((bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8);
+            }
+            for (int field : new int[]{FNAME, FCOMMENT}) {
+                if ((flags & field) != 0) {
+                    while (position < bytes.length && bytes[position] != 0) {
+                        position++;
+                    }
+                    if (position >= bytes.length) {
+                        return -1;
+                    }
+                    position++;
+                }
+            }
+            if ((flags & FHCRC) != 0) {
+                position += 2;
+            }
+            return position <= bytes.length ? position : -1;
+        }
+
+        private static long littleEndianInt(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xFFL)
+                    | (bytes[offset + 1] & 0xFFL) << 8
+                    | (bytes[offset + 2] & 0xFFL) << 16
+                    | (bytes[offset + 3] & 0xFFL) << 24;
+        }
+    }
+}
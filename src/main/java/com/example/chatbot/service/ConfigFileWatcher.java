@@ -0,0 +1,116 @@
+package com.example.chatbot.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches a handful of config files on a daemon thread and runs a callback whenever one of them is
+ * created, modified or deleted. The parent directories are watched, since editors often replace a
+ * file instead of writing it in place.
+ */
+final class ConfigFileWatcher {
+    private final Runnable onChange;
+    private final Map<Path, Set<Path>> watchedFilesByDirectory = new HashMap<>();
+
+    ConfigFileWatcher(Collection<Path> files, Runnable onChange) {
+        this.onChange = onChange;
+        for (Path file : files) {
+            if (file == null || file.getParent() == null || file.getFileName() == null) {
+                continue;
+            }
+            Path absolute = file.toAbsolutePath().normalize();
+            watchedFilesByDirectory.computeIfAbsent(absolute.getParent(), dir -> new HashSet<>())
+                    .add(absolute.getFileName());
+        }
+    }
+
+    /**
+     * Starts watching. Directories that do not exist are skipped; returns false when nothing could be watched.
+     */
+    boolean start() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.err.println("[ConfigFileWatcher] File watching unavailable: " + ex.getMessage());
+            return false;
+        }
+
+        Map<WatchKey, Path> directoriesByKey = new HashMap<>();
+        for (Path directory : watchedFilesByDirectory.keySet()) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try {
+                WatchKey key = directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                directoriesByKey.put(key, directory);
+            } catch (IOException ex) {
+                System.err.println("[ConfigFileWatcher] Cannot watch " + directory + ": " + ex.getMessage());
+            }
+        }
+        if (directoriesByKey.isEmpty()) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Nothing was registered.
+            }
+            return false;
+        }
+
+        Thread thread = new Thread(() -> watchLoop(watchService, directoriesByKey), "config-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void watchLoop(WatchService watchService, Map<WatchKey, Path> directoriesByKey) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException stopped) {
+                return;
+            }
+
+            Set<Path> watchedFiles = watchedFilesByDirectory.getOrDefault(directoriesByKey.get(key), Set.of());
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                // OVERFLOW means events were lost, so assume the file changed.
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || (event.context() instanceof Path name && watchedFiles.contains(name))) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                try {
+                    onChange.run();
+                } catch (RuntimeException ex) {
+                    System.err.println("[ConfigFileWatcher] Change callback failed: " + ex.getMessage());
+                }
+            }
+            if (!key.reset()) {
+                directoriesByKey.remove(key);
+                if (directoriesByKey.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.chatbot.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Opens connections to the configured provider hosts before the first real request needs them, so
+ * DNS, TCP, TLS and HTTP/2 setup happen in the background instead of in front of the user's first
+ * reply. While the window is focused the connections are kept from idling out with a cheap HEAD
+ * request per host. Each warm-up measures a cold request against an immediate warm one on the same
+ * connection; the difference is the setup time a real request no longer pays.
+ */
+final class ConnectionWarmer {
+    private static final Duration PING_TIMEOUT = Duration.ofSeconds(10);
+    private static final long WARM_UP_DELAY_MS = 1500;
+    // Well below the idle timeouts of the provider front ends (60 s and up).
+    private static final long KEEP_ALIVE_INTERVAL_MS = 45_000;
+
+    private final HttpClient httpClient;
+    private final Supplier<List<String>> baseUrls;
+    private final Map<String, Long> savedMillisByOrigin = new ConcurrentHashMap<>();
+    private volatile Set<URI> origins = Set.of();
+    private ScheduledFuture<?> pendingWarmUp;
+    private ScheduledFuture<?> keepAliveTask;
+
+    ConnectionWarmer(HttpClient httpClient, Supplier<List<String>> baseUrls) {
+        this.httpClient = httpClient;
+        this.baseUrls = baseUrls;
+    }
+
+    /**
+     * Schedules a warm-up of every configured host. Calls that arrive in quick succession, such as one
+     * per changed setting, collapse into a single warm-up.
+     */
+    synchronized void warmUpSoon() {
+        if (pendingWarmUp != null) {
+            pendingWarmUp.cancel(false);
+        }
+        pendingWarmUp = Scheduler.INSTANCE.schedule(this::warmUp, WARM_UP_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts or stops the periodic keep-alive pings.
+     */
+    synchronized void setKeepAlive(boolean active) {
+        if (active && keepAliveTask == null) {
+            keepAliveTask = Scheduler.INSTANCE.scheduleWithFixedDelay(
+                    this::pingAll,
+                    KEEP_ALIVE_INTERVAL_MS,
+                    KEEP_ALIVE_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS
+            );
+        } else if (!active && keepAliveTask != null) {
+            keepAliveTask.cancel(false);
+            keepAliveTask = null;
+        }
+    }
+
+    /**
+     * Connection setup time saved by the latest warm-up of each host, summed.
+     */
+    long savedMillis() {
+        long total = 0;
+        for (long saved : savedMillisByOrigin.values()) {
+            total += saved;
+        }
+        return total;
+    }
+
+    private void warmUp() {
+        Set<URI> resolved = new LinkedHashSet<>();
+        try {
+            for (String baseUrl : baseUrls.get()) {
+                URI origin = toOrigin(baseUrl);
+                if (origin != null) {
+                    resolved.add(origin);
+                }
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("[ConnectionWarmer] Could not resolve provider hosts: " + ex.getMessage());
+            return;
+        }
+        origins = Set.copyOf(resolved);
+        savedMillisByOrigin.keySet().retainAll(resolved.stream().map(URI::toString).toList());
+
+        for (URI origin : resolved) {
+            long coldStart = System.nanoTime();
+            ping(origin)
+                    .thenCompose(coldVersion -> {
+                        long coldMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - coldStart);
+                        long warmStart = System.nanoTime();
+                        return ping(origin).thenApply(warmVersion -> {
+                            long warmMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - warmStart);
+                            long saved = Math.max(0, coldMillis - warmMillis);
+                            savedMillisByOrigin.put(origin.toString(), saved);
+                            System.out.println("[ConnectionWarmer] " + origin.getHost() + " ready over " + warmVersion
+                                    + ": first request " + coldMillis + " ms, reused connection " + warmMillis
+                                    + " ms, ~" + saved + " ms setup saved.");
+                            return saved;
+                        });
+                    })
+                    .exceptionally(failure -> {
+                        System.err.println("[ConnectionWarmer] Warm-up of " + origin.getHost() + " failed: "
+                                + rootMessage(failure));
+                        return null;
+                    });
+        }
+    }
+
+    private void pingAll() {
+        for (URI origin : origins) {
+            ping(origin).exceptionally(failure -> null);
+        }
+    }
+
+    /**
+     * HEAD on the host root. The status code does not matter; any answer means the connection is up.
+     */
+    private CompletableFuture<HttpClient.Version> ping(URI origin) {
+        HttpRequest request = HttpRequest.newBuilder(origin)
+                .timeout(PING_TIMEOUT)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::version);
+    }
+
+    private static URI toOrigin(String baseUrl) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(baseUrl.trim());
+            if (uri.getHost() == null || !"https".equalsIgnoreCase(uri.getScheme())) {
+                // Plain-http endpoints are local or proxied; there is no handshake worth saving.
+                return null;
+            }
+            return new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(), "/", null, null);
+        } catch (Exception invalid) {
+            return null;
+        }
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable cause = failure;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+    }
+
+    private static final class Scheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("connection-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
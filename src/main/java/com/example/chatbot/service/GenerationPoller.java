@@ -0,0 +1,129 @@
+package com.example.chatbot.service;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Polls asynchronous generation jobs (Leonardo generations, Freepik image and video tasks) until
+ * the asset URL shows up. Status requests go out through {@link HttpClient#sendAsync} and the next
+ * poll is scheduled on a small shared scheduler, so waiting jobs do not hold a thread each: callers
+ * compose on the returned future instead of blocking on it. Delays start short and grow with every
+ * empty poll.
+ */
+final class GenerationPoller {
+    private static final double BACKOFF_MULTIPLIER = 1.5;
+
+    /**
+     * Poll timing: first delay, upper bound per delay, and total time before giving up.
+     */
+    record Schedule(long initialDelayMs, long maxDelayMs, long budgetMs) {
+    }
+
+    private final HttpClient httpClient;
+
+    GenerationPoller(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Repeats {@code statusRequest} until {@code extractAssetUrl} finds a URL in a 2xx body. The future
+     * completes with that URL, or with null once the schedule's budget runs out. Cancelling the future
+     * stops polling and aborts the status request in flight.
+     */
+    CompletableFuture<String> poll(HttpRequest statusRequest,
+                                   Function<String, String> extractAssetUrl,
+                                   Schedule schedule) {
+        Job job = new Job(CompressedBodies.acceptingCompressed(statusRequest), extractAssetUrl, schedule);
+        job.scheduleNext(schedule.initialDelayMs());
+        return job.result;
+    }
+
+    private final class Job {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicReference<CompletableFuture<?>> exchangeInFlight = new AtomicReference<>();
+        private final HttpRequest statusRequest;
+        private final Function<String, String> extractAssetUrl;
+        private final Schedule schedule;
+        private final long deadline;
+
+        private Job(HttpRequest statusRequest, Function<String, String> extractAssetUrl, Schedule schedule) {
+            this.statusRequest = statusRequest;
+            this.extractAssetUrl = extractAssetUrl;
+            this.schedule = schedule;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(schedule.budgetMs());
+            result.whenComplete((ignored, failure) -> {
+                CompletableFuture<?> exchange = exchangeInFlight.get();
+                if (exchange != null) {
+                    exchange.cancel(true);
+                }
+            });
+        }
+
+        private void scheduleNext(long delayMs) {
+            if (result.isDone()) {
+                return;
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                result.complete(null);
+                return;
+            }
+            Scheduler.INSTANCE.schedule(() -> pollOnce(delayMs), Math.min(delayMs, remainingMs), TimeUnit.MILLISECONDS);
+        }
+
+        private void pollOnce(long delayMs) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<HttpResponse<String>> exchange = httpClient.sendAsync(
+                    statusRequest,
+                    CompressedBodies.decoding(HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+            );
+            exchangeInFlight.set(exchange);
+            if (result.isDone()) {
+                // Cancelled between the check above and publishing the exchange.
+                exchange.cancel(true);
+                return;
+            }
+            exchange.whenComplete((response, failure) -> {
+                try {
+                    if (failure == null && response.statusCode() >= 200 && response.statusCode() < 300) {
+                        String assetUrl = extractAssetUrl.apply(response.body());
+                        if (assetUrl != null && !assetUrl.isBlank()) {
+                            result.complete(assetUrl);
+                            return;
+                        }
+                    }
+                } catch (RuntimeException ignored) {
+                    // Treat an unreadable status body like an empty poll.
+                }
+                // Transient failures keep polling until the budget is used up.
+                scheduleNext(Math.min(schedule.maxDelayMs(), (long) (delayMs * BACKOFF_MULTIPLIER)));
+            });
+        }
+    }
+
+    private static final class Scheduler {
+        private static final ScheduledExecutorService INSTANCE = createScheduler();
+
+        private static ScheduledExecutorService createScheduler() {
+            AtomicInteger threadCounter = new AtomicInteger();
+            // Only timers run here; the HTTP exchanges themselves are asynchronous.
+            return Executors.newScheduledThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("generation-poller-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
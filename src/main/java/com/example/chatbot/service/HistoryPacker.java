@@ -0,0 +1,92 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.model.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fits a conversation into a prompt token budget. The system prompt is reserved first, then turns are
+ * taken newest to oldest until the budget runs out. The turn that no longer fits is cut down to its
+ * most recent text when enough room is left, and everything older is dropped. The same input always
+ * gives the same output.
+ */
+final class HistoryPacker {
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int MIN_PARTIAL_TOKENS = 64;
+    private static final String TRUNCATION_MARKER = "[earlier part of this message omitted]\n";
+
+    private HistoryPacker() {
+    }
+
+    /**
+     * Returns the turns of {@code chronologicalHistory} that fit in {@code budgetTokens}, oldest first.
+     * The newest turn is always kept, truncated if it alone exceeds the budget. Kept turns are the
+     * original instances unless they had to be truncated.
+     */
+    static List<Message> pack(List<Message> chronologicalHistory,
+                              String systemPrompt,
+                              String modelName,
+                              int budgetTokens) {
+        if (chronologicalHistory == null || chronologicalHistory.isEmpty()) {
+            return List.of();
+        }
+        int remaining = budgetTokens
+                - TokenEstimator.estimate(systemPrompt, modelName)
+                - MESSAGE_OVERHEAD_TOKENS;
+
+        List<Message> packed = new ArrayList<>();
+        for (int i = chronologicalHistory.size() - 1; i >= 0; i--) {
+            Message message = chronologicalHistory.get(i);
+            if (message == null) {
+                continue;
+            }
+            int cost = TokenEstimator.estimate(message.getContent(), modelName) + MESSAGE_OVERHEAD_TOKENS;
+            if (cost <= remaining) {
+                packed.add(message);
+                remaining -= cost;
+                continue;
+            }
+            boolean newest = packed.isEmpty();
+            if (newest || remaining >= MIN_PARTIAL_TOKENS) {
+                packed.add(truncateToTail(message, Math.max(remaining, MIN_PARTIAL_TOKENS) - MESSAGE_OVERHEAD_TOKENS, modelName));
+            }
+            break;
+        }
+        Collections.reverse(packed);
+        return packed;
+    }
+
+    private static Message truncateToTail(Message message, int tokenBudget, String modelName) {
+        String content = message.getContent() == null ? "" : message.getContent();
+        int markerTokens = TokenEstimator.estimate(TRUNCATION_MARKER, modelName);
+        int target = Math.max(1, tokenBudget - markerTokens);
+
+        // Binary search on the suffix length; the estimate grows monotonically with text length.
+        int low = 0;
+        int high = content.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (TokenEstimator.estimate(content.substring(content.length() - mid), modelName) <= target) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int start = content.length() - low;
+        if (start > 0 && start < content.length() && Character.isLowSurrogate(content.charAt(start))) {
+            start++;
+        }
+        String tail = content.substring(start);
+        if (message.hasImageAttachment()) {
+            return new Message(
+                    message.getSender(),
+                    TRUNCATION_MARKER + tail,
+                    message.getImageFileName(),
+                    message.getImageMimeType(),
+                    message.getImageData()
+            );
+        }
+        return new Message(message.getSender(), TRUNCATION_MARKER + tail);
+    }
+}
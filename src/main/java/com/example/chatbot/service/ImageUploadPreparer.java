@@ -0,0 +1,244 @@
+package com.example.chatbot.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Shrinks image attachments before they are base64-encoded into a vision request. The image is decoded
+ * once, scaled so its longer side fits the largest size the vision models actually look at, and
+ * re-encoded: JPEG for opaque images, PNG when there is real transparency. Results are cached by a hash
+ * of the original bytes, so attaching an image starts the work early and the send reuses it.
+ * Anything that cannot be decoded or would not get smaller is uploaded as it is.
+ */
+final class ImageUploadPreparer {
+    private static final int CACHE_ENTRIES = 16;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * A cached outcome. {@code reencoded} is false when the original bytes go up unchanged, so callers
+     * with equal bytes keep their own name and type.
+     */
+    private record Prepared(ChatService.ImageAttachment attachment, boolean reencoded) {
+        private static Prepared unchanged(ChatService.ImageAttachment original) {
+            return new Prepared(original, false);
+        }
+    }
+
+    private final Map<String, CompletableFuture<Prepared>> prepared =
+            new LinkedHashMap<>(CACHE_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Prepared>> eldest) {
+                    return size() > CACHE_ENTRIES;
+                }
+            };
+
+    /**
+     * Upload-ready version of {@code original}, computed on a background thread. Concurrent and repeated
+     * calls for the same bytes and size limit share one result.
+     */
+    CompletableFuture<ChatService.ImageAttachment> prepare(ChatService.ImageAttachment original, int maxDimension) {
+        if (original == null || !original.hasData() || maxDimension <= 0) {
+            return CompletableFuture.completedFuture(original);
+        }
+        String key = contentHash(original.data()) + "@" + maxDimension;
+        synchronized (prepared) {
+            CompletableFuture<Prepared> existing = prepared.get(key);
+            if (existing != null) {
+                return existing.thenApply(result -> forCaller(result, original));
+            }
+            CompletableFuture<Prepared> task = CompletableFuture.supplyAsync(
+                    () -> shrink(original, maxDimension),
+                    Worker.INSTANCE
+            );
+            prepared.put(key, task);
+            task.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    synchronized (prepared) {
+                        prepared.remove(key, task);
+                    }
+                }
+            });
+            return task.thenApply(result -> forCaller(result, original));
+        }
+    }
+
+    private static Prepared shrink(ChatService.ImageAttachment original, int maxDimension) {
+        try {
+            long startedAt = System.nanoTime();
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(original.data()));
+            if (image == null) {
+                // No ImageIO reader for this format (WebP, for one); the provider decodes it instead.
+                return Prepared.unchanged(original);
+            }
+            int width = image.getWidth();
+            int height = image.getHeight();
+            boolean needsResize = Math.max(width, height) > maxDimension;
+            String mimeType = original.mimeType() == null ? "" : original.mimeType().toLowerCase(Locale.ROOT);
+            if (!needsResize && (mimeType.equals("image/jpeg") || mimeType.equals("image/gif"))) {
+                // Already compact, and re-encoding a small JPEG only adds artifacts.
+                return Prepared.unchanged(original);
+            }
+
+            BufferedImage scaled = needsResize ? scale(image, maxDimension) : image;
+            boolean transparent = hasTransparency(scaled);
+            byte[] encoded = transparent ? encodePng(scaled) : encodeJpeg(scaled);
+            if (encoded == null || encoded.length >= original.data().length) {
+                return Prepared.unchanged(original);
+            }
+            ChatService.ImageAttachment result = new ChatService.ImageAttachment(
+                    withExtension(original.fileName(), transparent ? "png" : "jpg"),
+                    transparent ? "image/png" : "image/jpeg",
+                    encoded
+            );
+            System.out.println("[ImageUpload] " + original.fileName() + ": " + width + "x" + height + " "
+                    + original.data().length / 1024 + " KB -> " + scaled.getWidth() + "x" + scaled.getHeight() + " "
+                    + encoded.length / 1024 + " KB in " + (System.nanoTime() - startedAt) / 1_000_000 + " ms");
+            return new Prepared(result, true);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("[ImageUpload] Could not shrink " + original.fileName() + ": " + ex.getMessage());
+            return Prepared.unchanged(original);
+        }
+    }
+
+    /**
+     * Halves the image with bilinear filtering until one last step reaches the target size. Going down in
+     * one bilinear step would skip most source pixels and alias fine text in screenshots.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxDimension) {
+        double ratio = (double) maxDimension / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static boolean hasTransparency(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+            for (int argb : row) {
+                if (argb >>> 24 != 0xFF) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            // The JPEG writer rejects alpha channels; flatten onto white like a viewer would show it.
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            try {
+                graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            return null;
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        return ImageIO.write(image, "png", output) ? output.toByteArray() : null;
+    }
+
+    /**
+     * The cached outcome as seen by one caller: its own attachment when nothing was re-encoded, otherwise
+     * the re-encoded bytes under the caller's file name with the new extension.
+     */
+    private static ChatService.ImageAttachment forCaller(Prepared result, ChatService.ImageAttachment original) {
+        if (result == null || !result.reencoded()) {
+            return original;
+        }
+        ChatService.ImageAttachment attachment = result.attachment();
+        String extension = "image/png".equals(attachment.mimeType()) ? "png" : "jpg";
+        return new ChatService.ImageAttachment(
+                withExtension(original.fileName(), extension),
+                attachment.mimeType(),
+                attachment.data()
+        );
+    }
+
+    private static String withExtension(String fileName, String extension) {
+        String base = fileName == null || fileName.isBlank() ? "image" : fileName;
+        int dot = base.lastIndexOf('.');
+        return (dot > 0 ? base.substring(0, dot) : base) + "." + extension;
+    }
+
+    private static String contentHash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException unavailable) {
+            throw new IllegalStateException(unavailable);
+        }
+    }
+
+    private static final class Worker {
+        // Decoding a 4K screenshot holds ~30 MB of pixels; two at a time is plenty.
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName("image-upload-preparer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.model.Message;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Remembers the escaped, role-tagged JSON fragment of each history message so a request body is
+ * assembled by concatenation instead of re-escaping the whole conversation on every send.
+ * Entries are keyed by message identity and hold the content string they were built from:
+ * {@link Message#editContent} swaps that string, which makes the next lookup rebuild the fragment.
+ * Messages that leave every conversation are dropped with them.
+ */
+final class MessageFragmentCache {
+    private final UnaryOperator<String> jsonEscaper;
+    private final Map<Message, Fragments> fragments = new WeakHashMap<>();
+    private volatile EscapedText systemPrompt;
+
+    MessageFragmentCache(UnaryOperator<String> jsonEscaper) {
+        this.jsonEscaper = jsonEscaper;
+    }
+
+    /**
+     * {@code {"role":"user|assistant","content":"..."}} for OpenAI-compatible chat requests.
+     */
+    String openAiMessage(Message message) {
+        Fragments entry = fragmentsFor(message);
+        String fragment = entry.openAiMessage;
+        if (fragment == null) {
+            String role = message.getSender() == Message.Sender.USER ? "user" : "assistant";
+            fragment = "{\"role\":\"" + role + "\",\"content\":\"" + entry.escapedContent + "\"}";
+            entry.openAiMessage = fragment;
+        }
+        return fragment;
+    }
+
+    /**
+     * {@code {"role":"user|model","parts":[{"text":"..."}} for Google requests, left open so the
+     * caller can add inline data before closing the parts array and the turn.
+     */
+    String googleTurnOpening(Message message) {
+        Fragments entry = fragmentsFor(message);
+        String fragment = entry.googleTurnOpening;
+        if (fragment == null) {
+            String role = message.getSender() == Message.Sender.USER ? "user" : "model";
+            fragment = "{\"role\":\"" + role + "\",\"parts\":[{\"text\":\"" + entry.escapedContent + "\"}";
+            entry.googleTurnOpening = fragment;
+        }
+        return fragment;
+    }
+
+    /**
+     * Escaped form of the effective system prompt, rebuilt only when the prompt text changes.
+     */
+    String escapedSystemPrompt(String prompt) {
+        EscapedText cached = systemPrompt;
+        if (cached != null && cached.raw().equals(prompt)) {
+            return cached.escaped();
+        }
+        EscapedText rebuilt = new EscapedText(prompt, jsonEscaper.apply(prompt));
+        systemPrompt = rebuilt;
+        return rebuilt.escaped();
+    }
+
+    void invalidateSystemPrompt() {
+        systemPrompt = null;
+    }
+
+    private Fragments fragmentsFor(Message message) {
+        String content = message.getContent();
+        synchronized (fragments) {
+            Fragments entry = fragments.get(message);
+            // Identity check on purpose: an edit always installs a new content string.
+            if (entry == null || entry.content != content) {
+                entry = new Fragments(content, jsonEscaper.apply(content));
+                fragments.put(message, entry);
+            }
+            return entry;
+        }
+    }
+
+    private record EscapedText(String raw, String escaped) {
+    }
+
+    private static final class Fragments {
+        private final String content;
+        private final String escapedContent;
+        private volatile String openAiMessage;
+        private volatile String googleTurnOpening;
+
+        private Fragments(String content, String escapedContent) {
+            this.content = content;
+            this.escapedContent = escapedContent;
+        }
+    }
+}
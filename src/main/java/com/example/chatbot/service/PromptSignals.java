@@ -0,0 +1,206 @@
+package com.example.chatbot.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyword signals found in a user prompt, used to pick the intent and provider for a reply.
+ * Every keyword list is compiled into one Aho-Corasick automaton, so a prompt is read exactly once
+ * no matter how many lists there are, and pasted code or logs cost one table lookup per character.
+ * Matching is case-insensitive substring matching, the same as {@code text.toLowerCase().contains(k)}
+ * except for the few characters whose lower case is longer than one char, such as U+0130, which are
+ * lower-cased one char at a time here.
+ */
+public final class PromptSignals {
+
+    enum Signal {
+        VISUAL_SUBJECT("image", "photo", "picture", "art", "illustration", "logo", "icon", "poster", "wallpaper"),
+        IMAGE_CREATE_VERB("generate", "create", "make", "design", "draw", "render"),
+        EXPLICIT_IMAGE_REQUEST("text to image", "image generation", "generate an image", "create an image", "make an image"),
+        VIDEO_GAME_TOPIC("video game", "game video settings"),
+        ANIMATE_VERB("generate", "create", "make", "animate", "render"),
+        VIDEO_SUBJECT("video", "clip", "animation", "animated", "movie", "footage", "reel", "short film", "cinematic shot"),
+        VIDEO_CREATE_VERB("generate", "create", "make", "animate", "render", "produce", "convert", "turn"),
+        EXPLICIT_VIDEO_REQUEST("text to video", "video generation", "generate a video", "create a video", "make a video",
+                "animate this", "animate the image", "image to video"),
+        IMAGE_UNDERSTANDING_REQUEST("analyze image", "describe image", "what is in this image", "read text from image",
+                "image understanding", "image analysis"),
+        SUPPORTING_VISUAL("with image", "with an image", "with diagram", "with a diagram", "with illustration",
+                "visualize", "visualise", "show visually", "show me visually", "flowchart", "diagram", "illustration",
+                "visual aid", "chart", "timeline", "map", "anatomy", "structure", "architecture", "workflow",
+                "process", "how it works"),
+        DESIGN_ASSET("logo", "icon", "poster", "banner", "flyer", "mockup", "product shot", "social media",
+                "advert", "ad creative", "branding", "packaging", "thumbnail"),
+        ARTISTIC_SCENE("cinematic", "fantasy", "character", "portrait", "concept art", "3d", "photorealistic",
+                "environment", "storyboard", "sci-fi", "anime"),
+        NAMES_LEONARDO("use leonardo", "with leonardo", "leonardo api", "leonardo"),
+        NAMES_FREEPIK("use freepik", "with freepik", "freepik api", "freepik"),
+        NAMES_GOOGLE("use google", "google ai studio", "gemini", "use gemini"),
+        NAMES_GROQ("use groq", "groq api", "use llama", "llama 3", "llama-3"),
+        VERTICAL_FORMAT("portrait", "vertical", "reel", "story", "shorts", "tiktok"),
+        SQUARE_FORMAT("square", "instagram post"),
+        LONG_DURATION("10 second", "10-second", "longer video", "extended");
+
+        private final String[] keywords;
+
+        Signal(String... keywords) {
+            this.keywords = keywords;
+        }
+
+        List<String> keywords() {
+            return List.of(keywords);
+        }
+    }
+
+    private static final Signal[] SIGNALS = Signal.values();
+    private static final Automaton AUTOMATON = Automaton.compile();
+    private static final PromptSignals NONE = new PromptSignals(0L);
+
+    private final long found;
+
+    private PromptSignals(long found) {
+        this.found = found;
+    }
+
+    public static PromptSignals scan(String text) {
+        if (text == null || text.isEmpty()) {
+            return NONE;
+        }
+        return new PromptSignals(AUTOMATON.scan(text));
+    }
+
+    public boolean isImageGenerationPrompt() {
+        return has(Signal.EXPLICIT_IMAGE_REQUEST)
+                || (has(Signal.VISUAL_SUBJECT) && has(Signal.IMAGE_CREATE_VERB));
+    }
+
+    public boolean isVideoGenerationPrompt() {
+        if (has(Signal.VIDEO_GAME_TOPIC) && !has(Signal.ANIMATE_VERB)) {
+            return false;
+        }
+        return has(Signal.EXPLICIT_VIDEO_REQUEST)
+                || (has(Signal.VIDEO_SUBJECT) && has(Signal.VIDEO_CREATE_VERB));
+    }
+
+    public boolean isImageUnderstandingPrompt() {
+        return has(Signal.IMAGE_UNDERSTANDING_REQUEST);
+    }
+
+    boolean has(Signal signal) {
+        return (found & (1L << signal.ordinal())) != 0;
+    }
+
+    /**
+     * Dense DFA over the characters that occur in the keywords; any other character sends the scan
+     * back to the root, since no keyword can continue through it.
+     */
+    private static final class Automaton {
+        private final int[] symbolOf;
+        private final int symbolCount;
+        private final int[] next;
+        private final long[] output;
+
+        private Automaton(int[] symbolOf, int symbolCount, int[] next, long[] output) {
+            this.symbolOf = symbolOf;
+            this.symbolCount = symbolCount;
+            this.next = next;
+            this.output = output;
+        }
+
+        private static Automaton compile() {
+            if (SIGNALS.length > Long.SIZE) {
+                throw new IllegalStateException("Too many prompt signals for a long mask.");
+            }
+            // One keyword may feed several signals ("make" is a create verb for images and videos).
+            Map<String, Long> keywordMasks = new LinkedHashMap<>();
+            for (Signal signal : SIGNALS) {
+                for (String keyword : signal.keywords) {
+                    keywordMasks.merge(keyword, 1L << signal.ordinal(), (a, b) -> a | b);
+                }
+            }
+
+            int[] symbolOf = new int[128];
+            Arrays.fill(symbolOf, -1);
+            int symbolCount = 0;
+            int maxStates = 1;
+            for (String keyword : keywordMasks.keySet()) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char ch = keyword.charAt(i);
+                    if (ch >= 128 || Character.toLowerCase(ch) != ch) {
+                        throw new IllegalStateException("Prompt keywords must be lower-case ASCII: " + keyword);
+                    }
+                    if (symbolOf[ch] < 0) {
+                        symbolOf[ch] = symbolCount++;
+                    }
+                }
+                maxStates += keyword.length();
+            }
+
+            // Trie first, with -1 for missing edges.
+            int[] next = new int[maxStates * symbolCount];
+            Arrays.fill(next, -1);
+            long[] output = new long[maxStates];
+            int states = 1;
+            for (Map.Entry<String, Long> entry : keywordMasks.entrySet()) {
+                int state = 0;
+                for (int i = 0; i < entry.getKey().length(); i++) {
+                    int edge = state * symbolCount + symbolOf[entry.getKey().charAt(i)];
+                    if (next[edge] < 0) {
+                        next[edge] = states++;
+                    }
+                    state = next[edge];
+                }
+                output[state] |= entry.getValue();
+            }
+
+            // Breadth-first pass turns failure links into direct transitions and merges outputs.
+            int[] fail = new int[states];
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int child = next[symbol];
+                if (child < 0) {
+                    next[symbol] = 0;
+                } else {
+                    fail[child] = 0;
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                output[state] |= output[fail[state]];
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    int edge = state * symbolCount + symbol;
+                    int fallback = next[fail[state] * symbolCount + symbol];
+                    if (next[edge] < 0) {
+                        next[edge] = fallback;
+                    } else {
+                        fail[next[edge]] = fallback;
+                        queue.add(next[edge]);
+                    }
+                }
+            }
+            return new Automaton(
+                    symbolOf,
+                    symbolCount,
+                    Arrays.copyOf(next, states * symbolCount),
+                    Arrays.copyOf(output, states)
+            );
+        }
+
+        private long scan(String text) {
+            long found = 0;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char ch = Character.toLowerCase(text.charAt(i));
+                int symbol = ch < 128 ? symbolOf[ch] : -1;
+                state = symbol < 0 ? 0 : next[state * symbolCount + symbol];
+                found |= output[state];
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.chatbot.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many calls run against one provider at a time, across all conversations, hedged attempts
+ * and supporting images. Past the cap a call waits for a slot; interactive calls are admitted ahead of
+ * waiting conversation calls. Key rate limits are separate, see {@link ApiKeyPool}.
+ */
+final class ProviderAdmission {
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * Waits until {@code providerId} has fewer than {@code limit} calls in flight and takes a slot.
+     * Returns false when no slot opened before {@code deadlineNanos}.
+     */
+    boolean acquire(String providerId, int limit, boolean interactive, long deadlineNanos) throws InterruptedException {
+        return gate(providerId).acquire(Math.max(1, limit), interactive, deadlineNanos);
+    }
+
+    /**
+     * Takes a slot only if one is free right now and no interactive call is waiting for it.
+     */
+    boolean tryAcquire(String providerId, int limit) {
+        try {
+            return gate(providerId).acquire(Math.max(1, limit), false, System.nanoTime());
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void release(String providerId) {
+        Gate gate = gates.get(providerId);
+        if (gate != null) {
+            gate.release();
+        }
+    }
+
+    private Gate gate(String providerId) {
+        return gates.computeIfAbsent(providerId, ignored -> new Gate());
+    }
+
+    private static final class Gate {
+        private int inFlight;
+        private int interactiveWaiting;
+
+        private synchronized boolean acquire(int limit, boolean interactive, long deadlineNanos) throws InterruptedException {
+            if (interactive) {
+                interactiveWaiting++;
+            }
+            try {
+                while (inFlight >= limit || (!interactive && interactiveWaiting > 0)) {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                if (interactive) {
+                    interactiveWaiting--;
+                    // Conversation calls held back for this one may go ahead now.
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized void release() {
+            inFlight = Math.max(0, inFlight - 1);
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.chatbot.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Closed / open / half-open circuit breakers keyed by provider or by provider API key.
+ * Rejected keys (401/403) open immediately; server and transport errors open a circuit after a
+ * few consecutive failures. Rate limits are not failures here; {@link ApiKeyPool} handles them.
+ * Once the cooldown has elapsed a single probe request is let through: success closes the circuit,
+ * failure re-opens it with a longer cooldown.
+ */
+final class ProviderCircuitBreaker {
+    static final int TRANSPORT_ERROR = -1;
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long AUTH_COOLDOWN_MS = 5 * 60_000L;
+    private static final long ERROR_COOLDOWN_MS = 20_000L;
+    private static final long MAX_COOLDOWN_MS = 10 * 60_000L;
+    private static final long PROBE_TIMEOUT_MS = 2 * 60_000L;
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    ProviderCircuitBreaker() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * {@code clock} returns milliseconds; only differences between its readings are used.
+     */
+    ProviderCircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    static String providerCircuit(String providerId) {
+        return providerId;
+    }
+
+    static String keyCircuit(String providerId, String apiKey) {
+        // Keep raw keys out of the map so they never show up in dumps or logs.
+        return providerId + "#" + Integer.toHexString(apiKey == null ? 0 : apiKey.hashCode());
+    }
+
+    /**
+     * Returns true when a call may be made now. An open circuit whose cooldown has elapsed moves to
+     * half-open and admits exactly one probe; other callers keep being rejected until it reports back.
+     */
+    boolean allowRequest(String circuitId) {
+        Circuit circuit = circuits.get(circuitId);
+        return circuit == null || circuit.tryAcquire(clock.getAsLong());
+    }
+
+    /**
+     * Side-effect free check used when ordering providers: true while the circuit is open and cooling down.
+     */
+    boolean isOpen(String circuitId) {
+        Circuit circuit = circuits.get(circuitId);
+        return circuit != null && circuit.isRejecting(clock.getAsLong());
+    }
+
+    long remainingCooldownMillis(String circuitId) {
+        Circuit circuit = circuits.get(circuitId);
+        return circuit == null ? 0 : circuit.remainingCooldown(clock.getAsLong());
+    }
+
+    void recordSuccess(String circuitId) {
+        Circuit circuit = circuits.get(circuitId);
+        if (circuit != null) {
+            circuit.reset();
+        }
+    }
+
+    /**
+     * Ends a call whose outcome says nothing about health (cancelled, unsupported prompt). A half-open
+     * circuit goes back to open with its cooldown already elapsed, so the next caller becomes the probe.
+     */
+    void release(String circuitId) {
+        Circuit circuit = circuits.get(circuitId);
+        if (circuit != null) {
+            circuit.releaseProbe(clock.getAsLong());
+        }
+    }
+
+    /**
+     * Records a failed call. {@code statusCode} is the HTTP status, or {@link #TRANSPORT_ERROR}
+     * when no response arrived.
+     */
+    void recordFailure(String circuitId, int statusCode) {
+        long cooldown;
+        boolean tripImmediately;
+        if (statusCode == 401 || statusCode == 403) {
+            cooldown = AUTH_COOLDOWN_MS;
+            tripImmediately = true;
+        } else if (statusCode >= 500 || statusCode == TRANSPORT_ERROR) {
+            cooldown = ERROR_COOLDOWN_MS;
+            tripImmediately = false;
+        } else {
+            // Other client errors (and 429s) describe the request, not the health of the key or provider.
+            release(circuitId);
+            return;
+        }
+        circuits.computeIfAbsent(circuitId, id -> new Circuit())
+                .fail(clock.getAsLong(), cooldown, tripImmediately);
+    }
+
+    private static final class Circuit {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private int consecutiveTrips;
+        private long openUntil;
+        private long probeStartedAt;
+
+        private synchronized boolean tryAcquire(long now) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (isRejecting(now)) {
+                return false;
+            }
+            // Cooldown elapsed, or the previous probe never reported back.
+            state = State.HALF_OPEN;
+            probeStartedAt = now;
+            return true;
+        }
+
+        private synchronized boolean isRejecting(long now) {
+            return switch (state) {
+                case CLOSED -> false;
+                case OPEN -> now < openUntil;
+                case HALF_OPEN -> now - probeStartedAt < PROBE_TIMEOUT_MS;
+            };
+        }
+
+        private synchronized void releaseProbe(long now) {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openUntil = now;
+            }
+        }
+
+        private synchronized long remainingCooldown(long now) {
+            return state == State.OPEN ? Math.max(0, openUntil - now) : 0;
+        }
+
+        private synchronized void reset() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            consecutiveTrips = 0;
+            openUntil = 0;
+        }
+
+        private synchronized void fail(long now, long cooldown, boolean tripImmediately) {
+            consecutiveFailures++;
+            boolean failedProbe = state == State.HALF_OPEN;
+            if (!tripImmediately && !failedProbe && consecutiveFailures < FAILURE_THRESHOLD) {
+                return;
+            }
+            // Back off harder each time a probe fails again.
+            long scaled = cooldown << Math.min(consecutiveTrips, 5);
+            consecutiveTrips++;
+            state = State.OPEN;
+            openUntil = now + Math.min(MAX_COOLDOWN_MS, Math.max(cooldown, scaled));
+        }
+    }
+}
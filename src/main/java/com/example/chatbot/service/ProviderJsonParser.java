@@ -0,0 +1,447 @@
+package com.example.chatbot.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Pulls the few fields Cortex needs out of provider responses with Gson's streaming {@link JsonReader}.
+ * Each method walks only the path it needs and stops reading as soon as the value is found, so large
+ * bodies are never materialized and keys that merely appear earlier in the payload are not mistaken
+ * for the target. Malformed input yields null rather than an exception.
+ */
+final class ProviderJsonParser {
+    /**
+     * Token counts a provider reported for one call.
+     */
+    record Usage(int promptTokens, int completionTokens) {
+    }
+
+    /**
+     * Reply text and reported usage of one response or stream chunk; either may be null.
+     */
+    record Reply(String text, Usage usage) {
+    }
+
+    private ProviderJsonParser() {
+    }
+
+    /**
+     * {@code choices[0].message.content} and {@code usage} of an OpenAI-compatible chat completion, in
+     * one pass. Usage comes after the choices, so the whole body is read.
+     */
+    static Reply openAiReply(Reader json) {
+        String text = null;
+        Usage usage = null;
+        try (JsonReader reader = lenientReader(json)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return new Reply(null, null);
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "choices" -> text = firstChoiceContent(reader);
+                    case "usage" -> usage = readUsage(reader, "prompt_tokens", "completion_tokens");
+                    default -> reader.skipValue();
+                }
+            }
+        } catch (IOException | RuntimeException malformed) {
+            // Keep whatever was read before the body broke off.
+        }
+        return new Reply(text, usage);
+    }
+
+    /**
+     * Usage of an OpenAI-compatible stream chunk: top-level {@code usage} (sent last when the request
+     * sets {@code stream_options.include_usage}), or Groq's {@code x_groq.usage}.
+     */
+    static Usage openAiStreamUsage(String json) {
+        try (JsonReader reader = lenientReader(new StringReader(json))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("usage".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    return readUsage(reader, "prompt_tokens", "completion_tokens");
+                }
+                if ("x_groq".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("usage".equals(reader.nextName())) {
+                            return readUsage(reader, "prompt_tokens", "completion_tokens");
+                        }
+                        reader.skipValue();
+                    }
+                    reader.endObject();
+                    continue;
+                }
+                reader.skipValue();
+            }
+            return null;
+        } catch (IOException | RuntimeException malformed) {
+            return null;
+        }
+    }
+
+    /**
+     * {@code choices[0].delta.content} of one OpenAI-compatible stream chunk.
+     */
+    static String openAiStreamDelta(String json) {
+        try (JsonReader reader = lenientReader(new StringReader(json))) {
+            if (enterKey(reader, "choices") && enterFirstElement(reader)
+                    && enterKey(reader, "delta") && enterKey(reader, "content")) {
+                return readString(reader);
+            }
+            return null;
+        } catch (IOException | RuntimeException malformed) {
+            return null;
+        }
+    }
+
+    /**
+     * Concatenated {@code candidates[0].content.parts[*].text} (null when the first candidate has no text
+     * part) and {@code usageMetadata} of a Google generateContent response or stream chunk. Streamed
+     * chunks each carry the usage so far, so the last one holds the totals.
+     */
+    static Reply googleReply(Reader json) {
+        String text = null;
+        Usage usage = null;
+        try (JsonReader reader = lenientReader(json)) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return new Reply(null, null);
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "candidates" -> text = firstCandidateText(reader);
+                    case "usageMetadata" -> usage = readUsage(reader, "promptTokenCount", "candidatesTokenCount");
+                    default -> reader.skipValue();
+                }
+            }
+        } catch (IOException | RuntimeException malformed) {
+            // Keep whatever was read before the body broke off.
+        }
+        return new Reply(text, usage);
+    }
+
+    /**
+     * {@code error.message}, a string {@code error}, or a top-level {@code message}, in that order.
+     * Error bodies wrapped in a one-element array (Google streaming) are unwrapped first.
+     */
+    static String errorMessage(Reader json) {
+        try (JsonReader reader = lenientReader(json)) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY && !enterFirstElement(reader)) {
+                return null;
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            String topLevelMessage = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("error".equals(name)) {
+                    if (reader.peek() == JsonToken.STRING) {
+                        return reader.nextString();
+                    }
+                    if (enterKey(reader, "message")) {
+                        String message = readString(reader);
+                        if (message != null) {
+                            return message;
+                        }
+                    }
+                    // The error object had no usable message; the rest of the body is not worth reading.
+                    return topLevelMessage;
+                }
+                if ("message".equals(name) && topLevelMessage == null && reader.peek() == JsonToken.STRING) {
+                    topLevelMessage = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return topLevelMessage;
+        } catch (IOException | RuntimeException malformed) {
+            return null;
+        }
+    }
+
+    /**
+     * First string value stored under {@code key} at any depth, in document order.
+     */
+    static String firstStringValue(String json, String key) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try (JsonReader reader = lenientReader(new StringReader(json))) {
+            while (seekName(reader, key)) {
+                if (reader.peek() == JsonToken.STRING) {
+                    return reader.nextString();
+                }
+            }
+            return null;
+        } catch (IOException | RuntimeException malformed) {
+            return null;
+        }
+    }
+
+    /**
+     * First http(s) URL inside the {@code generated} field of a Freepik task, falling back to the
+     * first URL anywhere in the body.
+     */
+    static String firstGeneratedAsset(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try (JsonReader reader = lenientReader(new StringReader(json))) {
+            while (seekName(reader, "generated")) {
+                String url = firstHttpString(reader);
+                if (url != null) {
+                    return url;
+                }
+            }
+        } catch (IOException | RuntimeException malformed) {
+            // Fall back to scanning the whole body below.
+        }
+        try (JsonReader reader = lenientReader(new StringReader(json))) {
+            return firstHttpString(reader);
+        } catch (IOException | RuntimeException malformed) {
+            return null;
+        }
+    }
+
+    /**
+     * Consumes a {@code choices} array and returns {@code message.content} of its first element.
+     */
+    private static String firstChoiceContent(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        String content = null;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("message".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("content".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                            content = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        skipRemaining(reader);
+        reader.endArray();
+        return content;
+    }
+
+    /**
+     * Consumes a {@code candidates} array and returns the concatenated text parts of its first element.
+     */
+    private static String firstCandidateText(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        String text = null;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("content".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("parts".equals(reader.nextName())) {
+                            text = readTextParts(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        skipRemaining(reader);
+        reader.endArray();
+        return text;
+    }
+
+    private static String readTextParts(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        boolean found = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("text".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                    text.append(reader.nextString());
+                    found = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return found ? text.toString() : null;
+    }
+
+    /**
+     * Consumes a usage object. Null when it has neither count; a missing completion count is 0.
+     */
+    private static Usage readUsage(JsonReader reader, String promptKey, String completionKey) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        int prompt = -1;
+        int completion = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.NUMBER) {
+                reader.skipValue();
+            } else if (promptKey.equals(name)) {
+                prompt = (int) Math.min(Integer.MAX_VALUE, reader.nextLong());
+            } else if (completionKey.equals(name)) {
+                completion = (int) Math.min(Integer.MAX_VALUE, reader.nextLong());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (prompt < 0 && completion < 0) {
+            return null;
+        }
+        return new Usage(Math.max(0, prompt), Math.max(0, completion));
+    }
+
+    /**
+     * Skips the remaining elements of the array the reader is in.
+     */
+    private static void skipRemaining(JsonReader reader) throws IOException {
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+    }
+
+    private static JsonReader lenientReader(Reader json) {
+        JsonReader reader = new JsonReader(json);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Expects an object at the cursor and leaves the reader on the value of {@code key}.
+     */
+    private static boolean enterKey(JsonReader reader, String key) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (key.equals(reader.nextName())) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static boolean enterFirstElement(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return false;
+        }
+        reader.beginArray();
+        return reader.hasNext();
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        return reader.peek() == JsonToken.STRING ? reader.nextString() : null;
+    }
+
+    /**
+     * Advances token by token until the next property named {@code key}, leaving the reader on its value.
+     */
+    private static boolean seekName(JsonReader reader, String key) throws IOException {
+        while (true) {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT -> reader.beginObject();
+                case END_OBJECT -> reader.endObject();
+                case BEGIN_ARRAY -> reader.beginArray();
+                case END_ARRAY -> reader.endArray();
+                case NAME -> {
+                    if (key.equals(reader.nextName())) {
+                        return true;
+                    }
+                }
+                case END_DOCUMENT -> {
+                    return false;
+                }
+                default -> reader.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Consumes the value at the cursor and returns the first string in it that looks like an http(s) URL.
+     */
+    private static String firstHttpString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING -> {
+                String value = reader.nextString().trim();
+                return value.startsWith("http://") || value.startsWith("https://") ? value : null;
+            }
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String url = firstHttpString(reader);
+                    if (url != null) {
+                        return url;
+                    }
+                }
+                reader.endArray();
+                return null;
+            }
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    reader.nextName();
+                    String url = firstHttpString(reader);
+                    if (url != null) {
+                        return url;
+                    }
+                }
+                reader.endObject();
+                return null;
+            }
+            default -> {
+                reader.skipValue();
+                return null;
+            }
+        }
+    }
+}
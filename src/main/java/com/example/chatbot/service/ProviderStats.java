@@ -0,0 +1,367 @@
+package com.example.chatbot.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency and reliability of each provider per prompt intent, kept across restarts in
+ * {@code ~/.cortex/provider-stats.json}. Latencies go into log-spaced histograms (total time and
+ * time to first output) and outcomes into success/failure counts. Every new sample scales the
+ * older ones down a little, and all weights also halve every {@link #HALF_LIFE_MS} of wall-clock
+ * time, so the numbers follow providers that get slower or faster over the day instead of averaging
+ * over all history. A provider nobody has called for a while drops back below the minimum weight and
+ * counts as unmeasured again. Best mode ranks providers from these numbers and hedging takes its
+ * delay from the same first-output histogram.
+ */
+final class ProviderStats {
+    private static final int FORMAT_VERSION = 1;
+    // Each sample keeps 97% of the previous weight: the last ~50 calls carry most of it.
+    private static final double DECAY = 0.97;
+    private static final long HALF_LIFE_MS = 60 * 60_000L;
+    private static final long PROBE_AFTER_MS = 30 * 60_000L;
+    private static final double MIN_OUTCOME_WEIGHT = 3.0;
+    private static final double MIN_LATENCY_WEIGHT = 2.0;
+    private static final double MIN_SUCCESS_RATE = 0.05;
+    private static final long SAVE_DELAY_MS = 5000;
+    private static final long[] BUCKET_UPPER_BOUNDS_MS = createBucketBounds();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final ScheduledExecutorService SAVER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setName("provider-stats-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Percentiles and success rate for one provider and intent. Weights are decayed sample counts.
+     */
+    record Summary(long p50Millis,
+                   long p95Millis,
+                   long firstOutputP50Millis,
+                   long firstOutputP95Millis,
+                   double successRate,
+                   double weight) {
+    }
+
+    private final Path file;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    ProviderStats(Path file) {
+        this(file, System::currentTimeMillis);
+    }
+
+    /**
+     * {@code clock} returns wall-clock milliseconds; they are saved with the statistics, so ageing
+     * continues across restarts.
+     */
+    ProviderStats(Path file, LongSupplier clock) {
+        this.file = file;
+        this.clock = clock;
+        load();
+    }
+
+    void recordSuccess(String providerId, String intent, long latencyMillis, long firstOutputMillis) {
+        Entry entry = entry(providerId, intent);
+        synchronized (entry) {
+            entry.ageTo(clock.getAsLong());
+            entry.addOutcome(true);
+            entry.addLatency(Math.max(0, latencyMillis), Math.max(0, Math.min(latencyMillis, firstOutputMillis)));
+        }
+        scheduleSave();
+    }
+
+    void recordFailure(String providerId, String intent) {
+        Entry entry = entry(providerId, intent);
+        synchronized (entry) {
+            entry.ageTo(clock.getAsLong());
+            entry.addOutcome(false);
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Expected time until a usable first output: median time to first output divided by the success
+     * rate, i.e. counting the failed attempts that precede a success on average. Empty until the
+     * provider has enough history for this intent.
+     */
+    OptionalDouble expectedMillis(String providerId, String intent) {
+        Entry entry = entries.get(key(providerId, intent));
+        if (entry == null) {
+            return OptionalDouble.empty();
+        }
+        synchronized (entry) {
+            entry.ageTo(clock.getAsLong());
+            double outcomes = entry.successes + entry.failures;
+            if (outcomes < MIN_OUTCOME_WEIGHT || weight(entry.firstOutput) < MIN_LATENCY_WEIGHT) {
+                return OptionalDouble.empty();
+            }
+            double successRate = Math.max(MIN_SUCCESS_RATE, entry.successes / outcomes);
+            return OptionalDouble.of(percentile(entry.firstOutput, 0.5) / successRate);
+        }
+    }
+
+    /**
+     * The given percentile (0.0 - 1.0) of the time to first output, or empty while the decayed sample
+     * weight for this provider and intent is below {@code minWeight}.
+     */
+    OptionalLong firstOutputPercentile(String providerId, String intent, double fraction, double minWeight) {
+        Entry entry = entries.get(key(providerId, intent));
+        if (entry == null) {
+            return OptionalLong.empty();
+        }
+        synchronized (entry) {
+            entry.ageTo(clock.getAsLong());
+            if (weight(entry.firstOutput) < Math.max(MIN_LATENCY_WEIGHT, minWeight)) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(Math.round(percentile(entry.firstOutput, Math.max(0.0, Math.min(1.0, fraction)))));
+        }
+    }
+
+    /**
+     * True when this provider has history for the intent but no new sample for {@link #PROBE_AFTER_MS},
+     * and no probe was handed out in that time either. A provider that ranks behind only gets calls
+     * when the leader fails, so the caller should try it first once to refresh its numbers.
+     */
+    boolean claimProbe(String providerId, String intent) {
+        Entry entry = entries.get(key(providerId, intent));
+        if (entry == null) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        synchronized (entry) {
+            if (now - entry.lastSampleMillis < PROBE_AFTER_MS || now - entry.lastProbeMillis < PROBE_AFTER_MS) {
+                return false;
+            }
+            entry.lastProbeMillis = now;
+            return true;
+        }
+    }
+
+    Map<String, Summary> summaries() {
+        Map<String, Summary> result = new LinkedHashMap<>();
+        entries.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(item -> {
+                    Entry entry = item.getValue();
+                    synchronized (entry) {
+                        entry.ageTo(clock.getAsLong());
+                        double outcomes = entry.successes + entry.failures;
+                        result.put(item.getKey(), new Summary(
+                                Math.round(percentile(entry.latency, 0.5)),
+                                Math.round(percentile(entry.latency, 0.95)),
+                                Math.round(percentile(entry.firstOutput, 0.5)),
+                                Math.round(percentile(entry.firstOutput, 0.95)),
+                                outcomes == 0 ? 0.0 : entry.successes / outcomes,
+                                outcomes
+                        ));
+                    }
+                });
+        return result;
+    }
+
+    private Entry entry(String providerId, String intent) {
+        return entries.computeIfAbsent(key(providerId, intent), ignored -> new Entry());
+    }
+
+    private static String key(String providerId, String intent) {
+        return providerId + "/" + intent;
+    }
+
+    /**
+     * Linear interpolation inside the bucket that holds the requested rank.
+     */
+    private static double percentile(double[] histogram, double fraction) {
+        double total = weight(histogram);
+        if (total <= 0) {
+            return 0;
+        }
+        double target = fraction * total;
+        double cumulative = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] <= 0) {
+                continue;
+            }
+            if (cumulative + histogram[i] >= target) {
+                double lower = i == 0 ? 0 : BUCKET_UPPER_BOUNDS_MS[i - 1];
+                double upper = BUCKET_UPPER_BOUNDS_MS[i];
+                return lower + (upper - lower) * ((target - cumulative) / histogram[i]);
+            }
+            cumulative += histogram[i];
+        }
+        return BUCKET_UPPER_BOUNDS_MS[histogram.length - 1];
+    }
+
+    private static double weight(double[] histogram) {
+        double total = 0;
+        for (double count : histogram) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static int bucketFor(long millis) {
+        int index = Arrays.binarySearch(BUCKET_UPPER_BOUNDS_MS, millis);
+        index = index >= 0 ? index : -index - 1;
+        return Math.min(index, BUCKET_UPPER_BOUNDS_MS.length - 1);
+    }
+
+    /**
+     * 25 ms to about 4 minutes in 30% steps; the last bucket also takes anything slower.
+     */
+    private static long[] createBucketBounds() {
+        long[] bounds = new long[36];
+        double bound = 25;
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = Math.round(bound);
+            bound *= 1.3;
+        }
+        return bounds;
+    }
+
+    // ================= PERSISTENCE =================
+    private void load() {
+        if (file == null || !Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            StoredStats stored = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), StoredStats.class);
+            // Histograms recorded with other bucket bounds cannot be read back meaningfully.
+            if (stored == null || stored.version != FORMAT_VERSION
+                    || !Arrays.equals(stored.bucketUpperBoundsMs, BUCKET_UPPER_BOUNDS_MS) || stored.entries == null) {
+                return;
+            }
+            long now = clock.getAsLong();
+            stored.entries.forEach((key, entry) -> {
+                if (entry != null && entry.isWellFormed()) {
+                    // Files written before ageing was added carry no timestamps; start their clock now.
+                    if (entry.agedAtMillis == 0) {
+                        entry.agedAtMillis = now;
+                        entry.lastSampleMillis = now;
+                    }
+                    entries.put(key, entry);
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("[ProviderStats] Failed to load provider statistics: " + ex.getMessage());
+        }
+    }
+
+    private void scheduleSave() {
+        if (file != null && saveScheduled.compareAndSet(false, true)) {
+            SAVER.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void save() {
+        saveScheduled.set(false);
+        StoredStats stored = new StoredStats();
+        stored.version = FORMAT_VERSION;
+        stored.bucketUpperBoundsMs = BUCKET_UPPER_BOUNDS_MS;
+        stored.entries = new LinkedHashMap<>();
+        entries.forEach((key, entry) -> {
+            synchronized (entry) {
+                stored.entries.put(key, entry.copy());
+            }
+        });
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, GSON.toJson(stored), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("[ProviderStats] Failed to save provider statistics: " + ex.getMessage());
+        }
+    }
+
+    private static final class StoredStats {
+        private int version;
+        private long[] bucketUpperBoundsMs;
+        private Map<String, Entry> entries;
+    }
+
+    /**
+     * Mutable per provider and intent; guarded by its own monitor. Field names are the JSON format.
+     */
+    private static final class Entry {
+        private double[] latency = new double[BUCKET_UPPER_BOUNDS_MS.length];
+        private double[] firstOutput = new double[BUCKET_UPPER_BOUNDS_MS.length];
+        private double successes;
+        private double failures;
+        private long agedAtMillis;
+        private long lastSampleMillis;
+        private transient long lastProbeMillis;
+
+        /**
+         * Applies the wall-clock half-life for the time since the last call.
+         */
+        private void ageTo(long now) {
+            if (agedAtMillis == 0 || now <= agedAtMillis) {
+                agedAtMillis = Math.max(agedAtMillis, now);
+                return;
+            }
+            double factor = Math.pow(0.5, (double) (now - agedAtMillis) / HALF_LIFE_MS);
+            agedAtMillis = now;
+            successes *= factor;
+            failures *= factor;
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] *= factor;
+                firstOutput[i] *= factor;
+            }
+        }
+
+        private void addOutcome(boolean success) {
+            lastSampleMillis = agedAtMillis;
+            successes *= DECAY;
+            failures *= DECAY;
+            if (success) {
+                successes += 1;
+            } else {
+                failures += 1;
+            }
+        }
+
+        private void addLatency(long latencyMillis, long firstOutputMillis) {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] *= DECAY;
+                firstOutput[i] *= DECAY;
+            }
+            latency[bucketFor(latencyMillis)] += 1;
+            firstOutput[bucketFor(firstOutputMillis)] += 1;
+        }
+
+        private boolean isWellFormed() {
+            return latency != null && latency.length == BUCKET_UPPER_BOUNDS_MS.length
+                    && firstOutput != null && firstOutput.length == BUCKET_UPPER_BOUNDS_MS.length;
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry();
+            copy.latency = latency.clone();
+            copy.firstOutput = firstOutput.clone();
+            copy.successes = successes;
+            copy.failures = failures;
+            copy.agedAtMillis = agedAtMillis;
+            copy.lastSampleMillis = lastSampleMillis;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.chatbot.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+/**
+ * Decides which queued request starts next. Each conversation has its own queue and the conversations
+ * take turns, so a burst of messages in one chat cannot keep the others waiting, and a conversation
+ * gets more than {@value #MAX_RUNNING_PER_OWNER} of the running slots only when no other one needs them.
+ * Short interactive requests (inline questions about a selection) have their own lane: they start
+ * before any queued conversation request and may use {@value #INTERACTIVE_RESERVE} extra slots, so
+ * they never wait behind long generation jobs.
+ */
+final class RequestScheduler {
+    enum Lane {
+        INTERACTIVE,
+        CONVERSATION
+    }
+
+    private static final int MAX_RUNNING_PER_OWNER = 2;
+    private static final int INTERACTIVE_RESERVE = 2;
+    private static final long SLOW_ADMISSION_LOG_MS = 1000;
+
+    private final Executor executor;
+    private final IntSupplier maxRunning;
+    private final ArrayDeque<Task> interactive = new ArrayDeque<>();
+    // Insertion order is the round-robin order; an owner moves to the back after each turn.
+    private final LinkedHashMap<Object, ArrayDeque<Task>> conversations = new LinkedHashMap<>();
+    private final Map<Object, Integer> runningByOwner = new HashMap<>();
+    private int running;
+
+    RequestScheduler(Executor executor, IntSupplier maxRunning) {
+        this.executor = executor;
+        this.maxRunning = maxRunning;
+    }
+
+    /**
+     * Queues {@code work}. Conversation requests are grouped by {@code owner}; interactive requests ignore it.
+     */
+    void submit(Lane lane, Object owner, Runnable work) {
+        Task task = new Task(lane, lane == Lane.INTERACTIVE ? null : owner, work);
+        synchronized (this) {
+            if (lane == Lane.INTERACTIVE) {
+                interactive.addLast(task);
+            } else {
+                conversations.computeIfAbsent(task.owner, ignored -> new ArrayDeque<>()).addLast(task);
+            }
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            Task next;
+            synchronized (this) {
+                next = takeNext();
+                if (next == null) {
+                    return;
+                }
+                running++;
+                if (next.owner != null) {
+                    runningByOwner.merge(next.owner, 1, Integer::sum);
+                }
+            }
+            try {
+                executor.execute(() -> run(next));
+            } catch (RuntimeException rejected) {
+                finished(next);
+                throw rejected;
+            }
+        }
+    }
+
+    private Task takeNext() {
+        int limit = Math.max(1, maxRunning.getAsInt());
+        if (!interactive.isEmpty() && running < limit + INTERACTIVE_RESERVE) {
+            return interactive.pollFirst();
+        }
+        if (running >= limit) {
+            return null;
+        }
+        // Owners under their share go first; a slot nobody else can use goes to whoever is next anyway.
+        Task task = takeFromNextOwner(true);
+        return task != null ? task : takeFromNextOwner(false);
+    }
+
+    private Task takeFromNextOwner(boolean respectShare) {
+        Iterator<Map.Entry<Object, ArrayDeque<Task>>> owners = conversations.entrySet().iterator();
+        while (owners.hasNext()) {
+            Map.Entry<Object, ArrayDeque<Task>> entry = owners.next();
+            if (respectShare && runningByOwner.getOrDefault(entry.getKey(), 0) >= MAX_RUNNING_PER_OWNER) {
+                continue;
+            }
+            Task task = entry.getValue().pollFirst();
+            owners.remove();
+            if (!entry.getValue().isEmpty()) {
+                conversations.put(entry.getKey(), entry.getValue());
+            }
+            return task;
+        }
+        return null;
+    }
+
+    private void run(Task task) {
+        long waitedMs = (System.nanoTime() - task.queuedAt) / 1_000_000;
+        if (waitedMs >= SLOW_ADMISSION_LOG_MS) {
+            System.out.println("[Scheduler] " + task.lane.name().toLowerCase(Locale.ROOT) + " request waited " + waitedMs
+                    + " ms for a slot");
+        }
+        try {
+            task.work.run();
+        } finally {
+            finished(task);
+            dispatch();
+        }
+    }
+
+    private synchronized void finished(Task task) {
+        running--;
+        if (task.owner != null) {
+            runningByOwner.computeIfPresent(task.owner, (owner, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static final class Task {
+        private final Lane lane;
+        private final Object owner;
+        private final Runnable work;
+        private final long queuedAt = System.nanoTime();
+
+        private Task(Lane lane, Object owner, Runnable work) {
+            this.lane = lane;
+            this.owner = owner;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.chatbot.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of assistant replies: a small in-memory LRU in front of a size-bounded directory of
+ * text files. Keys are hex digests built by the caller. Disk entries are evicted oldest-access first
+ * once the directory grows past its byte budget.
+ */
+final class ResponseCache {
+    private static final String ENTRY_SUFFIX = ".md";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Temp files this old were left by a write that never finished, e.g. when the app was killed.
+    private static final long STALE_TEMP_MS = 60 * 60_000L;
+
+    private final Path directory;
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Object diskLock = new Object();
+    private long diskBytes = -1;
+
+    ResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cached reply for {@code key}, promoting disk hits into memory, or null on a miss.
+     */
+    String get(String key, int maxMemoryEntries) {
+        synchronized (memory) {
+            String cached = memory.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        String fromDisk = readFromDisk(key);
+        if (fromDisk == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        putInMemory(key, fromDisk, maxMemoryEntries);
+        return fromDisk;
+    }
+
+    void put(String key, String content, int maxMemoryEntries, long maxDiskBytes) {
+        if (key == null || content == null) {
+            return;
+        }
+        putInMemory(key, content, maxMemoryEntries);
+        writeToDisk(key, content, maxDiskBytes);
+    }
+
+    /**
+     * Message text as it goes into a key: line endings unified and trailing whitespace dropped from
+     * every line, nothing else. Indentation and blank lines stay significant, since code that differs
+     * only in them can need a different answer.
+     */
+    static String normalizeForKey(String content) {
+        if (content == null) {
+            return "";
+        }
+        return content.lines().map(String::stripTrailing).collect(Collectors.joining("\n")).stripTrailing();
+    }
+
+    long memoryHits() {
+        return memoryHits.get();
+    }
+
+    long diskHits() {
+        return diskHits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    private void putInMemory(String key, String content, int maxMemoryEntries) {
+        synchronized (memory) {
+            memory.put(key, content);
+            while (memory.size() > Math.max(0, maxMemoryEntries)) {
+                String eldest = memory.keySet().iterator().next();
+                memory.remove(eldest);
+            }
+        }
+    }
+
+    private String readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        synchronized (diskLock) {
+            if (!Files.isRegularFile(entry)) {
+                return null;
+            }
+            try {
+                String content = Files.readString(entry, StandardCharsets.UTF_8);
+                // Modification time doubles as the last-access time for eviction.
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                return content;
+            } catch (IOException ex) {
+                System.err.println("[ResponseCache] Failed to read cache entry: " + ex.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private void writeToDisk(String key, String content, long maxDiskBytes) {
+        if (directory == null || maxDiskBytes <= 0) {
+            return;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxDiskBytes) {
+            return;
+        }
+        Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        synchronized (diskLock) {
+            try {
+                Files.createDirectories(directory);
+                if (diskBytes < 0) {
+                    diskBytes = measureDirectory();
+                }
+                long previousSize = Files.isRegularFile(entry) ? Files.size(entry) : 0;
+                Path temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+                try {
+                    Files.write(temp, bytes);
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException ex) {
+                    // Temp files are not counted against the budget, so a failed write must not leave one behind.
+                    deleteQuietly(temp);
+                    throw ex;
+                }
+                diskBytes += bytes.length - previousSize;
+                if (diskBytes > maxDiskBytes) {
+                    evictOldest(maxDiskBytes);
+                }
+            } catch (IOException ex) {
+                System.err.println("[ResponseCache] Failed to write cache entry: " + ex.getMessage());
+            }
+        }
+    }
+
+    private void evictOldest(long maxDiskBytes) throws IOException {
+        List<Path> entries = listEntries();
+        entries.sort(Comparator.comparingLong(ResponseCache::lastModifiedMillis));
+        // Trim to 90% so a full cache does not evict on every single write.
+        long target = maxDiskBytes - maxDiskBytes / 10;
+        for (Path entry : entries) {
+            if (diskBytes <= target) {
+                break;
+            }
+            long size = Files.size(entry);
+            Files.deleteIfExists(entry);
+            diskBytes -= size;
+        }
+    }
+
+    private long measureDirectory() throws IOException {
+        removeStaleTempFiles();
+        long total = 0;
+        for (Path entry : listEntries()) {
+            total += Files.size(entry);
+        }
+        return total;
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX)).toList());
+        }
+    }
+
+    private void removeStaleTempFiles() throws IOException {
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_MS;
+        List<Path> stale;
+        try (Stream<Path> files = Files.list(directory)) {
+            stale = files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX))
+                    .filter(path -> lastModifiedMillis(path) < cutoff)
+                    .toList();
+        }
+        for (Path temp : stale) {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            System.err.println("[ResponseCache] Failed to delete " + path.getFileName() + ": " + ex.getMessage());
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+}
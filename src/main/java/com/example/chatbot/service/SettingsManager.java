@@ -9,8 +9,10 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
@@ -27,12 +29,14 @@ public final class SettingsManager {
     // New: Store user feedback for API ranking
     private final Map<String, Integer> apiFeedbackScores = new ConcurrentHashMap<>();
     private final Map<String, Consumer<Object>> listeners = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
     private Path configPath;
 
     private SettingsManager() {
         configPath = resolveConfigPath();
         populateDefaults();
         load();
+        restoreApiFeedbackScores();
     }
 
     public static SettingsManager getInstance() {
@@ -42,7 +46,7 @@ public final class SettingsManager {
     // ================= DEFAULTS =================
     private void populateDefaults() {
             // New: Default feedback scores for providers
-            putDefault("ai.apiFeedbackScores", "");
+            putDefault("ai.apiFeedbackScores", new LinkedHashMap<String, Integer>());
         // Appearance
         putDefault("appearance.theme", "theme-dark-purple");
         putDefault("appearance.uiFontSize", 14);
@@ -55,6 +59,7 @@ public final class SettingsManager {
         // Chat Behavior
         putDefault("chat.responseStyle", "Detailed");
         putDefault("chat.streamingEnabled", true);
+        putDefault("chat.showUsage", true);
         putDefault("chat.autoScroll", true);
         putDefault("chat.historyEnabled", true);
         putDefault("chat.inputModeDefault", "Best");
@@ -95,7 +100,27 @@ public final class SettingsManager {
         putDefault("ai.providerSetups", "");
         putDefault("ai.temperature", 0.4);
         putDefault("ai.maxTokens", 4096);
+        putDefault("ai.maxPromptTokens", 32000);
         putDefault("ai.systemPrompt", "");
+        putDefault("ai.hedging.enabled", false);
+        putDefault("ai.hedging.percentile", 0.9);
+        putDefault("ai.hedging.delayMs", 3000);
+        // 0 leaves pacing to the x-ratelimit-* headers each provider sends back.
+        putDefault("ai.keyPool.requestsPerMinute", 0);
+        putDefault("ai.keyPool.maxWaitMs", 20000);
+        putDefault("ai.responseCache.enabled", false);
+        putDefault("ai.responseCache.memoryEntries", 128);
+        putDefault("ai.responseCache.diskMaxMb", 64);
+        putDefault("ai.supportingImage.pipelined", true);
+        putDefault("ai.adaptiveRouting.enabled", true);
+        putDefault("ai.imageUpload.optimize", true);
+        putDefault("ai.imageUpload.maxDimension", 2048);
+        putDefault("ai.scheduler.maxConcurrentRequests", 6);
+        putDefault("ai.provider.maxConcurrentRequests", 4);
+        // How long a reply queues for one of those slots before failing over to the next provider.
+        putDefault("ai.provider.admissionWaitMs", 20000);
+        // Extra OpenAI-compatible hosts, comma separated, that are sent stream_options to report usage.
+        putDefault("ai.streamUsage.hosts", "");
 
         // Privacy
         putDefault("privacy.saveChatHistory", true);
@@ -142,8 +167,8 @@ public final class SettingsManager {
         // New: Feedback system
         public void addApiFeedback(String provider, int score) {
             apiFeedbackScores.merge(provider, score, Integer::sum);
-            // Optionally persist feedback scores in settings
-            settings.put("ai.apiFeedbackScores", apiFeedbackScores.toString());
+            // Stored as a JSON object so load() can read it back
+            settings.put("ai.apiFeedbackScores", new LinkedHashMap<>(apiFeedbackScores));
             save();
         }
 
@@ -170,11 +195,25 @@ public final class SettingsManager {
         listeners.remove(key);
     }
 
+    /**
+     * Registers a listener that receives the key of every setting that changes, e.g. to react to a whole "ai.*" group.
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<String> listener) {
+        changeListeners.remove(listener);
+    }
+
     private void notifyListener(String key, Object value) {
         Consumer<Object> listener = listeners.get(key);
         if (listener != null) {
             listener.accept(value);
         }
+        for (Consumer<String> changeListener : changeListeners) {
+            changeListener.accept(key);
+        }
     }
 
     // ================= PERSISTENCE =================
@@ -207,6 +246,33 @@ public final class SettingsManager {
         }
     }
 
+    /**
+     * Reads feedback scores back from settings. Older files stored them as a {@code Map.toString()}
+     * string such as "{GROQ=2, FREEPIK=-1}"; that form is still understood.
+     */
+    private void restoreApiFeedbackScores() {
+        Object stored = settings.get("ai.apiFeedbackScores");
+        if (stored instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() instanceof Number score) {
+                    apiFeedbackScores.put(entry.getKey().toString(), score.intValue());
+                }
+            }
+        } else if (stored instanceof String legacy && legacy.startsWith("{") && legacy.endsWith("}")) {
+            for (String pair : legacy.substring(1, legacy.length() - 1).split(",")) {
+                String[] parts = pair.split("=", 2);
+                if (parts.length == 2) {
+                    try {
+                        apiFeedbackScores.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                    } catch (NumberFormatException ignored) {
+                        // Skip unreadable entries
+                    }
+                }
+            }
+        }
+        settings.put("ai.apiFeedbackScores", new LinkedHashMap<>(apiFeedbackScores));
+    }
+
     // ================= CONFIG PATH =================
     private Path resolveConfigPath() {
         // Store in user home under .cortex
@@ -0,0 +1,141 @@
+package com.example.chatbot.service;
+
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Request body assembled from JSON text fragments and raw binary blobs that are base64-encoded only
+ * while the body is being sent. Large attachments are encoded in small chunks straight into the
+ * outgoing stream instead of being turned into one big base64 string and copied again.
+ */
+final class StreamingJsonBody {
+    // A multiple of 3 so chunks never need padding in the middle of the blob.
+    private static final int BASE64_CHUNK_BYTES = 3 * 16 * 1024;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final StringBuilder pendingText = new StringBuilder();
+
+    /**
+     * Appends JSON text as-is; callers escape string values themselves.
+     */
+    StreamingJsonBody append(String json) {
+        pendingText.append(json);
+        return this;
+    }
+
+    StreamingJsonBody append(Object value) {
+        pendingText.append(value);
+        return this;
+    }
+
+    /**
+     * Appends {@code data} base64-encoded, without quotes. The array is read at send time, not copied.
+     */
+    StreamingJsonBody appendBase64(byte[] data) {
+        flushText();
+        segments.add(new Segment(data, true));
+        return this;
+    }
+
+    HttpRequest.BodyPublisher publisher() {
+        flushText();
+        List<Segment> snapshot = List.copyOf(segments);
+        long contentLength = 0;
+        for (Segment segment : snapshot) {
+            contentLength += segment.encodedLength();
+        }
+        return HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> new SegmentInputStream(snapshot)),
+                contentLength
+        );
+    }
+
+    private void flushText() {
+        if (pendingText.length() > 0) {
+            segments.add(new Segment(pendingText.toString().getBytes(StandardCharsets.UTF_8), false));
+            pendingText.setLength(0);
+        }
+    }
+
+    private record Segment(byte[] bytes, boolean base64) {
+        private long encodedLength() {
+            return base64 ? 4L * ((bytes.length + 2) / 3) : bytes.length;
+        }
+    }
+
+    private static final class SegmentInputStream extends InputStream {
+        private final List<Segment> segments;
+        private final Base64.Encoder encoder = Base64.getEncoder();
+        // Reused for every full chunk, so encoding allocates nothing but the final partial chunk.
+        private final byte[] sourceChunk = new byte[BASE64_CHUNK_BYTES];
+        private final byte[] encodedChunk = new byte[BASE64_CHUNK_BYTES / 3 * 4];
+        private int segmentIndex;
+        private int sourceOffset;
+        private byte[] chunk = encodedChunk;
+        private int chunkLength;
+        private int chunkOffset;
+
+        private SegmentInputStream(List<Segment> segments) {
+            this.segments = segments;
+        }
+
+        @Override
+        public int read() {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            while (segmentIndex < segments.size()) {
+                Segment segment = segments.get(segmentIndex);
+                if (!segment.base64()) {
+                    int available = segment.bytes().length - sourceOffset;
+                    if (available > 0) {
+                        int count = Math.min(length, available);
+                        System.arraycopy(segment.bytes(), sourceOffset, target, offset, count);
+                        sourceOffset += count;
+                        return count;
+                    }
+                } else {
+                    if (chunkOffset >= chunkLength && sourceOffset < segment.bytes().length) {
+                        encodeNextChunk(segment.bytes());
+                    }
+                    if (chunkOffset < chunkLength) {
+                        int count = Math.min(length, chunkLength - chunkOffset);
+                        System.arraycopy(chunk, chunkOffset, target, offset, count);
+                        chunkOffset += count;
+                        return count;
+                    }
+                }
+                segmentIndex++;
+                sourceOffset = 0;
+                chunkLength = 0;
+                chunkOffset = 0;
+            }
+            return -1;
+        }
+
+        private void encodeNextChunk(byte[] source) {
+            int count = Math.min(BASE64_CHUNK_BYTES, source.length - sourceOffset);
+            if (count == BASE64_CHUNK_BYTES) {
+                System.arraycopy(source, sourceOffset, sourceChunk, 0, count);
+                chunk = encodedChunk;
+                chunkLength = encoder.encode(sourceChunk, encodedChunk);
+            } else {
+                chunk = encoder.encode(Arrays.copyOfRange(source, sourceOffset, sourceOffset + count));
+                chunkLength = chunk.length;
+            }
+            chunkOffset = 0;
+            sourceOffset += count;
+        }
+    }
+}
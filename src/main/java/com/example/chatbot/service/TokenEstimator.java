@@ -0,0 +1,102 @@
+package com.example.chatbot.service;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local approximation of BPE token counts and context window sizes for the chat models Cortex talks to.
+ * The estimate follows how byte-pair vocabularies split text: common words cost about one token per
+ * four letters, digits are grouped in threes, punctuation mostly stands alone and non-Latin scripts
+ * cost roughly one token per character. It is meant for budgeting, not billing, and errs high.
+ */
+final class TokenEstimator {
+    private static final int DEFAULT_CONTEXT_WINDOW = 8192;
+    private static final Pattern WINDOW_SUFFIX = Pattern.compile("-(\\d{4,7})$");
+
+    private TokenEstimator() {
+    }
+
+    static int estimate(String text, String modelName) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        double tokens = 0;
+        int letters = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80 && Character.isLetter(ch)) {
+                letters++;
+                continue;
+            }
+            if (ch < 0x80 && Character.isDigit(ch)) {
+                digits++;
+                continue;
+            }
+            tokens += runCost(letters, digits);
+            letters = 0;
+            digits = 0;
+            if (Character.isWhitespace(ch)) {
+                // A single space usually merges into the following word; runs of indentation do not.
+                if (i > 0 && Character.isWhitespace(text.charAt(i - 1))) {
+                    tokens += 0.5;
+                }
+            } else if (ch < 0x80) {
+                tokens += 1;
+            } else if (Character.isSurrogate(ch)) {
+                tokens += 0.75;
+            } else {
+                tokens += 1.2;
+            }
+        }
+        tokens += runCost(letters, digits);
+        return (int) Math.ceil(tokens * modelFactor(modelName));
+    }
+
+    /**
+     * Context window of {@code modelName} in tokens, from known model families or a "-32768" style suffix.
+     */
+    static int contextWindow(String modelName) {
+        String model = modelName == null ? "" : modelName.trim().toLowerCase(Locale.ROOT);
+        Matcher suffix = WINDOW_SUFFIX.matcher(model);
+        // Small numbers at the end are dates or versions, not window sizes.
+        if (suffix.find() && Integer.parseInt(suffix.group(1)) >= 4096) {
+            return Integer.parseInt(suffix.group(1));
+        }
+        if (model.contains("gemini-1.5-pro")) {
+            return 2_000_000;
+        }
+        if (model.contains("gemini") || model.startsWith("gpt-4.1")) {
+            return 1_000_000;
+        }
+        if (model.startsWith("gpt-3.5")) {
+            return 16_385;
+        }
+        if (model.startsWith("gpt-4o") || model.startsWith("gpt-4-turbo") || model.matches("o\\d.*")
+                || model.contains("llama-3.1") || model.contains("llama-3.2") || model.contains("llama-3.3")
+                || model.contains("llama-4") || model.contains("qwen") || model.contains("deepseek")
+                || model.contains("gpt-oss") || model.contains("kimi")) {
+            return 128_000;
+        }
+        if (model.contains("mixtral")) {
+            return 32_768;
+        }
+        return DEFAULT_CONTEXT_WINDOW;
+    }
+
+    private static double runCost(int letters, int digits) {
+        return Math.ceil(letters / 4.0) + Math.ceil(digits / 3.0);
+    }
+
+    /**
+     * SentencePiece vocabularies (Gemini, Gemma) split English slightly coarser than tiktoken-style ones.
+     */
+    private static double modelFactor(String modelName) {
+        String model = modelName == null ? "" : modelName.toLowerCase(Locale.ROOT);
+        if (model.contains("gemini") || model.contains("gemma")) {
+            return 0.95;
+        }
+        return 1.0;
+    }
+}
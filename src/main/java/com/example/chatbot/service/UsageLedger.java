@@ -0,0 +1,148 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.model.Conversation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Token and latency totals per conversation and per provider since startup, taken from the usage each
+ * reply reports. It also watches how fast a conversation's prompt grows. Every reply resends the
+ * history, so a chat whose prompt keeps growing makes each later reply slower and more expensive.
+ */
+final class UsageLedger {
+    // A warning compares the newest prompt with the one this many replies earlier.
+    private static final int GROWTH_WINDOW = 4;
+    private static final double GROWTH_FACTOR = 1.5;
+    private static final int MIN_WARNING_PROMPT_TOKENS = 4000;
+    private static final double PROMPT_CAP_WARNING_SHARE = 0.8;
+
+    // Conversations have no identity beyond the object; deleted chats drop out with their last reference.
+    private final Map<Conversation, ConversationTotals> conversations = new WeakHashMap<>();
+    private final Map<String, ProviderTotals> providers = new LinkedHashMap<>();
+
+    /**
+     * Records one reply. {@code conversation} is null for requests outside a chat, which only count
+     * towards the provider. Prompt and completion tokens are -1 when the provider reported none.
+     * Returns a warning when this reply shows the conversation's prompt growing fast, otherwise null.
+     */
+    synchronized String record(Conversation conversation,
+                               String provider,
+                               int promptTokens,
+                               int completionTokens,
+                               long latencyMs,
+                               int promptTokenCap) {
+        boolean reported = promptTokens >= 0;
+        providers.computeIfAbsent(provider, ignored -> new ProviderTotals())
+                .add(reported, promptTokens, completionTokens, latencyMs);
+        if (conversation == null) {
+            return null;
+        }
+        ConversationTotals totals = conversations.computeIfAbsent(conversation, ignored -> new ConversationTotals());
+        totals.add(reported, promptTokens, completionTokens, latencyMs);
+        return reported ? totals.growthWarning(promptTokens, promptTokenCap) : null;
+    }
+
+    synchronized ChatService.ConversationUsage conversation(Conversation conversation) {
+        ConversationTotals totals = conversations.get(conversation);
+        if (totals == null) {
+            return new ChatService.ConversationUsage(0, 0, 0, 0, -1);
+        }
+        return new ChatService.ConversationUsage(
+                totals.replies,
+                totals.promptTokens,
+                totals.completionTokens,
+                totals.latencyMs,
+                totals.recentPrompts.isEmpty() ? -1 : totals.recentPrompts.peekLast()
+        );
+    }
+
+    synchronized List<ChatService.ProviderUsage> providers() {
+        List<ChatService.ProviderUsage> usage = new ArrayList<>();
+        providers.forEach((provider, totals) -> usage.add(new ChatService.ProviderUsage(
+                provider,
+                totals.calls,
+                totals.reportedCalls,
+                totals.promptTokens,
+                totals.completionTokens,
+                totals.latencyMs
+        )));
+        return usage;
+    }
+
+    private static String formatTokens(long tokens) {
+        if (tokens < 1000) {
+            return String.valueOf(tokens);
+        }
+        return String.format(Locale.ROOT, tokens < 10_000 ? "%.1fk" : "%.0fk", tokens / 1000.0);
+    }
+
+    private static final class ProviderTotals {
+        private int calls;
+        private int reportedCalls;
+        private long promptTokens;
+        private long completionTokens;
+        private long latencyMs;
+
+        private void add(boolean reported, int prompt, int completion, long latency) {
+            calls++;
+            latencyMs += Math.max(0, latency);
+            if (reported) {
+                reportedCalls++;
+                promptTokens += prompt;
+                completionTokens += Math.max(0, completion);
+            }
+        }
+    }
+
+    private static final class ConversationTotals {
+        private int replies;
+        private long promptTokens;
+        private long completionTokens;
+        private long latencyMs;
+        private final ArrayDeque<Integer> recentPrompts = new ArrayDeque<>();
+        private int warnedAtPromptTokens;
+
+        private void add(boolean reported, int prompt, int completion, long latency) {
+            replies++;
+            latencyMs += Math.max(0, latency);
+            if (!reported) {
+                return;
+            }
+            promptTokens += prompt;
+            completionTokens += Math.max(0, completion);
+            recentPrompts.addLast(prompt);
+            if (recentPrompts.size() > GROWTH_WINDOW) {
+                recentPrompts.removeFirst();
+            }
+        }
+
+        /**
+         * Warns once the prompt nears the configured cap, where older turns start being dropped, or has
+         * grown by half within the last few replies. After a warning the next one waits until the prompt
+         * has grown by half again.
+         */
+        private String growthWarning(int latest, int promptTokenCap) {
+            if (latest < MIN_WARNING_PROMPT_TOKENS || latest < warnedAtPromptTokens * GROWTH_FACTOR) {
+                return null;
+            }
+            String warning = null;
+            if (promptTokenCap > 0 && latest >= promptTokenCap * PROMPT_CAP_WARNING_SHARE) {
+                warning = "This chat now sends about " + formatTokens(latest) + " prompt tokens per reply, close to the "
+                        + formatTokens(promptTokenCap) + " limit, so older messages will start being left out.";
+            } else if (recentPrompts.size() == GROWTH_WINDOW && latest >= recentPrompts.peekFirst() * GROWTH_FACTOR) {
+                warning = "This chat's prompt grew from " + formatTokens(recentPrompts.peekFirst()) + " to "
+                        + formatTokens(latest) + " tokens over the last " + (GROWTH_WINDOW - 1) + " replies.";
+            }
+            if (warning == null) {
+                return null;
+            }
+            warnedAtPromptTokens = latest;
+            return warning + " Every reply resends the whole chat; a new chat for a new topic keeps replies fast and cheap.";
+        }
+    }
+}
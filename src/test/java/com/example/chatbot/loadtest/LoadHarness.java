@@ -0,0 +1,271 @@
+package com.example.chatbot.loadtest;
+
+import com.example.chatbot.model.Conversation;
+import com.example.chatbot.model.Message;
+import com.example.chatbot.service.ChatService;
+import com.example.chatbot.service.SettingsManager;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Drives {@link ChatService#sendMessageAsync} with many concurrent conversations against a
+ * {@link MockProviderServer} and reports throughput and latency percentiles. Each conversation sends
+ * its next message as soon as the previous reply arrives, so concurrency stays constant.
+ *
+ * <p>Arguments: {@code [conversations] [requests] [medianMs] [p95Ms] [errorRate] [keysPerProvider]}.
+ * With {@code isolation [conversations] [latencyMs]} every conversation instead sends one message at
+ * the same moment against a provider with a fixed latency, which shows whether conversations wait on
+ * each other. With {@code transfer [requests] [replyWords]} the same long replies, streamed and
+ * unstreamed, and image generation polls run once with the mock's gzip on and once with it off, and
+ * the bytes read off the wire are printed against the decoded bytes from
+ * {@link ChatService#getTransferStats()}. Runs with a throwaway {@code user.home}, so the real settings, caches and provider
+ * statistics are never touched.
+ */
+public final class LoadHarness {
+    private static final String FAILURE_PREFIX = "I could not call the AI API";
+    // Worker count of the API executor before replies moved to virtual threads and sendAsync.
+    private static final int LEGACY_API_THREADS = 2;
+    // Environment variables win over app.properties and would send the load to a real provider.
+    private static final List<String> PROVIDER_URL_VARIABLES = List.of(
+            "GROQ_BASE_URL", "OPENAI_BASE_URL", "GOOGLE_BASE_URL", "LEONARDO_BASE_URL", "FREEPIK_BASE_URL");
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean isolation = args.length > 0 && args[0].equals("isolation");
+        boolean transfer = args.length > 0 && args[0].equals("transfer");
+        int conversations;
+        int totalRequests;
+        int keysPerProvider;
+        MockProviderServer.Profile profile;
+        if (isolation) {
+            conversations = intArg(args, 1, 16);
+            totalRequests = conversations;
+            long latencyMs = longArg(args, 2, 2000);
+            profile = new MockProviderServer.Profile().latency(latencyMs, latencyMs);
+            keysPerProvider = 1;
+        } else if (transfer) {
+            conversations = 1;
+            totalRequests = intArg(args, 1, 20);
+            // One SSE event per few words, roughly what the providers send.
+            profile = new MockProviderServer.Profile()
+                    .latency(20, 40)
+                    .replyWords(intArg(args, 2, 1000))
+                    .streaming(200, 0)
+                    .generationReadyAfter(1500);
+            keysPerProvider = 1;
+        } else {
+            conversations = intArg(args, 0, 32);
+            totalRequests = intArg(args, 1, 500);
+            profile = new MockProviderServer.Profile()
+                    .latency(longArg(args, 2, 250), longArg(args, 3, 900))
+                    .errorRate(args.length > 4 ? Double.parseDouble(args[4]) : 0.02)
+                    .rateLimitBursts(20_000, 1_000, 1_000);
+            keysPerProvider = intArg(args, 5, 4);
+        }
+
+        for (String variable : PROVIDER_URL_VARIABLES) {
+            String value = System.getenv(variable);
+            if (value != null && !value.isBlank()) {
+                System.err.println("[LoadHarness] Unset " + variable + " before running the load test.");
+                System.exit(2);
+            }
+        }
+
+        Path home = Files.createTempDirectory("cortex-load-");
+        System.setProperty("user.home", home.toString());
+
+        try (MockProviderServer mock = MockProviderServer.start(profile, 0)) {
+            Path properties = home.resolve("app.properties");
+            Files.writeString(properties, mock.appProperties(keysPerProvider), StandardCharsets.UTF_8);
+            System.setProperty("cortex.appProperties", properties.toString());
+
+            SettingsManager settings = SettingsManager.getInstance();
+            // The mock has no real quota; lift the per-key pacing so the pipeline itself is measured.
+            settings.set("ai.keyPool.requestsPerMinute", 6000);
+            // Likewise run every conversation at once instead of queueing behind the scheduler's limits.
+            settings.set("ai.scheduler.maxConcurrentRequests", conversations);
+            settings.set("ai.provider.maxConcurrentRequests", conversations);
+            settings.set("ai.responseCache.enabled", false);
+
+            ChatService chatService = new ChatService();
+            System.out.println("[LoadHarness] " + conversations + " conversations, " + totalRequests
+                    + " requests against " + mock.baseUrl());
+            if (isolation) {
+                runIsolation(chatService, conversations, profile.medianLatencyMs);
+            } else if (transfer) {
+                runTransfer(chatService, profile, totalRequests);
+            } else {
+                run(chatService, conversations, totalRequests).print();
+            }
+            System.out.println("[LoadHarness] Mock " + mock.statsSummary());
+        }
+        System.exit(0);
+    }
+
+    private static Result run(ChatService chatService, int conversations, int totalRequests) {
+        AtomicInteger issued = new AtomicInteger();
+        LongAdder failures = new LongAdder();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+
+        List<CompletableFuture<Void>> loops = new ArrayList<>();
+        for (int i = 0; i < conversations; i++) {
+            Conversation conversation = new Conversation("Load " + i);
+            loops.add(sendNext(chatService, conversation, issued, totalRequests, latencies, failures));
+        }
+        CompletableFuture.allOf(loops.toArray(CompletableFuture[]::new)).join();
+        return new Result(System.nanoTime() - start, latencies, failures.sum());
+    }
+
+    /**
+     * Starts one message in every conversation at once. Independent conversations all finish after about
+     * one provider latency; a pool of {@value #LEGACY_API_THREADS} workers finishes them in waves.
+     */
+    private static void runIsolation(ChatService chatService, int conversations, long latencyMs) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Long>> replies = new ArrayList<>();
+        for (int i = 0; i < conversations; i++) {
+            Conversation conversation = new Conversation("Isolation " + i);
+            replies.add(chatService.sendMessageAsync(conversation, "Isolation check " + i + ", reply in one sentence.")
+                    .handle((reply, failure) -> failure == null && isSuccessful(reply)
+                            ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                            : -1L));
+        }
+        List<Long> finishedAt = new ArrayList<>();
+        long failures = 0;
+        for (CompletableFuture<Long> reply : replies) {
+            long millis = reply.join();
+            if (millis < 0) {
+                failures++;
+            } else {
+                finishedAt.add(millis);
+            }
+        }
+        Collections.sort(finishedAt);
+        long waves = (conversations + LEGACY_API_THREADS - 1) / LEGACY_API_THREADS;
+        System.out.printf("[LoadHarness] isolation: %d conversations at once, provider latency %d ms%n",
+                conversations, latencyMs);
+        if (!finishedAt.isEmpty()) {
+            System.out.printf("[LoadHarness] first reply after %d ms, last after %d ms, %d failed%n",
+                    finishedAt.get(0), finishedAt.get(finishedAt.size() - 1), failures);
+        }
+        System.out.printf("[LoadHarness] %d API threads would need about %d ms for the last reply%n",
+                LEGACY_API_THREADS, waves * latencyMs);
+    }
+
+    /**
+     * Sends the same workload with gzip on and off. {@link ChatService#getTransferStats()} counts since
+     * startup, so each line is the difference across one batch.
+     */
+    private static void runTransfer(ChatService chatService, MockProviderServer.Profile profile, int requests) {
+        for (boolean gzip : new boolean[]{true, false}) {
+            profile.gzip(gzip);
+            String encoding = gzip ? "gzip" : "identity";
+            measureTransfer(chatService, "completion, " + encoding, requests, number ->
+                    chatService.sendMessageAsync(new Conversation("Transfer"),
+                            "Explain topic " + number + " in detail.", null, ChatService.RequestMode.GROQ));
+            measureTransfer(chatService, "streamed completion, " + encoding, requests, number ->
+                    chatService.sendMessageAsync(new Conversation("Transfer"),
+                            "Explain topic " + number + " in detail.", null, ChatService.RequestMode.GROQ, delta -> {
+                            }));
+            measureTransfer(chatService, "generation polls, " + encoding, requests, number ->
+                    chatService.sendMessageAsync(new Conversation("Transfer"),
+                            "Generate an image of lighthouse " + number, null, ChatService.RequestMode.LEONARDO));
+        }
+    }
+
+    private static void measureTransfer(ChatService chatService,
+                                        String label,
+                                        int requests,
+                                        IntFunction<CompletableFuture<Message>> send) {
+        ChatService.TransferStats before = chatService.getTransferStats();
+        long failures = 0;
+        for (int i = 1; i <= requests; i++) {
+            Message reply = send.apply(i).handle((result, failure) -> failure == null ? result : null).join();
+            if (!isSuccessful(reply)) {
+                failures++;
+            }
+        }
+        ChatService.TransferStats after = chatService.getTransferStats();
+        long responses = after.responses() - before.responses();
+        long compressed = after.compressedResponses() - before.compressedResponses();
+        long wireBytes = after.wireBytes() - before.wireBytes();
+        long decodedBytes = after.decodedBytes() - before.decodedBytes();
+        System.out.printf(Locale.ROOT, "[LoadHarness] %-30s %4d responses (%d gzip): wire %,10d B, decoded %,10d B, wire/decoded %5.1f%%, %d failed%n",
+                label, responses, compressed, wireBytes, decodedBytes,
+                decodedBytes == 0 ? 0.0 : 100.0 * wireBytes / decodedBytes, failures);
+    }
+
+    private static CompletableFuture<Void> sendNext(ChatService chatService,
+                                                    Conversation conversation,
+                                                    AtomicInteger issued,
+                                                    int totalRequests,
+                                                    List<Long> latencies,
+                                                    LongAdder failures) {
+        int number = issued.incrementAndGet();
+        if (number > totalRequests) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long sentAt = System.nanoTime();
+        // Distinct text per request keeps any cache layer out of the measurement.
+        String prompt = "Explain topic " + number + " of the load test in two sentences.";
+        return chatService.sendMessageAsync(conversation, prompt)
+                .handle((reply, failure) -> {
+                    latencies.add(System.nanoTime() - sentAt);
+                    if (failure != null || !isSuccessful(reply)) {
+                        failures.increment();
+                    }
+                    if (reply != null) {
+                        conversation.addMessage(reply);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> sendNext(chatService, conversation, issued, totalRequests, latencies, failures));
+    }
+
+    private static boolean isSuccessful(Message reply) {
+        return reply != null && reply.getContent() != null && !reply.getContent().startsWith(FAILURE_PREFIX);
+    }
+
+    private static int intArg(String[] args, int index, int fallback) {
+        return args.length > index ? Integer.parseInt(args[index]) : fallback;
+    }
+
+    private static long longArg(String[] args, int index, long fallback) {
+        return args.length > index ? Long.parseLong(args[index]) : fallback;
+    }
+
+    private record Result(long elapsedNanos, List<Long> latencyNanos, long failures) {
+        private void print() {
+            List<Long> sorted = new ArrayList<>(latencyNanos);
+            Collections.sort(sorted);
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("[LoadHarness] %d replies in %.1f s: %.1f replies/s, %d failed (%.1f%%)%n",
+                    sorted.size(), seconds, sorted.size() / seconds, failures,
+                    sorted.isEmpty() ? 0.0 : 100.0 * failures / sorted.size());
+            System.out.printf("[LoadHarness] latency p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        }
+
+        private static long percentile(List<Long> sorted, double fraction) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))));
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.chatbot.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the provider endpoints ChatService calls: Groq/OpenAI chat completions, Google
+ * generateContent (plain and SSE), Leonardo generations and Freepik image/video tasks, plus the
+ * generated asset URLs. Latency, error rate, 429 bursts, streaming pace, reply length and gzip come
+ * from a {@link Profile}, so the request pipeline can be measured and regression-tested without live keys.
+ * Chat replies report token usage the way the real APIs do, sized from the request body.
+ *
+ * <p>Each provider lives under its own path prefix ({@code /groq}, {@code /google}, {@code /leonardo},
+ * {@code /freepik}); {@link #appProperties(int)} returns a matching app.properties for
+ * {@code -Dcortex.appProperties}. Run {@link #main} to keep a server up for manual testing.
+ */
+public final class MockProviderServer implements AutoCloseable {
+    // 1x1 transparent PNG.
+    private static final byte[] ASSET_BYTES = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=");
+    private static final String[] FILLER_WORDS = ("This text stands in for a model answer so streaming, parsing and"
+            + " compression can be exercised with replies of realistic length.").split(" ");
+
+    /**
+     * Fault and latency settings. Latency is log-normal, fitted to the given median and p95.
+     */
+    public static final class Profile {
+        long medianLatencyMs = 300;
+        long p95LatencyMs = 1200;
+        double errorRate;
+        long burstEveryMs;
+        long burstLengthMs;
+        long retryAfterMs = 1000;
+        int streamChunks = 20;
+        long chunkDelayMs = 15;
+        long generationReadyAfterMs = 1500;
+        int replyWords = 20;
+        // LoadHarness flips this between batches while the server runs.
+        volatile boolean gzip = true;
+
+        public Profile latency(long medianMs, long p95Ms) {
+            this.medianLatencyMs = Math.max(0, medianMs);
+            this.p95LatencyMs = Math.max(this.medianLatencyMs, p95Ms);
+            return this;
+        }
+
+        /**
+         * Share of requests (0.0 - 1.0) answered with HTTP 503.
+         */
+        public Profile errorRate(double errorRate) {
+            this.errorRate = Math.max(0.0, Math.min(1.0, errorRate));
+            return this;
+        }
+
+        /**
+         * Every {@code everyMs}, answer all requests with 429 for {@code lengthMs}.
+         */
+        public Profile rateLimitBursts(long everyMs, long lengthMs, long retryAfterMs) {
+            this.burstEveryMs = Math.max(0, everyMs);
+            this.burstLengthMs = Math.max(0, lengthMs);
+            this.retryAfterMs = Math.max(0, retryAfterMs);
+            return this;
+        }
+
+        public Profile streaming(int chunks, long chunkDelayMs) {
+            this.streamChunks = Math.max(1, chunks);
+            this.chunkDelayMs = Math.max(0, chunkDelayMs);
+            return this;
+        }
+
+        /**
+         * How long a Leonardo generation or Freepik task stays pending before its asset URL appears.
+         */
+        public Profile generationReadyAfter(long millis) {
+            this.generationReadyAfterMs = Math.max(0, millis);
+            return this;
+        }
+
+        public Profile replyWords(int words) {
+            this.replyWords = Math.max(1, words);
+            return this;
+        }
+
+        /**
+         * Whether bodies are gzip-compressed for clients that send {@code Accept-Encoding: gzip}.
+         */
+        public Profile gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        private long sampleLatencyMs() {
+            if (medianLatencyMs == 0) {
+                return 0;
+            }
+            double sigma = Math.log((double) p95LatencyMs / medianLatencyMs) / 1.645;
+            double sample = medianLatencyMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+            return Math.round(Math.min(sample, 120_000));
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Profile profile;
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Map<String, Long> jobCreatedAt = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestsByRoute = new ConcurrentHashMap<>();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedRateLimits = new LongAdder();
+
+    private MockProviderServer(HttpServer server, ExecutorService executor, Profile profile) {
+        this.server = server;
+        this.executor = executor;
+        this.profile = profile;
+    }
+
+    public static MockProviderServer start(Profile profile, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        // Handlers sleep to simulate latency, so every exchange gets its own thread.
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-provider");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MockProviderServer mock = new MockProviderServer(server, executor, profile);
+        server.createContext("/", mock::handle);
+        server.setExecutor(executor);
+        server.start();
+        return mock;
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * app.properties pointing every provider at this server, with {@code keysPerProvider} dummy keys each.
+     */
+    public String appProperties(int keysPerProvider) {
+        StringBuilder keys = new StringBuilder();
+        for (int i = 1; i <= Math.max(1, keysPerProvider); i++) {
+            keys.append(i == 1 ? "" : ",").append("mock-key-").append(i);
+        }
+        return "groq_base_url=" + baseUrl() + "/groq\n"
+                + "groq_model=mock-llama-3.3-70b\n"
+                + "groq_api_keys=" + keys + "\n"
+                + "google_base_url=" + baseUrl() + "/google\n"
+                + "google_model=gemini-2.0-flash\n"
+                + "google_ai_studio_api_keys=" + keys + "\n"
+                + "leonardo_base_url=" + baseUrl() + "/leonardo\n"
+                + "leonardo_api_keys=" + keys + "\n"
+                + "freepik_base_url=" + baseUrl() + "/freepik\n"
+                + "freepik_api_keys=" + keys + "\n";
+    }
+
+    public String statsSummary() {
+        Map<String, Long> routes = new TreeMap<>();
+        requestsByRoute.forEach((route, count) -> routes.put(route, count.sum()));
+        return "requests " + routes + ", injected 503s " + injectedErrors.sum()
+                + ", injected 429s " + injectedRateLimits.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ================= ROUTING =================
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String requestBody = readBody(exchange.getRequestBody());
+
+            if (path.startsWith("/assets/")) {
+                count("asset");
+                exchange.getResponseHeaders().set("Content-Type", "image/png");
+                // Images are already compressed; like real CDNs, never gzip them.
+                exchange.sendResponseHeaders(200, ASSET_BYTES.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(ASSET_BYTES);
+                }
+                return;
+            }
+
+            String route = route(method, path);
+            count(route);
+            if (route.equals("unknown")) {
+                sendJson(exchange, 404, "{\"error\":{\"message\":\"No mock for " + method + " " + path + "\"}}");
+                return;
+            }
+            if (injectFault(exchange)) {
+                return;
+            }
+            sleep(profile.sampleLatencyMs());
+
+            switch (route) {
+                case "groq-chat" -> handleOpenAiChat(exchange, requestBody);
+                case "google-chat" -> {
+                    String reply = mockReply("Google");
+                    sendJson(exchange, 200, googleChunk(reply, promptTokens(requestBody), tokens(reply)));
+                }
+                case "google-stream" -> streamGoogle(exchange, requestBody);
+                case "leonardo-create" -> sendJson(exchange, 200,
+                        "{\"sdGenerationJob\":{\"generationId\":\"" + createJob("gen") + "\",\"apiCreditCost\":1}}");
+                case "leonardo-status" -> handleLeonardoStatus(exchange, lastSegment(path));
+                case "freepik-create" -> sendJson(exchange, 200,
+                        "{\"data\":{\"task_id\":\"" + createJob("task") + "\",\"status\":\"CREATED\"}}");
+                case "freepik-status" -> handleFreepikStatus(exchange, lastSegment(path), path.contains("/video/"));
+                default -> sendJson(exchange, 404, "{\"error\":{\"message\":\"Unhandled route\"}}");
+            }
+        } catch (RuntimeException ex) {
+            System.err.println("[MockProviderServer] " + ex);
+        }
+    }
+
+    private static String route(String method, String path) {
+        boolean post = "POST".equals(method);
+        if (post && path.startsWith("/groq/") && path.endsWith("/v1/chat/completions")) {
+            return "groq-chat";
+        }
+        if (post && path.startsWith("/google/") && path.endsWith(":streamGenerateContent")) {
+            return "google-stream";
+        }
+        if (post && path.startsWith("/google/") && path.endsWith(":generateContent")) {
+            return "google-chat";
+        }
+        if (path.startsWith("/leonardo/")) {
+            if (post && path.endsWith("/generations")) {
+                return "leonardo-create";
+            }
+            if (!post && path.contains("/generations/")) {
+                return "leonardo-status";
+            }
+        }
+        if (path.startsWith("/freepik/") && (path.contains("/text-to-image/") || path.contains("/video/"))) {
+            // Create: /freepik/text-to-image/{model}; status: /freepik/text-to-image/{model}/{task}.
+            return post ? "freepik-create" : "freepik-status";
+        }
+        return "unknown";
+    }
+
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        if (profile.burstEveryMs > 0) {
+            long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+            if (elapsedMs % profile.burstEveryMs < profile.burstLengthMs) {
+                injectedRateLimits.increment();
+                exchange.getResponseHeaders().set("retry-after-ms", String.valueOf(profile.retryAfterMs));
+                exchange.getResponseHeaders().set("retry-after", String.valueOf(Math.max(1, profile.retryAfterMs / 1000)));
+                sendJson(exchange, 429, "{\"error\":{\"message\":\"Mock rate limit burst\"}}");
+                return true;
+            }
+        }
+        if (profile.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < profile.errorRate) {
+            injectedErrors.increment();
+            sleep(profile.sampleLatencyMs() / 4);
+            sendJson(exchange, 503, "{\"error\":{\"message\":\"Mock upstream unavailable\"}}");
+            return true;
+        }
+        return false;
+    }
+
+    // ================= PROVIDERS =================
+    private void handleOpenAiChat(HttpExchange exchange, String requestBody) throws IOException {
+        String reply = mockReply("Groq");
+        String compactRequest = requestBody.replace(" ", "");
+        String usage = "\"usage\":{\"prompt_tokens\":" + promptTokens(requestBody)
+                + ",\"completion_tokens\":" + tokens(reply) + "}";
+        if (!compactRequest.contains("\"stream\":true")) {
+            sendJson(exchange, 200, "{\"id\":\"mock\",\"object\":\"chat.completion\",\"choices\":[{\"index\":0,"
+                    + "\"message\":{\"role\":\"assistant\",\"content\":\"" + reply + "\"},\"finish_reason\":\"stop\"}],"
+                    + usage + "}");
+            return;
+        }
+        try (OutputStream output = startEventStream(exchange)) {
+            for (String chunk : split(reply)) {
+                writeEvent(output, "{\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + chunk + "\"}}]}");
+                sleep(profile.chunkDelayMs);
+            }
+            if (compactRequest.contains("\"include_usage\":true")) {
+                writeEvent(output, "{\"choices\":[]," + usage + "}");
+            } else {
+                // Like Groq, which reports usage with the last chunk without being asked.
+                writeEvent(output, "{\"choices\":[],\"x_groq\":{\"id\":\"mock\"," + usage + "}}");
+            }
+            writeEvent(output, "[DONE]");
+        }
+    }
+
+    private void streamGoogle(HttpExchange exchange, String requestBody) throws IOException {
+        int promptTokens = promptTokens(requestBody);
+        int completionTokens = 0;
+        try (OutputStream output = startEventStream(exchange)) {
+            for (String chunk : split(mockReply("Google"))) {
+                // Like Gemini, every chunk carries the usage so far.
+                completionTokens += tokens(chunk);
+                writeEvent(output, googleChunk(chunk, promptTokens, completionTokens));
+                sleep(profile.chunkDelayMs);
+            }
+        }
+    }
+
+    private void handleLeonardoStatus(HttpExchange exchange, String generationId) throws IOException {
+        if (!isJobReady(generationId)) {
+            sendJson(exchange, 200, "{\"generations_by_pk\":{\"status\":\"PENDING\",\"generated_images\":[]}}");
+            return;
+        }
+        sendJson(exchange, 200, "{\"generations_by_pk\":{\"status\":\"COMPLETE\",\"generated_images\":[{\"url\":\""
+                + baseUrl() + "/assets/" + generationId + ".png\"}]}}");
+    }
+
+    private void handleFreepikStatus(HttpExchange exchange, String taskId, boolean video) throws IOException {
+        if (!isJobReady(taskId)) {
+            sendJson(exchange, 200, "{\"data\":{\"task_id\":\"" + taskId + "\",\"status\":\"IN_PROGRESS\",\"generated\":[]}}");
+            return;
+        }
+        String asset = baseUrl() + "/assets/" + taskId + (video ? ".mp4" : ".png");
+        sendJson(exchange, 200, "{\"data\":{\"task_id\":\"" + taskId + "\",\"status\":\"COMPLETED\",\"generated\":[\""
+                + asset + "\"]}}");
+    }
+
+    private String createJob(String prefix) {
+        String id = prefix + "-" + idSequence.incrementAndGet();
+        jobCreatedAt.put(id, System.nanoTime());
+        return id;
+    }
+
+    private boolean isJobReady(String id) {
+        Long createdAt = jobCreatedAt.get(id);
+        return createdAt != null && (System.nanoTime() - createdAt) / 1_000_000 >= profile.generationReadyAfterMs;
+    }
+
+    // ================= HELPERS =================
+    private String mockReply(String provider) {
+        StringBuilder reply = new StringBuilder("Mock reply " + idSequence.incrementAndGet() + " from " + provider + ".");
+        for (int i = 0; i < profile.replyWords; i++) {
+            reply.append(' ').append(FILLER_WORDS[i % FILLER_WORDS.length]);
+        }
+        return reply.toString();
+    }
+
+    private String[] split(String reply) {
+        String[] words = reply.split(" ");
+        int chunks = Math.min(profile.streamChunks, words.length);
+        String[] result = new String[chunks];
+        for (int i = 0; i < chunks; i++) {
+            int from = i * words.length / chunks;
+            int to = (i + 1) * words.length / chunks;
+            StringBuilder chunk = new StringBuilder();
+            for (int w = from; w < to; w++) {
+                chunk.append(words[w]).append(w == words.length - 1 ? "" : " ");
+            }
+            result[i] = chunk.toString();
+        }
+        return result;
+    }
+
+    private static String googleChunk(String text, int promptTokens, int completionTokens) {
+        return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":\"" + text + "\"}]}}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":" + promptTokens + ",\"candidatesTokenCount\":" + completionTokens
+                + ",\"totalTokenCount\":" + (promptTokens + completionTokens) + "}}";
+    }
+
+    /**
+     * Rough token count of a request body, enough for usage accounting to see prompts grow.
+     */
+    private static int promptTokens(String requestBody) {
+        return Math.max(1, requestBody.length() / 4);
+    }
+
+    private static int tokens(String text) {
+        return Math.max(1, text.split(" ").length * 4 / 3);
+    }
+
+    private static String lastSegment(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private void count(String route) {
+        requestsByRoute.computeIfAbsent(route, ignored -> new LongAdder()).increment();
+    }
+
+    private static String readBody(InputStream input) throws IOException {
+        return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private OutputStream startEventStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (acceptsGzip(exchange)) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            // Sync flush so every event leaves the compressor as soon as it is written.
+            return new GZIPOutputStream(exchange.getResponseBody(), true);
+        }
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    private boolean acceptsGzip(HttpExchange exchange) {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return profile.gzip && accepted != null && accepted.toLowerCase().contains("gzip");
+    }
+
+    private static void writeEvent(OutputStream output, String data) throws IOException {
+        output.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        if (acceptsGzip(exchange)) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Standalone server: {@code [port] [medianMs] [p95Ms] [errorRate]}. Prints the app.properties to use.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        Profile profile = new Profile()
+                .latency(args.length > 1 ? Long.parseLong(args[1]) : 300, args.length > 2 ? Long.parseLong(args[2]) : 1200)
+                .errorRate(args.length > 3 ? Double.parseDouble(args[3]) : 0.0);
+        MockProviderServer mock = start(profile, port);
+        System.out.println("Mock providers listening on " + mock.baseUrl());
+        System.out.println("Save as app.properties and run Cortex with -Dcortex.appProperties=<file>:");
+        System.out.println(mock.appProperties(2));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ApiKeyPoolTest {
+    private static final String PROVIDER = "GROQ";
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final ApiKeyPool pool = new ApiKeyPool(now::get);
+
+    @Test
+    void parsesResetDurations() {
+        assertEquals(90_000, ApiKeyPool.headerDuration(headers("x-reset", "1m30s"), "x-reset"));
+        assertEquals(250, ApiKeyPool.headerDuration(headers("x-reset", "250ms"), "x-reset"));
+        assertEquals(7_660, ApiKeyPool.headerDuration(headers("x-reset", "7.66s"), "x-reset"));
+        assertEquals(179_560, ApiKeyPool.headerDuration(headers("x-reset", "2m59.56s"), "x-reset"));
+        assertEquals(3_600_000, ApiKeyPool.headerDuration(headers("x-reset", "1h"), "x-reset"));
+        assertEquals(3_000, ApiKeyPool.headerDuration(headers("x-reset", "3"), "x-reset"));
+        assertEquals(0, ApiKeyPool.headerDuration(headers(), "x-reset"));
+    }
+
+    @Test
+    void retryAfterMillisBlocksTheKeyForExactlyThatLong() {
+        pool.observe(PROVIDER, "key-a", 429, headers("retry-after-ms", "1500", "retry-after", "30"));
+
+        assertNull(pool.acquire(PROVIDER, List.of("key-a"), 0));
+        assertEquals(1500, pool.millisUntilReady(PROVIDER, List.of("key-a"), 0));
+
+        now.addAndGet(1499);
+        assertNull(pool.acquire(PROVIDER, List.of("key-a"), 0));
+        now.addAndGet(1);
+        assertEquals("key-a", pool.acquire(PROVIDER, List.of("key-a"), 0));
+    }
+
+    @Test
+    void retryAfterSecondsIsUsedWithoutTheMillisHeader() {
+        pool.observe(PROVIDER, "key-a", 429, headers("retry-after", "2.5"));
+
+        assertEquals(2500, pool.millisUntilReady(PROVIDER, List.of("key-a"), 0));
+    }
+
+    @Test
+    void exhaustedRequestWindowBlocksUntilReset() {
+        pool.observe(PROVIDER, "key-a", 200, headers(
+                "x-ratelimit-limit-requests", "30",
+                "x-ratelimit-remaining-requests", "0",
+                "x-ratelimit-reset-requests", "1m30s"
+        ));
+
+        assertNull(pool.acquire(PROVIDER, List.of("key-a"), 0));
+        assertEquals(90_000, pool.millisUntilReady(PROVIDER, List.of("key-a"), 0));
+    }
+
+    @Test
+    void picksTheKeyWithTheMostHeadroom() {
+        List<String> keys = List.of("key-a", "key-b");
+        pool.observe(PROVIDER, "key-a", 200, headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "10"));
+        pool.observe(PROVIDER, "key-b", 200, headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "80"));
+
+        assertEquals("key-b", pool.acquire(PROVIDER, keys, 0));
+
+        pool.observe(PROVIDER, "key-a", 200, headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "90"));
+        assertEquals("key-a", pool.acquire(PROVIDER, keys, 0));
+    }
+
+    @Test
+    void tokenHeadroomCountsAsWellAsRequestHeadroom() {
+        List<String> keys = List.of("key-a", "key-b");
+        pool.observe(PROVIDER, "key-a", 200, headers(
+                "x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "99",
+                "x-ratelimit-limit-tokens", "6000", "x-ratelimit-remaining-tokens", "300"
+        ));
+        pool.observe(PROVIDER, "key-b", 200, headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "50"));
+
+        assertEquals("key-b", pool.acquire(PROVIDER, keys, 0));
+    }
+
+    @Test
+    void noBudgetAndNoHeadersNeverBlocks() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("key-a", pool.acquire(PROVIDER, List.of("key-a"), 0));
+        }
+        assertEquals(0, pool.millisUntilReady(PROVIDER, List.of("key-a"), 0));
+    }
+
+    @Test
+    void bucketWaitShrinksAsItRefills() {
+        List<String> keys = List.of("key-a");
+        for (int i = 0; i < 60; i++) {
+            assertEquals("key-a", pool.acquire(PROVIDER, keys, 60));
+        }
+        assertNull(pool.acquire(PROVIDER, keys, 60));
+        assertEquals(1000, pool.millisUntilReady(PROVIDER, keys, 60));
+
+        now.addAndGet(400);
+        assertEquals(600, pool.millisUntilReady(PROVIDER, keys, 60));
+
+        now.addAndGet(600);
+        assertEquals(0, pool.millisUntilReady(PROVIDER, keys, 60));
+        assertEquals("key-a", pool.acquire(PROVIDER, keys, 60));
+    }
+
+    @Test
+    void waitIsTheSoonestKeyAcrossThePool() {
+        pool.observe(PROVIDER, "key-a", 429, headers("retry-after-ms", "5000"));
+        pool.observe(PROVIDER, "key-b", 429, headers("retry-after-ms", "2000"));
+
+        assertEquals(2000, pool.millisUntilReady(PROVIDER, List.of("key-a", "key-b"), 0));
+        now.addAndGet(2000);
+        assertEquals("key-b", pool.acquire(PROVIDER, List.of("key-a", "key-b"), 0));
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], List.of(namesAndValues[i + 1]));
+        }
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+}
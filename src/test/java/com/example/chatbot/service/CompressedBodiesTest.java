@@ -0,0 +1,238 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+class CompressedBodiesTest {
+    private static final byte[] TEXT = ("data: {\"choices\":[{\"delta\":{\"content\":\"Hello \\u00e9 世界\"}}]}\n\n"
+            .repeat(40)).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void decodesGzipSplitAtEveryByteBoundary() throws Exception {
+        byte[] gzip = gzip(TEXT);
+        for (int split = 0; split <= gzip.length; split++) {
+            byte[] decoded = decode("gzip", Arrays.copyOfRange(gzip, 0, split), Arrays.copyOfRange(gzip, split, gzip.length));
+            assertArrayEquals(TEXT, decoded, "split at " + split);
+        }
+    }
+
+    @Test
+    void decodesGzipFedOneByteAtATime() throws Exception {
+        assertArrayEquals(TEXT, decode("gzip", bytewise(gzip(TEXT))));
+    }
+
+    @Test
+    void skipsOptionalHeaderFields() throws Exception {
+        byte[] member = gzipWithHeaderFields(TEXT);
+        // The JDK decoder checks FHCRC, so this also proves the hand-built header is valid.
+        try (GZIPInputStream reference = new GZIPInputStream(new java.io.ByteArrayInputStream(member))) {
+            assertArrayEquals(TEXT, reference.readAllBytes());
+        }
+
+        for (int split = 0; split <= member.length; split++) {
+            byte[] decoded = decode("gzip", Arrays.copyOfRange(member, 0, split), Arrays.copyOfRange(member, split, member.length));
+            assertArrayEquals(TEXT, decoded, "split at " + split);
+        }
+        assertArrayEquals(TEXT, decode("x-gzip", bytewise(member)));
+    }
+
+    @Test
+    void decodesConcatenatedMembers() throws Exception {
+        byte[] first = "first member, ".getBytes(StandardCharsets.UTF_8);
+        byte[] second = gzipWithHeaderFields(TEXT);
+        byte[] body = concat(gzip(first), second);
+
+        for (int split = 0; split <= body.length; split++) {
+            byte[] decoded = decode("gzip", Arrays.copyOfRange(body, 0, split), Arrays.copyOfRange(body, split, body.length));
+            assertArrayEquals(concat(first, TEXT), decoded, "split at " + split);
+        }
+    }
+
+    @Test
+    void ignoresZeroPaddingAfterTheLastMember() throws Exception {
+        byte[] body = concat(gzip(TEXT), new byte[16]);
+
+        assertArrayEquals(TEXT, decode("gzip", body));
+        assertArrayEquals(TEXT, decode("gzip", bytewise(body)));
+    }
+
+    @Test
+    void decodesAnEmptyMember() throws Exception {
+        assertArrayEquals(new byte[0], decode("gzip", gzip(new byte[0])));
+    }
+
+    @Test
+    void truncatedStreamFails() throws Exception {
+        byte[] gzip = gzip(TEXT);
+        for (int length : new int[]{5, 12, gzip.length / 2, gzip.length - 3}) {
+            byte[] truncated = Arrays.copyOf(gzip, length);
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> decode("gzip", truncated));
+            assertInstanceOf(IOException.class, failure.getCause(), "length " + length);
+        }
+    }
+
+    @Test
+    void corruptedChecksumFails() throws Exception {
+        byte[] gzip = gzip(TEXT);
+        gzip[gzip.length - 8] ^= 0x01;
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> decode("gzip", gzip));
+        assertInstanceOf(IOException.class, failure.getCause());
+        failure = assertThrows(ExecutionException.class, () -> decode("gzip", bytewise(gzip)));
+        assertInstanceOf(IOException.class, failure.getCause());
+    }
+
+    @Test
+    void nonGzipBodyWithGzipHeaderFails() {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> decode("gzip", TEXT));
+        assertInstanceOf(IOException.class, failure.getCause());
+    }
+
+    @Test
+    void passesIdentityBodiesThroughUnchanged() throws Exception {
+        assertArrayEquals(TEXT, decode(null, Arrays.copyOf(TEXT, 100), Arrays.copyOfRange(TEXT, 100, TEXT.length)));
+        assertArrayEquals(TEXT, decode("identity", TEXT));
+    }
+
+    @Test
+    void countsWireAndDecodedBytes() throws Exception {
+        CompressedBodies.Totals before = CompressedBodies.totals();
+        byte[] gzip = gzip(TEXT);
+        decode("gzip", gzip);
+        CompressedBodies.Totals after = CompressedBodies.totals();
+
+        assertEquals(1, after.compressedResponses() - before.compressedResponses());
+        assertEquals(gzip.length, after.wireBytes() - before.wireBytes());
+        assertEquals(TEXT.length, after.decodedBytes() - before.decodedBytes());
+    }
+
+    /**
+     * Runs {@code chunks} through the decoding handler the way HttpClient would deliver them.
+     */
+    private static byte[] decode(String contentEncoding, byte[]... chunks) throws Exception {
+        HttpResponse.BodySubscriber<byte[]> subscriber = CompressedBodies
+                .decoding(HttpResponse.BodyHandlers.ofByteArray())
+                .apply(responseInfo(contentEncoding));
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (byte[] chunk : chunks) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(chunk)));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().get();
+    }
+
+    private static HttpResponse.ResponseInfo responseInfo(String contentEncoding) {
+        HttpHeaders headers = HttpHeaders.of(
+                contentEncoding == null ? Map.of() : Map.of("Content-Encoding", List.of(contentEncoding)),
+                (name, value) -> true
+        );
+        return new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+    }
+
+    private static byte[][] bytewise(byte[] bytes) {
+        byte[][] chunks = new byte[bytes.length][];
+        for (int i = 0; i < bytes.length; i++) {
+            chunks[i] = new byte[]{bytes[i]};
+        }
+        return chunks;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A gzip member with FEXTRA, FNAME, FCOMMENT and FHCRC set, which GZIPOutputStream never writes.
+     */
+    private static byte[] gzipWithHeaderFields(byte[] data) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.writeBytes(new byte[]{0x1F, (byte) 0x8B, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xFF});
+        byte[] extra = new byte[300];
+        new Random(7).nextBytes(extra);
+        header.write(extra.length & 0xFF);
+        header.write(extra.length >>> 8);
+        header.writeBytes(extra);
+        header.writeBytes("reply.json\0".getBytes(StandardCharsets.ISO_8859_1));
+        header.writeBytes("compressed by a test\0".getBytes(StandardCharsets.ISO_8859_1));
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(header.toByteArray());
+        header.write((int) headerCrc.getValue() & 0xFF);
+        header.write((int) (headerCrc.getValue() >>> 8) & 0xFF);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            body.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crc.getValue() >>> (8 * i));
+            trailer[4 + i] = (byte) (data.length >>> (8 * i));
+        }
+        return concat(header.toByteArray(), concat(body.toByteArray(), trailer));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
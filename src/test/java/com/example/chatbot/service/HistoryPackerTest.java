@@ -0,0 +1,114 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.chatbot.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HistoryPackerTest {
+    private static final String MODEL = "llama-3.3-70b-versatile";
+    private static final String SYSTEM_PROMPT = "You are Cortex.";
+    private static final String MARKER = "[earlier part of this message omitted]\n";
+
+    @Test
+    void packsAFixedHistoryTheSameWayEveryTime() {
+        List<Message> history = history(8);
+
+        List<Message> packed = HistoryPacker.pack(history, SYSTEM_PROMPT, MODEL, 400);
+
+        // Each turn costs 146 tokens and the system prompt 9: two turns fit whole and 99 tokens are left
+        // for the tail of the third.
+        assertEquals(3, packed.size());
+        assertSame(history.get(6), packed.get(1));
+        assertSame(history.get(7), packed.get(2));
+        String full = history.get(5).getContent();
+        assertEquals(MARKER + full.substring(full.length() - 277), packed.get(0).getContent());
+        assertEquals(Message.Sender.BOT, packed.get(0).getSender());
+        assertEquals(packed.get(0).getContent(), HistoryPacker.pack(history, SYSTEM_PROMPT, MODEL, 400).get(0).getContent());
+    }
+
+    @Test
+    void dropsTheTurnThatDoesNotFitWhenTooLittleIsLeftForATail() {
+        List<Message> history = history(8);
+
+        // 491 tokens after the system prompt: three whole turns, then 53 left, below the 64 worth cutting.
+        List<Message> packed = HistoryPacker.pack(history, SYSTEM_PROMPT, MODEL, 500);
+
+        assertEquals(List.of(history.get(5), history.get(6), history.get(7)), packed);
+    }
+
+    @Test
+    void keepsEverythingThatFits() {
+        List<Message> history = history(4);
+
+        assertEquals(history, HistoryPacker.pack(history, SYSTEM_PROMPT, MODEL, 100_000));
+        assertEquals(List.of(), HistoryPacker.pack(List.of(), SYSTEM_PROMPT, MODEL, 100));
+    }
+
+    @Test
+    void alwaysKeepsTheNewestTurn() {
+        List<Message> history = history(3);
+        String newest = history.get(2).getContent();
+
+        for (int budget : new int[]{-50, 0, 1, 20, 100}) {
+            List<Message> packed = HistoryPacker.pack(history, "A long system prompt. ".repeat(100), MODEL, budget);
+            assertEquals(1, packed.size(), "budget " + budget);
+            String content = packed.get(0).getContent();
+            assertTrue(content.startsWith(MARKER), "budget " + budget);
+            assertTrue(newest.endsWith(content.substring(MARKER.length())), "budget " + budget);
+            assertFalse(content.substring(MARKER.length()).isEmpty(), "budget " + budget);
+        }
+    }
+
+    @Test
+    void truncatedTurnKeepsItsImage() {
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        Message withImage = new Message(Message.Sender.USER, "describe this ".repeat(400), "chart.png", "image/png", image);
+
+        Message packed = HistoryPacker.pack(List.of(withImage), SYSTEM_PROMPT, MODEL, 200).get(0);
+
+        assertTrue(packed.getContent().startsWith(MARKER));
+        assertTrue(packed.hasImageAttachment());
+        assertArrayEquals(image, packed.getImageData());
+        assertEquals("chart.png", packed.getImageFileName());
+        assertEquals("image/png", packed.getImageMimeType());
+    }
+
+    @Test
+    void neverStartsATailInsideASurrogatePair() {
+        Message emoji = new Message(Message.Sender.BOT, "x" + "😀🎉 ".repeat(300));
+
+        for (int budget = 60; budget < 400; budget++) {
+            List<Message> packed = HistoryPacker.pack(List.of(emoji), SYSTEM_PROMPT, MODEL, budget);
+            String tail = packed.get(0).getContent().substring(MARKER.length());
+            assertWellFormed(tail, budget);
+        }
+    }
+
+    private static void assertWellFormed(String text, int budget) {
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (Character.isHighSurrogate(ch)) {
+                assertTrue(i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1)), "budget " + budget);
+                i++;
+            } else {
+                assertFalse(Character.isLowSurrogate(ch), "unpaired low surrogate at " + i + ", budget " + budget);
+            }
+        }
+    }
+
+    private static List<Message> history(int turns) {
+        List<Message> history = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            history.add(new Message(i % 2 == 0 ? Message.Sender.USER : Message.Sender.BOT,
+                    "turn " + i + " " + "alpha beta gamma delta ".repeat(20)));
+        }
+        return history;
+    }
+}
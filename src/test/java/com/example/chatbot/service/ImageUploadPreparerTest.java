@@ -0,0 +1,75 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class ImageUploadPreparerTest {
+    private final ImageUploadPreparer preparer = new ImageUploadPreparer();
+
+    @Test
+    void untouchedImagesKeepEachCallersNameAndType() throws IOException {
+        byte[] gif = encode(gradient(64, 48), "gif");
+        ChatService.ImageAttachment first = new ChatService.ImageAttachment("first.gif", "image/gif", gif);
+        // Equal bytes in another array, so only the cache key matches.
+        ChatService.ImageAttachment second = new ChatService.ImageAttachment("second.gif", "image/gif", Arrays.copyOf(gif, gif.length));
+
+        assertSame(first, preparer.prepare(first, 2048).join());
+        assertSame(second, preparer.prepare(second, 2048).join());
+    }
+
+    @Test
+    void undecodableImagesKeepEachCallersNameAndType() {
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 not really".getBytes();
+        ChatService.ImageAttachment first = new ChatService.ImageAttachment("first.webp", "image/webp", webp);
+        ChatService.ImageAttachment second = new ChatService.ImageAttachment("second.webp", "image/webp", webp.clone());
+
+        assertSame(first, preparer.prepare(first, 2048).join());
+        assertSame(second, preparer.prepare(second, 2048).join());
+    }
+
+    @Test
+    void reencodedImagesAreRenamedForEveryCaller() throws IOException {
+        byte[] png = encode(gradient(800, 600), "png");
+        ChatService.ImageAttachment first = new ChatService.ImageAttachment("shot.png", "image/png", png);
+        ChatService.ImageAttachment second = new ChatService.ImageAttachment("copy.png", "image/png", png.clone());
+
+        ChatService.ImageAttachment firstResult = preparer.prepare(first, 200).join();
+        ChatService.ImageAttachment secondResult = preparer.prepare(second, 200).join();
+
+        assertEquals("shot.jpg", firstResult.fileName());
+        assertEquals("image/jpeg", firstResult.mimeType());
+        assertTrue(firstResult.data().length < png.length);
+        assertEquals("copy.jpg", secondResult.fileName());
+        assertEquals("image/jpeg", secondResult.mimeType());
+        assertArrayEquals(firstResult.data(), secondResult.data());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(secondResult.data()));
+        assertEquals(200, decoded.getWidth());
+        assertEquals(150, decoded.getHeight());
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x ^ y) & 0xFF));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, output));
+        return output.toByteArray();
+    }
+}
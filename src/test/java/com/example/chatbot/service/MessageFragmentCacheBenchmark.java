@@ -0,0 +1,44 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.model.Message;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times assembling the messages array of a chat request with and without {@link MessageFragmentCache},
+ * for conversations of growing length. Each send re-reads the whole history, as a real reply does.
+ *
+ * <p>Arguments: {@code [sends]}.
+ */
+final class MessageFragmentCacheBenchmark {
+    private static final String SYSTEM_PROMPT = "You are Cortex, a coding assistant.";
+
+    private MessageFragmentCacheBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int sends = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        for (int turns : new int[]{20, 200, 1000}) {
+            List<Message> history = MessageFragmentCacheTest.conversation(turns);
+            MessageFragmentCache cache = new MessageFragmentCache(ChatService::jsonEscape);
+            long sink = 0;
+            for (int i = 0; i < sends / 4; i++) {
+                sink += MessageFragmentCacheTest.uncachedOpenAiBody(SYSTEM_PROMPT, history).length();
+                sink += MessageFragmentCacheTest.cachedOpenAiBody(cache, SYSTEM_PROMPT, history).length();
+            }
+            int runs = Math.max(20, sends * 20 / turns);
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += MessageFragmentCacheTest.uncachedOpenAiBody(SYSTEM_PROMPT, history).length();
+            }
+            long uncachedNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += MessageFragmentCacheTest.cachedOpenAiBody(cache, SYSTEM_PROMPT, history).length();
+            }
+            long cachedNanos = System.nanoTime() - start;
+            System.out.println(String.format(Locale.ROOT, "[FragmentBenchmark] %4d turns: escaped every send %8.1f us, cached %8.1f us (%d)",
+                    turns, uncachedNanos / 1000.0 / runs, cachedNanos / 1000.0 / runs, sink & 1));
+        }
+    }
+}
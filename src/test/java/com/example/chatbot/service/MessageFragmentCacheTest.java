@@ -0,0 +1,130 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.chatbot.model.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class MessageFragmentCacheTest {
+    private static final String SYSTEM_PROMPT = "You are Cortex.\n\"Answer\" briefly.";
+
+    @Test
+    void cachedBodyMatchesUncachedEscapingAfterAnEdit() {
+        MessageFragmentCache cache = new MessageFragmentCache(ChatService::jsonEscape);
+        List<Message> history = conversation(200);
+        assertEquals(uncachedOpenAiBody(SYSTEM_PROMPT, history), cachedOpenAiBody(cache, SYSTEM_PROMPT, history));
+
+        assertTrue(history.get(57).editContent("Edited: use \"\\\\\" and\ttabs \u0001 instead"));
+        assertEquals(uncachedOpenAiBody(SYSTEM_PROMPT, history), cachedOpenAiBody(cache, SYSTEM_PROMPT, history));
+
+        String original = history.get(57).getPreviousContent();
+        assertTrue(history.get(57).editContent(original));
+        assertEquals(uncachedOpenAiBody(SYSTEM_PROMPT, history), cachedOpenAiBody(cache, SYSTEM_PROMPT, history));
+    }
+
+    @Test
+    void googleTurnsFollowEditsToo() {
+        MessageFragmentCache cache = new MessageFragmentCache(ChatService::jsonEscape);
+        List<Message> history = conversation(40);
+        assertEquals(uncachedGoogleTurns(history), cachedGoogleTurns(cache, history));
+
+        history.get(3).editContent("shorter");
+        history.get(38).editContent(history.get(38).getContent() + "\r\nappended \"line\"");
+        assertEquals(uncachedGoogleTurns(history), cachedGoogleTurns(cache, history));
+    }
+
+    @Test
+    void escapesEachMessageOnceUntilItChanges() {
+        AtomicInteger escapes = new AtomicInteger();
+        MessageFragmentCache cache = new MessageFragmentCache(value -> {
+            escapes.incrementAndGet();
+            return ChatService.jsonEscape(value);
+        });
+        List<Message> history = conversation(200);
+
+        String first = cachedOpenAiBody(cache, SYSTEM_PROMPT, history);
+        assertEquals(201, escapes.get());
+        assertEquals(first, cachedOpenAiBody(cache, SYSTEM_PROMPT, history));
+        assertEquals(201, escapes.get());
+        assertSame(cache.openAiMessage(history.get(10)), cache.openAiMessage(history.get(10)));
+
+        history.get(10).editContent("changed");
+        cachedOpenAiBody(cache, SYSTEM_PROMPT, history);
+        assertEquals(202, escapes.get());
+    }
+
+    @Test
+    void systemPromptIsRebuiltWhenItChanges() {
+        MessageFragmentCache cache = new MessageFragmentCache(ChatService::jsonEscape);
+        List<Message> history = conversation(4);
+        cachedOpenAiBody(cache, SYSTEM_PROMPT, history);
+
+        String custom = "Custom \"prompt\"\nwith lines";
+        assertEquals(uncachedOpenAiBody(custom, history), cachedOpenAiBody(cache, custom, history));
+        cache.invalidateSystemPrompt();
+        assertEquals(uncachedOpenAiBody(custom, history), cachedOpenAiBody(cache, custom, history));
+    }
+
+    static List<Message> conversation(int turns) {
+        List<Message> history = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            Message.Sender sender = i % 2 == 0 ? Message.Sender.USER : Message.Sender.BOT;
+            String content = sender == Message.Sender.USER
+                    ? "Question " + i + ": why does \"map.get(key)\" return null?\n```java\nif (x < 0) {\n\treturn \"\\\\\";\n}\n```"
+                    : ("Answer " + i + ": the key's hashCode changed after insertion. Café ✓ 😀\n").repeat(12);
+            history.add(new Message(sender, content));
+        }
+        return history;
+    }
+
+    /**
+     * The messages array as ChatService builds it, with every fragment taken from the cache.
+     */
+    static String cachedOpenAiBody(MessageFragmentCache cache, String systemPrompt, List<Message> history) {
+        StringBuilder body = new StringBuilder("[{\"role\":\"system\",\"content\":\"")
+                .append(cache.escapedSystemPrompt(systemPrompt))
+                .append("\"}");
+        for (Message message : history) {
+            body.append(',').append(cache.openAiMessage(message));
+        }
+        return body.append(']').toString();
+    }
+
+    /**
+     * The same array escaped from scratch, as it was built before the cache existed.
+     */
+    static String uncachedOpenAiBody(String systemPrompt, List<Message> history) {
+        StringBuilder body = new StringBuilder("[{\"role\":\"system\",\"content\":\"")
+                .append(ChatService.jsonEscape(systemPrompt))
+                .append("\"}");
+        for (Message message : history) {
+            String role = message.getSender() == Message.Sender.USER ? "user" : "assistant";
+            body.append(",{\"role\":\"").append(role).append("\",\"content\":\"")
+                    .append(ChatService.jsonEscape(message.getContent())).append("\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private static String cachedGoogleTurns(MessageFragmentCache cache, List<Message> history) {
+        StringBuilder body = new StringBuilder();
+        for (Message message : history) {
+            body.append(cache.googleTurnOpening(message)).append("]}");
+        }
+        return body.toString();
+    }
+
+    private static String uncachedGoogleTurns(List<Message> history) {
+        StringBuilder body = new StringBuilder();
+        for (Message message : history) {
+            String role = message.getSender() == Message.Sender.USER ? "user" : "model";
+            body.append("{\"role\":\"").append(role).append("\",\"parts\":[{\"text\":\"")
+                    .append(ChatService.jsonEscape(message.getContent())).append("\"}]}");
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.chatbot.service;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Times {@link PromptSignals#scan} against the lower-case-and-contains() scan it replaced, on a short
+ * prompt and on long pasted code. Every prompt ends with a request line, as pasted code usually does.
+ *
+ * <p>Arguments: {@code [iterations]}.
+ */
+final class PromptSignalsBenchmark {
+    private PromptSignalsBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random random = new Random(7);
+        for (int chars : new int[]{2_000, 50_000, 200_000}) {
+            String prompt = PromptSignalsTest.codeLikeText(chars, random)
+                    + "\nWhy does this fail? Also make a diagram of the flow.";
+            if (!matches(prompt)) {
+                throw new IllegalStateException("Scans disagree on a " + chars + " char prompt.");
+            }
+            int runs = Math.max(20, (int) ((long) iterations * 2_000 / chars));
+            long sink = 0;
+            for (int i = 0; i < runs; i++) {
+                sink += PromptSignalsTest.naiveScan(prompt).size();
+                sink += PromptSignals.scan(prompt).isImageGenerationPrompt() ? 1 : 0;
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += PromptSignalsTest.naiveScan(prompt).size();
+            }
+            long naiveNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += PromptSignals.scan(prompt).isImageGenerationPrompt() ? 1 : 0;
+            }
+            long automatonNanos = System.nanoTime() - start;
+            System.out.println(String.format(Locale.ROOT, "[SignalsBenchmark] %,7d char prompt: naive %8.1f us, automaton %8.1f us (%d)",
+                    prompt.length(), naiveNanos / 1000.0 / runs, automatonNanos / 1000.0 / runs, sink & 1));
+        }
+    }
+
+    private static boolean matches(String prompt) {
+        PromptSignals signals = PromptSignals.scan(prompt);
+        Set<PromptSignals.Signal> expected = PromptSignalsTest.naiveScan(prompt);
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            if (signals.has(signal) != expected.contains(signal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
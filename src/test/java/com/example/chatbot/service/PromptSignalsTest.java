@@ -0,0 +1,158 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PromptSignalsTest {
+    private static final String FILLER = " \n\t.,;:(){}[]<>=+-*/\"'_#@!?0123456789";
+    private static final String NON_ASCII = "éÉüÜß世界ΩЖ";
+
+    @Test
+    void everyKeywordIsFoundOnItsOwnAndInAnyCase() {
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            for (String keyword : signal.keywords()) {
+                assertMatchesNaiveScan(keyword);
+                assertMatchesNaiveScan(keyword.toUpperCase(Locale.ROOT));
+                assertMatchesNaiveScan("// TODO: " + keyword + "();");
+                assertTrue(PromptSignals.scan("x" + keyword.toUpperCase(Locale.ROOT) + "x").has(signal), keyword);
+            }
+        }
+    }
+
+    @Test
+    void overlappingKeywordsReportEverySignal() {
+        assertMatchesNaiveScan("please make an image of a cat");
+        assertMatchesNaiveScan("MAKE A VIDEO, then make an image");
+        assertMatchesNaiveScan("a portrait reel for tiktok");
+        assertMatchesNaiveScan("animate the image into an animated clip");
+        assertMatchesNaiveScan("text to image generation");
+        assertMatchesNaiveScan("mapmakermake");
+        assertMatchesNaiveScan("use leonardo with leonardo api");
+        assertMatchesNaiveScan("the video game settings");
+
+        PromptSignals portrait = PromptSignals.scan("Portrait");
+        assertTrue(portrait.has(PromptSignals.Signal.ARTISTIC_SCENE));
+        assertTrue(portrait.has(PromptSignals.Signal.VERTICAL_FORMAT));
+
+        PromptSignals makeAnImage = PromptSignals.scan("make an image");
+        assertTrue(makeAnImage.has(PromptSignals.Signal.EXPLICIT_IMAGE_REQUEST));
+        assertTrue(makeAnImage.has(PromptSignals.Signal.IMAGE_CREATE_VERB));
+        assertTrue(makeAnImage.has(PromptSignals.Signal.VIDEO_CREATE_VERB));
+        assertTrue(makeAnImage.has(PromptSignals.Signal.VISUAL_SUBJECT));
+        assertTrue(makeAnImage.isImageGenerationPrompt());
+    }
+
+    @Test
+    void partialKeywordsDoNotMatch() {
+        PromptSignals signals = PromptSignals.scan("mak imag vide portrai leonard");
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            assertFalse(signals.has(signal), signal.name());
+        }
+        assertMatchesNaiveScan("mak imag vide portrai leonard");
+        assertMatchesNaiveScan("");
+    }
+
+    @Test
+    void randomTextMatchesNaiveScan() {
+        Random random = new Random(42);
+        List<String> keywords = allKeywords();
+        for (int run = 0; run < 20_000; run++) {
+            StringBuilder text = new StringBuilder();
+            int pieces = 1 + random.nextInt(12);
+            for (int i = 0; i < pieces; i++) {
+                String keyword = keywords.get(random.nextInt(keywords.size()));
+                switch (random.nextInt(4)) {
+                    // Prefixes and suffixes of keywords are the near misses an automaton gets wrong.
+                    case 0 -> text.append(keyword, 0, 1 + random.nextInt(keyword.length()));
+                    case 1 -> text.append(keyword.substring(random.nextInt(keyword.length())));
+                    case 2 -> text.append(FILLER.charAt(random.nextInt(FILLER.length())));
+                    default -> text.append(NON_ASCII.charAt(random.nextInt(NON_ASCII.length())));
+                }
+            }
+            assertMatchesNaiveScan(randomCase(text, random));
+        }
+    }
+
+    @Test
+    void longCodeLikeInputMatchesNaiveScan() {
+        Random random = new Random(7);
+        String code = codeLikeText(200_000, random);
+        assertMatchesNaiveScan(code);
+        assertMatchesNaiveScan(code + "\n// now MAKE AN IMAGE of the architecture");
+        assertMatchesNaiveScan("Render a portrait video\n" + code);
+    }
+
+    private static void assertMatchesNaiveScan(String text) {
+        PromptSignals signals = PromptSignals.scan(text);
+        Set<PromptSignals.Signal> expected = naiveScan(text);
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            assertEquals(expected.contains(signal), signals.has(signal),
+                    () -> signal + " in \"" + abbreviate(text) + "\"");
+        }
+    }
+
+    /**
+     * The keyword check PromptSignals replaced: one lower-casing and one contains() per keyword.
+     */
+    static Set<PromptSignals.Signal> naiveScan(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<PromptSignals.Signal> found = EnumSet.noneOf(PromptSignals.Signal.class);
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            for (String keyword : signal.keywords()) {
+                if (lower.contains(keyword)) {
+                    found.add(signal);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    static String codeLikeText(int length, Random random) {
+        String[] lines = {
+                "    for (int i = 0; i < items.size(); i++) {",
+                "        Map<String, Object> row = rows.get(i);",
+                "        if (row == null) continue; // skip empty rows",
+                "    private static final Logger LOG = LoggerFactory.getLogger(Worker.class);",
+                "    at com.example.service.Dispatcher.run(Dispatcher.java:214)",
+                "        return mapper.readValue(payload, Response.class);",
+                "    }",
+                "SELECT id, created_at FROM messages WHERE conversation_id = ?;"
+        };
+        StringBuilder text = new StringBuilder(length + 100);
+        while (text.length() < length) {
+            text.append(lines[random.nextInt(lines.length)]).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static List<String> allKeywords() {
+        List<String> keywords = new ArrayList<>();
+        for (PromptSignals.Signal signal : PromptSignals.Signal.values()) {
+            keywords.addAll(signal.keywords());
+        }
+        return keywords;
+    }
+
+    private static String randomCase(CharSequence text, Random random) {
+        StringBuilder mixed = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            mixed.append(random.nextBoolean() ? Character.toUpperCase(ch) : ch);
+        }
+        return mixed.toString();
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 120 ? text : text.substring(0, 120) + "...";
+    }
+}
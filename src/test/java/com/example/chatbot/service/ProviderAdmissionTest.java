@@ -0,0 +1,82 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ProviderAdmissionTest {
+    private static final String PROVIDER = "GROQ";
+    private static final long LONG_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final ProviderAdmission admission = new ProviderAdmission();
+
+    @Test
+    void waitingCallTimesOutAtItsDeadlineWithoutTakingASlot() throws Exception {
+        assertTrue(admission.tryAcquire(PROVIDER, 1));
+
+        long start = System.nanoTime();
+        assertFalse(admission.acquire(PROVIDER, 1, false, start + TimeUnit.MILLISECONDS.toNanos(100)));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs >= 100, "gave up after " + waitedMs + " ms");
+        assertTrue(waitedMs < 5_000, "gave up after " + waitedMs + " ms");
+        admission.release(PROVIDER);
+        assertTrue(admission.tryAcquire(PROVIDER, 1), "the timed-out call must not hold a slot");
+    }
+
+    @Test
+    void interactiveCallGetsTheFreedSlotBeforeAWaitingConversationCall() throws Exception {
+        assertTrue(admission.tryAcquire(PROVIDER, 1));
+        FutureTask<Boolean> conversation = startWaiting(false, LONG_WAIT_NANOS);
+        FutureTask<Boolean> interactive = startWaiting(true, LONG_WAIT_NANOS);
+
+        admission.release(PROVIDER);
+
+        assertTrue(interactive.get(5, TimeUnit.SECONDS));
+        assertFalse(conversation.isDone());
+        admission.release(PROVIDER);
+        assertTrue(conversation.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void conversationCallsHoldBackWhileAnInteractiveCallWaits() throws Exception {
+        assertTrue(admission.tryAcquire(PROVIDER, 1));
+        FutureTask<Boolean> interactive = startWaiting(true, LONG_WAIT_NANOS);
+
+        admission.release(PROVIDER);
+
+        // The slot is free, but it belongs to the waiting interactive call whether or not it has woken yet.
+        assertFalse(admission.tryAcquire(PROVIDER, 1));
+        assertTrue(interactive.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interactiveCallThatTimesOutStopsHoldingBackConversationCalls() throws Exception {
+        assertTrue(admission.tryAcquire(PROVIDER, 1));
+        FutureTask<Boolean> interactive = startWaiting(true, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertFalse(interactive.get(5, TimeUnit.SECONDS));
+        admission.release(PROVIDER);
+
+        assertTrue(admission.tryAcquire(PROVIDER, 1));
+    }
+
+    /**
+     * Starts an {@link ProviderAdmission#acquire} on its own thread and returns once that thread is
+     * parked in the gate, so it is queued for the next free slot.
+     */
+    private FutureTask<Boolean> startWaiting(boolean interactive, long waitNanos) throws InterruptedException {
+        FutureTask<Boolean> task = new FutureTask<>(
+                () -> admission.acquire(PROVIDER, 1, interactive, System.nanoTime() + waitNanos));
+        Thread thread = new Thread(task, "admission-test");
+        thread.setDaemon(true);
+        thread.start();
+        while (thread.getState() != Thread.State.TIMED_WAITING && !task.isDone()) {
+            Thread.sleep(1);
+        }
+        return task;
+    }
+}
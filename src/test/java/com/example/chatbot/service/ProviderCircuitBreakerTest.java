@@ -0,0 +1,163 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ProviderCircuitBreakerTest {
+    private static final String CIRCUIT = ProviderCircuitBreaker.providerCircuit("GROQ");
+    private static final long ERROR_COOLDOWN_MS = 20_000;
+    private static final long AUTH_COOLDOWN_MS = 5 * 60_000;
+    private static final long MAX_COOLDOWN_MS = 10 * 60_000;
+    private static final long PROBE_TIMEOUT_MS = 2 * 60_000;
+
+    private final AtomicLong now = new AtomicLong(5_000_000);
+    private final ProviderCircuitBreaker breaker = new ProviderCircuitBreaker(now::get);
+
+    @Test
+    void opensAfterThreeConsecutiveServerErrors() {
+        breaker.recordFailure(CIRCUIT, 500);
+        breaker.recordFailure(CIRCUIT, ProviderCircuitBreaker.TRANSPORT_ERROR);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+        assertFalse(breaker.isOpen(CIRCUIT));
+
+        breaker.recordFailure(CIRCUIT, 503);
+
+        assertTrue(breaker.isOpen(CIRCUIT));
+        assertFalse(breaker.allowRequest(CIRCUIT));
+        assertEquals(ERROR_COOLDOWN_MS, breaker.remainingCooldownMillis(CIRCUIT));
+        now.addAndGet(5_000);
+        assertEquals(ERROR_COOLDOWN_MS - 5_000, breaker.remainingCooldownMillis(CIRCUIT));
+    }
+
+    @Test
+    void successBetweenFailuresKeepsTheCircuitClosed() {
+        breaker.recordFailure(CIRCUIT, 500);
+        breaker.recordFailure(CIRCUIT, 500);
+        breaker.recordSuccess(CIRCUIT);
+        breaker.recordFailure(CIRCUIT, 500);
+        breaker.recordFailure(CIRCUIT, 500);
+
+        assertTrue(breaker.allowRequest(CIRCUIT));
+        assertFalse(breaker.isOpen(CIRCUIT));
+    }
+
+    @Test
+    void rejectedKeysTripImmediately() {
+        String key = ProviderCircuitBreaker.keyCircuit("GROQ", "gsk_live_secret");
+        breaker.recordFailure(key, 401);
+
+        assertFalse(breaker.allowRequest(key));
+        assertEquals(AUTH_COOLDOWN_MS, breaker.remainingCooldownMillis(key));
+        assertTrue(breaker.allowRequest(CIRCUIT), "other circuits are unaffected");
+
+        String other = ProviderCircuitBreaker.keyCircuit("GROQ", "gsk_other");
+        breaker.recordFailure(other, 403);
+        assertFalse(breaker.allowRequest(other));
+        assertFalse(key.contains("gsk_live_secret"));
+        assertNotEquals(key, other);
+    }
+
+    @Test
+    void rateLimitsAndClientErrorsDoNotCount() {
+        for (int i = 0; i < 10; i++) {
+            breaker.recordFailure(CIRCUIT, 429);
+            breaker.recordFailure(CIRCUIT, 400);
+            breaker.recordFailure(CIRCUIT, 404);
+        }
+
+        assertTrue(breaker.allowRequest(CIRCUIT));
+    }
+
+    @Test
+    void halfOpenAdmitsASingleProbe() {
+        open();
+        now.addAndGet(ERROR_COOLDOWN_MS);
+
+        assertTrue(breaker.allowRequest(CIRCUIT), "first caller becomes the probe");
+        assertFalse(breaker.allowRequest(CIRCUIT), "others wait for the probe");
+        assertFalse(breaker.allowRequest(CIRCUIT));
+        assertTrue(breaker.isOpen(CIRCUIT));
+        assertEquals(0, breaker.remainingCooldownMillis(CIRCUIT));
+    }
+
+    @Test
+    void successfulProbeClosesTheCircuit() {
+        open();
+        now.addAndGet(ERROR_COOLDOWN_MS);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+
+        breaker.recordSuccess(CIRCUIT);
+
+        assertTrue(breaker.allowRequest(CIRCUIT));
+        assertTrue(breaker.allowRequest(CIRCUIT));
+        assertFalse(breaker.isOpen(CIRCUIT));
+        // The failure count starts over, and so does the cooldown.
+        breaker.recordFailure(CIRCUIT, 500);
+        breaker.recordFailure(CIRCUIT, 500);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+        breaker.recordFailure(CIRCUIT, 500);
+        assertEquals(ERROR_COOLDOWN_MS, breaker.remainingCooldownMillis(CIRCUIT));
+    }
+
+    @Test
+    void failedProbesDoubleTheCooldownUpToTheCap() {
+        open();
+        long[] expected = {40_000, 80_000, 160_000, 320_000, MAX_COOLDOWN_MS, MAX_COOLDOWN_MS, MAX_COOLDOWN_MS};
+        for (long cooldown : expected) {
+            now.addAndGet(breaker.remainingCooldownMillis(CIRCUIT));
+            assertTrue(breaker.allowRequest(CIRCUIT));
+
+            breaker.recordFailure(CIRCUIT, 502);
+
+            assertEquals(cooldown, breaker.remainingCooldownMillis(CIRCUIT));
+            assertFalse(breaker.allowRequest(CIRCUIT));
+        }
+    }
+
+    @Test
+    void probeWithoutHealthSignalHandsOverToTheNextCaller() {
+        open();
+        now.addAndGet(ERROR_COOLDOWN_MS);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+
+        breaker.release(CIRCUIT);
+
+        assertTrue(breaker.allowRequest(CIRCUIT), "next caller becomes the probe");
+        assertFalse(breaker.allowRequest(CIRCUIT));
+        breaker.recordFailure(CIRCUIT, 429);
+        assertTrue(breaker.allowRequest(CIRCUIT), "a rate-limited probe also hands over");
+    }
+
+    @Test
+    void probeThatNeverReportsBackIsReplacedAfterItsTimeout() {
+        open();
+        now.addAndGet(ERROR_COOLDOWN_MS);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+
+        now.addAndGet(PROBE_TIMEOUT_MS - 1);
+        assertFalse(breaker.allowRequest(CIRCUIT));
+        now.addAndGet(1);
+        assertTrue(breaker.allowRequest(CIRCUIT));
+    }
+
+    @Test
+    void unknownCircuitsAreClosed() {
+        assertTrue(breaker.allowRequest("never-seen"));
+        assertFalse(breaker.isOpen("never-seen"));
+        assertEquals(0, breaker.remainingCooldownMillis("never-seen"));
+        breaker.recordSuccess("never-seen");
+        breaker.release("never-seen");
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(CIRCUIT, 500);
+        }
+        assertEquals(ERROR_COOLDOWN_MS, breaker.remainingCooldownMillis(CIRCUIT));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.chatbot.service;
+
+import java.io.StringReader;
+import java.util.Locale;
+
+/**
+ * Times {@link ProviderJsonParser} against the indexOf-based extractor it replaced, on completions
+ * of growing size with escapes spread through the content. Both read from an in-memory string, so only
+ * the parsing is compared.
+ *
+ * <p>Arguments: {@code [iterations]}.
+ */
+final class ProviderJsonParserBenchmark {
+    private ProviderJsonParserBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        for (int contentChars : new int[]{2_000, 64_000, 1_000_000}) {
+            String body = completion(contentChars);
+            if (!ProviderJsonParser.openAiReply(new StringReader(body)).text().equals(indexOfContent(body))) {
+                throw new IllegalStateException("Extractors disagree on a " + contentChars + " char reply.");
+            }
+            int runs = Math.max(10, (int) ((long) iterations * 64_000 / contentChars));
+            long sink = 0;
+            for (int i = 0; i < runs; i++) {
+                sink += indexOfContent(body).length();
+                sink += ProviderJsonParser.openAiReply(new StringReader(body)).text().length();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += indexOfContent(body).length();
+            }
+            long indexOfNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                sink += ProviderJsonParser.openAiReply(new StringReader(body)).text().length();
+            }
+            long readerNanos = System.nanoTime() - start;
+            System.out.println(String.format(Locale.ROOT, "[ParserBenchmark] %,9d char body: indexOf %8.1f us, JsonReader %8.1f us (%d)",
+                    body.length(), indexOfNanos / 1000.0 / runs, readerNanos / 1000.0 / runs, sink & 1));
+        }
+    }
+
+    private static String completion(int contentChars) {
+        StringBuilder content = new StringBuilder(contentChars + 64);
+        while (content.length() < contentChars) {
+            content.append("Line with \\\"quotes\\\", caf\\u00e9 and a tab\\t\\n    return value;\\n");
+        }
+        return "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"model\":\"llama-3.3-70b-versatile\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + content
+                + "\"},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":812,\"completion_tokens\":4000,\"total_tokens\":4812}}";
+    }
+
+    // ================= PREVIOUS EXTRACTOR =================
+    private static String indexOfContent(String json) {
+        int messageIndex = json.indexOf("\"message\"");
+        if (messageIndex < 0) {
+            return null;
+        }
+        return stringValueAtKey(json, json.indexOf("\"content\"", messageIndex));
+    }
+
+    private static String stringValueAtKey(String json, int keyIndex) {
+        if (keyIndex < 0) {
+            return null;
+        }
+        int colonIndex = json.indexOf(':', keyIndex);
+        if (colonIndex < 0) {
+            return null;
+        }
+        int startQuote = -1;
+        for (int i = colonIndex + 1; i < json.length(); i++) {
+            char ch = json.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                continue;
+            }
+            if (ch == '"') {
+                startQuote = i;
+            }
+            break;
+        }
+        if (startQuote < 0) {
+            return null;
+        }
+        StringBuilder raw = new StringBuilder();
+        boolean escaped = false;
+        for (int i = startQuote + 1; i < json.length(); i++) {
+            char ch = json.charAt(i);
+            if (escaped) {
+                raw.append(ch);
+                escaped = false;
+                continue;
+            }
+            if (ch == '\\') {
+                raw.append(ch);
+                escaped = true;
+                continue;
+            }
+            if (ch == '"') {
+                return unescape(raw.toString());
+            }
+            raw.append(ch);
+        }
+        return null;
+    }
+
+    private static String unescape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'u' -> {
+                        if (i + 4 < value.length()) {
+                            out.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                            i += 4;
+                        }
+                    }
+                    default -> out.append(next);
+                }
+            } else {
+                out.append(ch);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+class ProviderJsonParserTest {
+
+    @Test
+    void readsGroqCompletionWithUsage() {
+        String body = """
+                {"id":"chatcmpl-9f2","object":"chat.completion","created":1760000000,"model":"llama-3.3-70b-versatile",
+                 "choices":[{"index":0,"message":{"role":"assistant","content":"Use \\"final\\" here.\\nCaf\\u00e9 \\ud83d\\ude00 \\\\ done"},
+                   "logprobs":null,"finish_reason":"stop"}],
+                 "usage":{"queue_time":0.021,"prompt_tokens":412,"prompt_time":0.004,"completion_tokens":57,
+                   "completion_time":0.09,"total_tokens":469,"total_time":0.094},
+                 "system_fingerprint":"fp_3884478861","x_groq":{"id":"req_01k"}}
+                """;
+
+        ProviderJsonParser.Reply reply = ProviderJsonParser.openAiReply(new StringReader(body));
+
+        assertEquals("Use \"final\" here.\nCafé 😀 \\ done", reply.text());
+        assertEquals(new ProviderJsonParser.Usage(412, 57), reply.usage());
+    }
+
+    @Test
+    void ignoresContentKeysOutsideTheFirstChoice() {
+        String body = """
+                {"metadata":{"message":{"content":"decoy"}},"note":"\\"message\\":{\\"content\\":\\"also a decoy\\"}",
+                 "choices":[{"message":{"role":"assistant","content":"real"}},{"message":{"content":"second choice"}}]}
+                """;
+
+        assertEquals("real", ProviderJsonParser.openAiReply(new StringReader(body)).text());
+    }
+
+    @Test
+    void keepsWhatWasReadBeforeATruncatedBody() {
+        String body = "{\"choices\":[{\"message\":{\"content\":\"partial answer\"}}],\"usage\":{\"prompt_tok";
+
+        ProviderJsonParser.Reply reply = ProviderJsonParser.openAiReply(new StringReader(body));
+
+        assertEquals("partial answer", reply.text());
+        assertNull(reply.usage());
+    }
+
+    @Test
+    void readsStreamDeltas() {
+        assertEquals("Hello", ProviderJsonParser.openAiStreamDelta(
+                "{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hel\\u006co\"},\"finish_reason\":null}],\"usage\":null}"));
+        assertNull(ProviderJsonParser.openAiStreamDelta(
+                "{\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"},\"finish_reason\":null}]}"));
+        assertNull(ProviderJsonParser.openAiStreamDelta("{\"choices\":[],\"usage\":{\"prompt_tokens\":1}}"));
+        assertNull(ProviderJsonParser.openAiStreamDelta("[DONE]"));
+    }
+
+    @Test
+    void readsUsageFromTheFinalOpenAiStreamChunk() {
+        String chunk = "{\"id\":\"c1\",\"object\":\"chat.completion.chunk\",\"choices\":[],"
+                + "\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":33,\"total_tokens\":153}}";
+
+        assertEquals(new ProviderJsonParser.Usage(120, 33), ProviderJsonParser.openAiStreamUsage(chunk));
+        assertNull(ProviderJsonParser.openAiStreamUsage(
+                "{\"choices\":[{\"delta\":{\"content\":\"usage\"}}],\"usage\":null}"));
+    }
+
+    @Test
+    void readsGroqUsageFromXGroq() {
+        String chunk = "{\"id\":\"c1\",\"object\":\"chat.completion.chunk\","
+                + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+                + "\"x_groq\":{\"id\":\"req_01k\",\"usage\":{\"queue_time\":0.02,\"prompt_tokens\":88,"
+                + "\"prompt_time\":0.01,\"completion_tokens\":21,\"total_tokens\":109}}}";
+
+        assertEquals(new ProviderJsonParser.Usage(88, 21), ProviderJsonParser.openAiStreamUsage(chunk));
+        assertNull(ProviderJsonParser.openAiStreamUsage("{\"choices\":[],\"x_groq\":{\"id\":\"req_01k\"}}"));
+    }
+
+    @Test
+    void readsGoogleCandidatePartsAndUsageMetadata() {
+        String body = """
+                {"candidates":[{"content":{"parts":[{"text":"Part one. "},
+                   {"inlineData":{"mimeType":"image/png","data":"iVBORw0KGgo="}},{"text":"Part \\u00fcber two."}],
+                   "role":"model"},"finishReason":"STOP","avgLogprobs":-0.12},
+                  {"content":{"parts":[{"text":"second candidate"}]}}],
+                 "usageMetadata":{"promptTokenCount":230,"candidatesTokenCount":41,"totalTokenCount":271,
+                   "promptTokensDetails":[{"modality":"TEXT","tokenCount":230}]},
+                 "modelVersion":"gemini-2.0-flash"}
+                """;
+
+        ProviderJsonParser.Reply reply = ProviderJsonParser.googleReply(new StringReader(body));
+
+        assertEquals("Part one. Part über two.", reply.text());
+        assertEquals(new ProviderJsonParser.Usage(230, 41), reply.usage());
+    }
+
+    @Test
+    void readsGoogleUsageBeforeCandidatesAndPartialCounts() {
+        ProviderJsonParser.Reply reply = ProviderJsonParser.googleReply(new StringReader(
+                "{\"usageMetadata\":{\"promptTokenCount\":15},\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"Hi\"}]}}]}"));
+
+        assertEquals("Hi", reply.text());
+        assertEquals(new ProviderJsonParser.Usage(15, 0), reply.usage());
+    }
+
+    @Test
+    void googleCandidateWithoutTextHasNoText() {
+        ProviderJsonParser.Reply reply = ProviderJsonParser.googleReply(new StringReader(
+                "{\"candidates\":[{\"content\":{\"parts\":[{\"functionCall\":{\"name\":\"f\",\"args\":{\"text\":\"x\"}}}]},"
+                        + "\"finishReason\":\"STOP\"}]}"));
+
+        assertNull(reply.text());
+        assertNull(reply.usage());
+    }
+
+    @Test
+    void readsErrorMessages() {
+        assertEquals("Invalid API Key", ProviderJsonParser.errorMessage(new StringReader(
+                "{\"error\":{\"message\":\"Invalid API Key\",\"type\":\"invalid_request_error\",\"code\":\"invalid_api_key\"}}")));
+        assertEquals("Resource has been exhausted (e.g. check quota).", ProviderJsonParser.errorMessage(new StringReader(
+                "[{\"error\":{\"code\":429,\"message\":\"Resource has been exhausted (e.g. check quota).\",\"status\":\"RESOURCE_EXHAUSTED\"}}]")));
+        assertEquals("Unauthorized", ProviderJsonParser.errorMessage(new StringReader("{\"message\":\"Unauthorized\"}")));
+        assertEquals("model_not_found", ProviderJsonParser.errorMessage(new StringReader("{\"error\":\"model_not_found\"}")));
+        assertEquals("inner", ProviderJsonParser.errorMessage(new StringReader(
+                "{\"message\":\"outer\",\"error\":{\"details\":[{\"message\":\"nested\"}],\"message\":\"inner\"}}")));
+        assertEquals("outer", ProviderJsonParser.errorMessage(new StringReader("{\"message\":\"outer\",\"error\":{\"code\":500}}")));
+        assertEquals("Quota \"free\" used", ProviderJsonParser.errorMessage(new StringReader(
+                "{\"error\":{\"message\":\"Quota \\\"free\\\" used\"}}")));
+    }
+
+    @Test
+    void unreadableErrorBodiesGiveNull() {
+        assertNull(ProviderJsonParser.errorMessage(new StringReader("<html><body>502 Bad Gateway</body></html>")));
+        assertNull(ProviderJsonParser.errorMessage(new StringReader("")));
+        assertNull(ProviderJsonParser.errorMessage(new StringReader("[]")));
+        assertNull(ProviderJsonParser.errorMessage(new StringReader("{\"error\":{\"message\":")));
+    }
+
+    @Test
+    void readsFreepikTaskAndGeneratedAsset() {
+        String completed = """
+                {"data":{"task_id":"046b6c7f-0b8a-43b9-b35d-6489e6daee91","status":"COMPLETED",
+                 "preview":"https://cdn.freepik.com/preview/low.jpg",
+                 "generated":["https://cdn.freepik.com/generated/final.png"]}}
+                """;
+        String objects = "{\"data\":{\"generated\":[{\"url\":\"https://cdn.freepik.com/video/clip.mp4\",\"width\":1280}]}}";
+        String pending = "{\"data\":{\"task_id\":\"abc\",\"status\":\"IN_PROGRESS\",\"generated\":[]}}";
+
+        assertEquals("https://cdn.freepik.com/generated/final.png", ProviderJsonParser.firstGeneratedAsset(completed));
+        assertEquals("046b6c7f-0b8a-43b9-b35d-6489e6daee91", ProviderJsonParser.firstStringValue(completed, "task_id"));
+        assertEquals("https://cdn.freepik.com/video/clip.mp4", ProviderJsonParser.firstGeneratedAsset(objects));
+        assertNull(ProviderJsonParser.firstGeneratedAsset(pending));
+        assertEquals("abc", ProviderJsonParser.firstStringValue(pending, "task_id"));
+    }
+
+    @Test
+    void readsLeonardoGenerationAndImage() {
+        String created = "{\"sdGenerationJob\":{\"generationId\":\"6e5a1f3c-5e0d\",\"apiCreditCost\":8}}";
+        String completed = """
+                {"generations_by_pk":{"generated_images":[{"url":"https://cdn.leonardo.ai/users/u/generations/g/image_0.jpg",
+                   "nsfw":false,"id":"img-1","likeCount":0}],
+                 "modelId":"de7d3faf","prompt":"see https://example.com/ref for style","status":"COMPLETE","id":"g"}}
+                """;
+
+        assertEquals("6e5a1f3c-5e0d", ProviderJsonParser.firstStringValue(created, "generationId"));
+        assertEquals("https://cdn.leonardo.ai/users/u/generations/g/image_0.jpg",
+                ProviderJsonParser.firstStringValue(completed, "url"));
+        assertEquals("https://cdn.leonardo.ai/users/u/generations/g/image_0.jpg",
+                ProviderJsonParser.firstGeneratedAsset(completed));
+        assertNull(ProviderJsonParser.firstStringValue(created, "url"));
+    }
+
+    @Test
+    void keysInsideStringValuesAreNotMatched() {
+        String body = "{\"prompt\":\"\\\"task_id\\\":\\\"fake\\\"\",\"data\":{\"task_id\":\"real\"}}";
+
+        assertEquals("real", ProviderJsonParser.firstStringValue(body, "task_id"));
+        assertNull(ProviderJsonParser.firstStringValue("not json", "task_id"));
+        assertNull(ProviderJsonParser.firstGeneratedAsset(null));
+    }
+}
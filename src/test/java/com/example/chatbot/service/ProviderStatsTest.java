@@ -0,0 +1,158 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ProviderStatsTest {
+    private static final String PROVIDER = "GROQ";
+    private static final String INTENT = "TEXT_CHAT";
+    private static final double DECAY = 0.97;
+    private static final long HALF_LIFE_MS = 60 * 60_000;
+    private static final long PROBE_AFTER_MS = 30 * 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    // No file: nothing is loaded or saved.
+    private final ProviderStats stats = new ProviderStats(null, now::get);
+
+    @Test
+    void percentilesInterpolateInsideTheBucket() {
+        // 100 ms falls in the 93-121 ms bucket.
+        for (int i = 0; i < 3; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 100, 100);
+        }
+
+        assertEquals(93, firstOutput(0.0));
+        assertEquals(107, firstOutput(0.5));
+        assertEquals(120, firstOutput(0.95));
+        assertEquals(121, firstOutput(1.0));
+    }
+
+    @Test
+    void percentilesWeighNewerSamplesMore() {
+        stats.recordSuccess(PROVIDER, INTENT, 100, 100);
+        stats.recordSuccess(PROVIDER, INTENT, 100, 100);
+        // 1000 ms falls in the 984-1280 ms bucket; the two 100 ms samples now weigh 0.94 and 0.97.
+        stats.recordSuccess(PROVIDER, INTENT, 1000, 1000);
+
+        double fast = DECAY * DECAY + DECAY;
+        double total = fast + 1;
+        assertEquals(Math.round(93 + 28 * (0.25 * total / fast)), firstOutput(0.25));
+        assertEquals(Math.round(984 + 296 * (0.75 * total - fast)), firstOutput(0.75));
+        assertEquals(1065, firstOutput(0.75));
+    }
+
+    @Test
+    void firstOutputNeverExceedsTheTotalLatency() {
+        for (int i = 0; i < 3; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 100, 5000);
+        }
+
+        assertEquals(107, firstOutput(0.5));
+    }
+
+    @Test
+    void expectedMillisDividesTheMedianBySuccessRate() {
+        for (int i = 0; i < 4; i++) {
+            // 200 ms falls in the 157-204 ms bucket, so the median is 180.5 ms.
+            stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        }
+        assertEquals(180.5, stats.expectedMillis(PROVIDER, INTENT).getAsDouble(), 1e-9);
+
+        stats.recordFailure(PROVIDER, INTENT);
+
+        double successes = (1 + DECAY + DECAY * DECAY + DECAY * DECAY * DECAY) * DECAY;
+        double successRate = successes / (successes + 1);
+        assertEquals(180.5 / successRate, stats.expectedMillis(PROVIDER, INTENT).getAsDouble(), 1e-9);
+    }
+
+    @Test
+    void expectedMillisNeedsEnoughHistory() {
+        assertFalse(stats.expectedMillis(PROVIDER, INTENT).isPresent());
+
+        // Three samples weigh 1 + 0.97 + 0.94, just under the minimum of 3.
+        for (int i = 0; i < 3; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        }
+        assertFalse(stats.expectedMillis(PROVIDER, INTENT).isPresent());
+
+        stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        assertTrue(stats.expectedMillis(PROVIDER, INTENT).isPresent());
+        assertFalse(stats.expectedMillis(PROVIDER, "IMAGE_GENERATION").isPresent());
+    }
+
+    @Test
+    void failuresBeforeTheSuccessesStillCount() {
+        for (int i = 0; i < 4; i++) {
+            stats.recordFailure(PROVIDER, INTENT);
+        }
+        for (int i = 0; i < 3; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        }
+
+        double successes = 1 + DECAY + DECAY * DECAY;
+        double failures = (1 + DECAY + DECAY * DECAY + DECAY * DECAY * DECAY) * DECAY * DECAY * DECAY;
+        double successRate = successes / (successes + failures);
+        assertEquals(180.5 / successRate, stats.expectedMillis(PROVIDER, INTENT).getAsDouble(), 1e-9);
+    }
+
+    @Test
+    void weightsHalveEveryHalfLife() {
+        for (int i = 0; i < 4; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        }
+        double weight = 1 + DECAY + DECAY * DECAY + DECAY * DECAY * DECAY;
+        assertEquals(weight, stats.summaries().get(PROVIDER + "/" + INTENT).weight(), 1e-9);
+
+        now.addAndGet(HALF_LIFE_MS);
+
+        ProviderStats.Summary summary = stats.summaries().get(PROVIDER + "/" + INTENT);
+        assertEquals(weight / 2, summary.weight(), 1e-9);
+        assertEquals(1.0, summary.successRate(), 1e-9);
+        // Below the minimum again, so routing treats the provider as unmeasured.
+        assertFalse(stats.expectedMillis(PROVIDER, INTENT).isPresent());
+    }
+
+    @Test
+    void recentSamplesOutweighOlderOnesAfterAHalfLife() {
+        for (int i = 0; i < 8; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 100, 100);
+        }
+        now.addAndGet(HALF_LIFE_MS);
+        for (int i = 0; i < 4; i++) {
+            stats.recordSuccess(PROVIDER, INTENT, 1000, 1000);
+        }
+
+        // Per-sample decay alone would leave the eight older samples ahead (6.4 against 3.8).
+        assertTrue(firstOutput(0.5) >= 984, "median " + firstOutput(0.5));
+    }
+
+    @Test
+    void staleProvidersAreProbedOncePerInterval() {
+        assertFalse(stats.claimProbe(PROVIDER, INTENT), "no history, nothing to refresh");
+
+        stats.recordSuccess(PROVIDER, INTENT, 200, 200);
+        assertFalse(stats.claimProbe(PROVIDER, INTENT));
+
+        now.addAndGet(PROBE_AFTER_MS);
+        assertTrue(stats.claimProbe(PROVIDER, INTENT));
+        assertFalse(stats.claimProbe(PROVIDER, INTENT), "one probe per interval");
+
+        now.addAndGet(PROBE_AFTER_MS);
+        assertTrue(stats.claimProbe(PROVIDER, INTENT), "the last probe brought no new sample");
+
+        now.addAndGet(PROBE_AFTER_MS);
+        stats.recordFailure(PROVIDER, INTENT);
+        assertFalse(stats.claimProbe(PROVIDER, INTENT), "a failure is a fresh sample too");
+    }
+
+    private long firstOutput(double fraction) {
+        OptionalLong value = stats.firstOutputPercentile(PROVIDER, INTENT, fraction, 0);
+        assertTrue(value.isPresent());
+        return value.getAsLong();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class RequestSchedulerTest {
+    private static final Object FIRST = "first conversation";
+    private static final Object SECOND = "second conversation";
+
+    // Holds dispatched tasks until the test runs them, so "running" means started and not yet finished.
+    private final ArrayDeque<Runnable> dispatched = new ArrayDeque<>();
+    private final Executor executor = dispatched::addLast;
+    private final AtomicInteger limit = new AtomicInteger(4);
+    private final RequestScheduler scheduler = new RequestScheduler(executor, limit::get);
+    private final List<String> started = new ArrayList<>();
+
+    @Test
+    void aBurstInOneConversationDoesNotStarveAnother() {
+        for (int i = 1; i <= 6; i++) {
+            submit(RequestScheduler.Lane.CONVERSATION, FIRST, "a" + i);
+        }
+        submit(RequestScheduler.Lane.CONVERSATION, SECOND, "b1");
+
+        // Nobody else was waiting, so the first conversation took every slot, past its share of two.
+        assertEquals(4, dispatched.size());
+
+        runAll();
+
+        // b1 gets the first slot that frees up; a5 and a6 queued before it but wait their turn.
+        assertEquals(List.of("a1", "a2", "a3", "a4", "b1", "a5", "a6"), started);
+    }
+
+    @Test
+    void conversationsTakeTurns() {
+        limit.set(1);
+        for (int i = 1; i <= 3; i++) {
+            submit(RequestScheduler.Lane.CONVERSATION, FIRST, "a" + i);
+        }
+        for (int i = 1; i <= 2; i++) {
+            submit(RequestScheduler.Lane.CONVERSATION, SECOND, "b" + i);
+        }
+
+        runAll();
+
+        // a1 started before anything else was queued; from there the two alternate.
+        assertEquals(List.of("a1", "a2", "b1", "a3", "b2"), started);
+    }
+
+    @Test
+    void interactiveTasksOvertakeQueuedConversationTasks() {
+        limit.set(1);
+        submit(RequestScheduler.Lane.CONVERSATION, FIRST, "a1");
+        submit(RequestScheduler.Lane.CONVERSATION, FIRST, "a2");
+        submit(RequestScheduler.Lane.CONVERSATION, SECOND, "b1");
+
+        submit(RequestScheduler.Lane.INTERACTIVE, null, "inline");
+
+        // Started on a reserved slot while a1 still holds the only conversation slot.
+        assertEquals(2, dispatched.size());
+        runAll();
+        assertEquals(List.of("a1", "inline", "a2", "b1"), started);
+    }
+
+    @Test
+    void interactiveTasksUseAtMostTheReserveOverTheLimit() {
+        limit.set(1);
+        submit(RequestScheduler.Lane.CONVERSATION, FIRST, "a1");
+        for (int i = 1; i <= 3; i++) {
+            submit(RequestScheduler.Lane.INTERACTIVE, null, "inline" + i);
+        }
+
+        assertEquals(3, dispatched.size());
+
+        runNext();
+        // a1 finished, so the queued interactive task takes its slot ahead of anything else.
+        assertEquals(3, dispatched.size());
+        runAll();
+        assertEquals(List.of("a1", "inline1", "inline2", "inline3"), started);
+    }
+
+    private void submit(RequestScheduler.Lane lane, Object owner, String name) {
+        scheduler.submit(lane, owner, () -> started.add(name));
+    }
+
+    private void runNext() {
+        dispatched.pollFirst().run();
+    }
+
+    private void runAll() {
+        while (!dispatched.isEmpty()) {
+            runNext();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResponseCacheTest {
+    private static final long NO_DISK = 0;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void memoryTierEvictsTheLeastRecentlyUsedEntry() {
+        ResponseCache cache = new ResponseCache(null);
+        cache.put("a", "reply a", 2, NO_DISK);
+        cache.put("b", "reply b", 2, NO_DISK);
+        assertEquals("reply a", cache.get("a", 2));
+
+        cache.put("c", "reply c", 2, NO_DISK);
+
+        assertNull(cache.get("b", 2));
+        assertEquals("reply a", cache.get("a", 2));
+        assertEquals("reply c", cache.get("c", 2));
+        assertEquals(3, cache.memoryHits());
+        assertEquals(0, cache.diskHits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void diskTierServesEvictedEntriesAndPromotesThem() {
+        ResponseCache cache = new ResponseCache(directory);
+        cache.put("a", "reply a", 1, 1024);
+        cache.put("b", "reply b", 1, 1024);
+
+        assertEquals("reply a", cache.get("a", 1));
+        assertEquals("reply a", cache.get("a", 1));
+
+        assertEquals(1, cache.diskHits());
+        assertEquals(1, cache.memoryHits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    void diskEntriesSurviveARestart() {
+        new ResponseCache(directory).put("a", "reply ä 🚀", 4, 1024);
+
+        ResponseCache restarted = new ResponseCache(directory);
+
+        assertEquals("reply ä 🚀", restarted.get("a", 4));
+        assertEquals(1, restarted.diskHits());
+    }
+
+    @Test
+    void diskTierEvictsLeastRecentlyReadEntriesPastItsBudget() throws IOException {
+        ResponseCache cache = new ResponseCache(directory);
+        String reply = "x".repeat(40);
+        cache.put("a", reply, 0, 100);
+        cache.put("b", reply, 0, 100);
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(entry("a"), FileTime.fromMillis(now - 20_000));
+        Files.setLastModifiedTime(entry("b"), FileTime.fromMillis(now - 10_000));
+        // Reading "a" makes "b" the oldest access.
+        assertEquals(reply, cache.get("a", 0));
+
+        cache.put("c", reply, 0, 100);
+
+        // 120 bytes is over the budget; one eviction brings it under the 90-byte trim target.
+        assertTrue(Files.exists(entry("a")));
+        assertFalse(Files.exists(entry("b")));
+        assertTrue(Files.exists(entry("c")));
+        assertNull(cache.get("b", 0));
+    }
+
+    @Test
+    void entriesLargerThanTheDiskBudgetStayInMemoryOnly() {
+        ResponseCache cache = new ResponseCache(directory);
+        cache.put("a", "x".repeat(200), 4, 100);
+
+        assertFalse(Files.exists(entry("a")));
+        assertEquals(200, cache.get("a", 4).length());
+    }
+
+    @Test
+    void failedWritesLeaveNoTempFileBehind() throws IOException {
+        // A non-empty directory where the entry should go makes the final move fail.
+        Files.createDirectories(entry("a"));
+        Files.writeString(entry("a").resolve("blocker"), "x");
+        ResponseCache cache = new ResponseCache(directory);
+
+        cache.put("a", "reply a", 0, 1024);
+
+        assertEquals(List.of(), tempFiles());
+    }
+
+    @Test
+    void staleTempFilesAreRemovedWhenTheDirectoryIsMeasured() throws IOException {
+        Path stale = Files.writeString(directory.resolve("a123.tmp"), "x".repeat(500));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60_000L));
+        Path fresh = Files.writeString(directory.resolve("b456.tmp"), "x");
+
+        new ResponseCache(directory).put("c", "reply c", 0, 1024);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh), "may still be written by another write");
+    }
+
+    @Test
+    void keysIgnoreLineEndingsAndTrailingWhitespaceOnly() {
+        String code = "def f():\n    return 1\n";
+        assertEquals(ResponseCache.normalizeForKey(code), ResponseCache.normalizeForKey("def f():\r\n    return 1  \r\n\r\n"));
+        assertEquals(ResponseCache.normalizeForKey(code), ResponseCache.normalizeForKey("def f():\t\n    return 1"));
+
+        assertNotEquals(ResponseCache.normalizeForKey(code), ResponseCache.normalizeForKey("def f():\nreturn 1\n"));
+        assertNotEquals(ResponseCache.normalizeForKey(code), ResponseCache.normalizeForKey("def f():\n  return 1\n"));
+        assertNotEquals(ResponseCache.normalizeForKey(code), ResponseCache.normalizeForKey("def f(): return 1"));
+        assertNotEquals(ResponseCache.normalizeForKey("a\n\nb"), ResponseCache.normalizeForKey("a\nb"));
+        assertEquals("", ResponseCache.normalizeForKey(null));
+    }
+
+    private List<Path> tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".tmp")).toList();
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + ".md");
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.chatbot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenEstimatorTest {
+
+    @Test
+    void readsWindowSizeSuffixes() {
+        assertEquals(32_768, TokenEstimator.contextWindow("mixtral-8x7b-32768"));
+        assertEquals(8_192, TokenEstimator.contextWindow("llama3-70b-8192"));
+        assertEquals(131_072, TokenEstimator.contextWindow("My-Custom-Model-131072"));
+    }
+
+    @Test
+    void dateAndVersionSuffixesAreNotWindows() {
+        assertEquals(16_385, TokenEstimator.contextWindow("gpt-3.5-turbo-0125"));
+        assertEquals(8_192, TokenEstimator.contextWindow("gpt-4-0613"));
+        assertEquals(128_000, TokenEstimator.contextWindow("gpt-4o-2024-08-06"));
+        assertEquals(8_192, TokenEstimator.contextWindow("custom-20240229"));
+    }
+
+    @Test
+    void knowsModelFamilies() {
+        assertEquals(1_000_000, TokenEstimator.contextWindow("gemini-2.0-flash"));
+        assertEquals(2_000_000, TokenEstimator.contextWindow("gemini-1.5-pro-latest"));
+        assertEquals(128_000, TokenEstimator.contextWindow("llama-3.3-70b-versatile"));
+        assertEquals(128_000, TokenEstimator.contextWindow(" Qwen-QWQ-32B "));
+        assertEquals(8_192, TokenEstimator.contextWindow(null));
+        assertEquals(8_192, TokenEstimator.contextWindow(""));
+    }
+
+    @Test
+    void estimatesGrowWithTextAndCountScriptsDifferently() {
+        assertEquals(0, TokenEstimator.estimate(null, "m"));
+        assertEquals(0, TokenEstimator.estimate("", "m"));
+        assertEquals(7, TokenEstimator.estimate("alpha beta gamma delta ", "m"));
+        assertEquals(4, TokenEstimator.estimate("1234567890", "m"));
+        assertTrue(TokenEstimator.estimate("世界你好", "m") >= 4);
+        assertTrue(TokenEstimator.estimate("alpha beta gamma delta ", "gemini-2.0-flash")
+                <= TokenEstimator.estimate("alpha beta gamma delta ", "m"));
+
+        String text = "for (int i = 0; i < n; i++) { total += values[i]; }\n";
+        int previous = 0;
+        for (int length = 0; length <= text.length(); length++) {
+            int estimate = TokenEstimator.estimate(text.substring(text.length() - length), "m");
+            assertTrue(estimate >= previous, "suffix estimates must not shrink as the suffix grows");
+            previous = estimate;
+        }
+    }
+}